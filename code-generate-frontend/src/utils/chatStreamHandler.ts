@@ -25,6 +25,10 @@ export interface ChatStreamCallbacks {
   onError: (error: any) => void;
   // 接收到第一个数据块（用于隐藏初始加载状态）
   onFirstChunk: () => void;
+  // 断线时间过长，部分增量已无法续传，流随之结束，需要重新加载对话历史
+  onReplayGap?: () => void;
+  // 请求在准入队列中等待：当前排在第几位（从 1 开始）、预计还需等待的秒数（未知时为 -1）
+  onQueueStatus?: (position: number, estimatedWaitSeconds: number) => void;
 }
 
 /**
@@ -35,6 +39,11 @@ export interface ChatStreamParams {
   userMessage: string;
 }
 
+/**
+ * 断线后允许浏览器自动重连（断点续传）的最大次数
+ */
+const MAX_RECONNECT_ATTEMPTS = 3;
+
 /**
  * 启动聊天SSE流式请求
  * @param params 请求参数
@@ -44,6 +53,7 @@ export interface ChatStreamParams {
 export function startChatStream(params: ChatStreamParams, callbacks: ChatStreamCallbacks): EventSource {
   let eventSource: EventSource;
   let streamCompleted = false;
+  let reconnectAttempts = 0;
 
   const { appId, userMessage } = params;
   const {
@@ -78,6 +88,7 @@ export function startChatStream(params: ChatStreamParams, callbacks: ChatStreamC
 
     // 统一的数据处理函数
     const handleEventData = (rawData: string) => {
+      reconnectAttempts = 0;
       if (streamCompleted) return;
 
       handleFirstChunk();
@@ -152,6 +163,18 @@ export function startChatStream(params: ChatStreamParams, callbacks: ChatStreamC
       handleEventData(event.data);
     });
 
+    // 排队状态不是生成内容，不触发 onFirstChunk，页面继续显示等待状态
+    eventSource.addEventListener('queue', (event: MessageEvent) => {
+      reconnectAttempts = 0;
+      if (streamCompleted) return;
+      try {
+        const { position, estimatedWaitSeconds } = JSON.parse(event.data);
+        callbacks.onQueueStatus?.(Number(position), Number(estimatedWaitSeconds ?? -1));
+      } catch (e) {
+        console.warn('无法解析排队状态:', event.data);
+      }
+    });
+
     // 兼容旧的通用消息处理
     eventSource.onmessage = (event: MessageEvent) => {
       handleEventData(event.data);
@@ -164,6 +187,18 @@ export function startChatStream(params: ChatStreamParams, callbacks: ChatStreamC
       onDone();
     });
 
+    // 增量缺失后继续拼接会得到错误的内容，直接结束并交给页面重新加载
+    eventSource.addEventListener('replay_gap', () => {
+      if (streamCompleted) return;
+      streamCompleted = true;
+      eventSource?.close();
+      if (callbacks.onReplayGap) {
+        callbacks.onReplayGap();
+      } else {
+        onError({ message: '部分生成内容未能恢复，请刷新页面' });
+      }
+    });
+
     eventSource.addEventListener('business-error', (event: MessageEvent) => {
       if (streamCompleted) return;
       streamCompleted = true;
@@ -178,6 +213,12 @@ export function startChatStream(params: ChatStreamParams, callbacks: ChatStreamC
     eventSource.onerror = (err) => {
       if (streamCompleted) return;
 
+      // 网络抖动时浏览器会携带 Last-Event-ID 自动重连，服务端从断点续传，不重新生成
+      if (eventSource?.readyState === EventSource.CONNECTING && reconnectAttempts < MAX_RECONNECT_ATTEMPTS) {
+        reconnectAttempts++;
+        return;
+      }
+
       if (eventSource?.readyState === EventSource.CLOSED) {
         if (!streamCompleted) {
           streamCompleted = true;
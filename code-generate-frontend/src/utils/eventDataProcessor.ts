@@ -31,23 +31,16 @@ export interface ParsedEventData {
 
 /**
  * 解析后端返回的原始数据
- * @param rawData 后端返回的原始数据，格式：{"d":"{\"data\":\"的要求\",\"type\":\"ai_response\"}"}
+ * @param rawData 后端返回的原始数据，格式：{"type":"ai_response","data":"的要求"}
+ *                兼容旧格式：{"d":"{\"data\":\"的要求\",\"type\":\"ai_response\"}"}
  * @returns 解析后的事件数据
  */
 export function parseEventData(rawData: string): ParsedEventData | null {
   try {
-    // 第一层解析：解析外层的JSON
     const outerData = JSON.parse(rawData)
 
-    // 获取d字段
-    const dField = outerData.d
-    if (!dField) {
-      console.warn('事件数据缺少d字段:', rawData)
-      return null
-    }
-
-    // 第二层解析：解析d字段中的JSON
-    const innerData = JSON.parse(dField)
+    // 新格式直接是消息对象；旧格式需要再解析一次 d 字段
+    const innerData = outerData.d ? JSON.parse(outerData.d) : outerData
 
     // 验证必需字段
     if (!innerData.type) {
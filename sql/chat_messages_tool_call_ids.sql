@@ -0,0 +1,20 @@
+-- PostgreSQL（pg 数据源）chat_messages 表：工具调用链批量补全
+
+-- AI 消息发起的工具调用 ID（只随消息读取，不作为查询条件，因此不建 GIN 索引）
+ALTER TABLE chat_messages
+    ADD COLUMN IF NOT EXISTS tool_call_ids text[];
+
+-- 回填已有 AI 消息的工具调用 ID（未回填的数据读取时会回退为解析 tool_execution_requests）
+UPDATE chat_messages
+SET tool_call_ids = ARRAY(SELECT request ->> 'id'
+                          FROM jsonb_array_elements(tool_execution_requests) AS request
+                          WHERE request ->> 'id' IS NOT NULL)
+WHERE message_type = 'AI'
+  AND tool_call_ids IS NULL
+  AND tool_execution_requests IS NOT NULL
+  AND jsonb_typeof(tool_execution_requests) = 'array';
+
+-- 按会话批量查找工具执行结果
+CREATE INDEX IF NOT EXISTS idx_chat_messages_memory_tool_call
+    ON chat_messages (memory_id, tool_call_id)
+    WHERE tool_call_id IS NOT NULL;
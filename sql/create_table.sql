@@ -96,3 +96,16 @@ create table if not exists access_key
     cdKey          varchar(512)                        null comment '兑换码',
     INDEX idx_userName (userId)
     ) comment '访问key' collate = utf8mb4_unicode_ci;
+
+-- 对话记忆摘要表
+create table if not exists chat_memory_summary
+(
+    id            bigint                             not null comment 'id' primary key,
+    appId         bigint                             not null comment '应用id',
+    summary       text                               not null comment '更早对话的摘要',
+    fromHistoryId bigint                             null comment '摘要之后保留的第一条对话历史 id，重建记忆时只加载该 id 及之后的历史',
+    createTime    datetime default CURRENT_TIMESTAMP not null comment '创建时间',
+    updateTime    datetime default CURRENT_TIMESTAMP not null on update CURRENT_TIMESTAMP comment '更新时间',
+    isDelete      tinyint  default 0                 not null comment '是否删除',
+    UNIQUE KEY uk_appId (appId)
+) comment '对话记忆摘要' collate = utf8mb4_unicode_ci;
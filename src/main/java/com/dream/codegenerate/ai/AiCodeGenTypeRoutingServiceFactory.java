@@ -1,8 +1,9 @@
 package com.dream.codegenerate.ai;
 
+import com.dream.codegenerate.ai.client.ModelClientKey;
+import com.dream.codegenerate.ai.client.ModelClientRegistry;
 import com.dream.codegenerate.config.RoutingAiModelConfig;
 import com.dream.codegenerate.utils.SpringContextUtil;
-import dev.langchain4j.http.client.spring.restclient.SpringRestClientBuilder;
 import dev.langchain4j.model.chat.ChatModel;
 import dev.langchain4j.model.openai.OpenAiChatModel;
 import dev.langchain4j.service.AiServices;
@@ -24,6 +25,9 @@ public class AiCodeGenTypeRoutingServiceFactory {
     @Resource
     private RoutingAiModelConfig routingAiModelConfig;
 
+    @Resource
+    private ModelClientRegistry modelClientRegistry;
+
     /**
      * 创建AI代码生成类型路由服务实例
      */
@@ -35,15 +39,17 @@ public class AiCodeGenTypeRoutingServiceFactory {
     }
 
     public ChatModel getChatModel(String apiKey) {
-        return OpenAiChatModel.builder()
+        ModelClientKey key = new ModelClientKey("openai-chat", routingAiModelConfig.getBaseUrl(),
+                apiKey, routingAiModelConfig.getModelName());
+        return modelClientRegistry.get(key, routingAiModelConfig.getTransport(), httpClientBuilder -> OpenAiChatModel.builder()
                 .apiKey(apiKey)
-                .httpClientBuilder(new SpringRestClientBuilder())
+                .httpClientBuilder(httpClientBuilder)
                 .modelName(routingAiModelConfig.getModelName())
                 .baseUrl(routingAiModelConfig.getBaseUrl())
                 .maxTokens(routingAiModelConfig.getMaxTokens())
                 .temperature(routingAiModelConfig.getTemperature())
                 .logRequests(routingAiModelConfig.getLogRequests())
                 .logResponses(routingAiModelConfig.getLogResponses())
-                .build();
+                .build());
     }
 }
@@ -1,9 +1,18 @@
 package com.dream.codegenerate.ai;
 
+import com.dream.codegenerate.ai.client.ModelClientKey;
+import com.dream.codegenerate.ai.client.ModelClientRegistry;
+import com.dream.codegenerate.ai.memory.DatabaseChatSummaryStore;
+import com.dream.codegenerate.ai.memory.ModelChatSummarizer;
+import com.dream.codegenerate.ai.memory.RedisListChatMemoryStore;
 import com.dream.codegenerate.ai.memory.StatefulChatMemory;
 import com.dream.codegenerate.ai.memory.VectorChatMemoryStore;
+import com.dream.codegenerate.ai.memory.WriteBehindChatMemoryStore;
+import com.dream.codegenerate.config.AiServiceCacheConfig;
+import com.dream.codegenerate.config.ChatMemoryConfig;
 import com.dream.codegenerate.config.TtdChatModelConfig;
 import com.dream.codegenerate.service.ChatMessagesService;
+import cn.hutool.crypto.digest.DigestUtil;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.dream.codegenerate.ai.guardrail.PromptSafetyInputGuardrail;
@@ -13,16 +22,21 @@ import com.dream.codegenerate.exception.ErrorCode;
 import com.dream.codegenerate.model.enums.CodeGenTypeEnum;
 import com.dream.codegenerate.service.ChatHistoryService;
 import com.dream.codegenerate.utils.SpringContextUtil;
-import dev.langchain4j.community.store.memory.chat.redis.RedisChatMemoryStore;
 import dev.langchain4j.data.message.ToolExecutionResultMessage;
 import dev.langchain4j.data.message.UserMessage;
-import dev.langchain4j.http.client.spring.restclient.SpringRestClientBuilder;
 import dev.langchain4j.memory.chat.MessageWindowChatMemory;
+import dev.langchain4j.model.TokenCountEstimator;
 import dev.langchain4j.model.anthropic.AnthropicStreamingChatModel;
 import dev.langchain4j.model.chat.ChatModel;
 import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.openai.OpenAiTokenCountEstimator;
 import dev.langchain4j.service.AiServices;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -32,7 +46,9 @@ import org.springframework.context.annotation.Configuration;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
-import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * AI 服务创建工厂
@@ -44,8 +60,11 @@ public class AiCodeGeneratorServiceFactory {
     @Resource(name = "openAiChatModel")
     private ChatModel chatModel;
 
+    /**
+     * 追加式的 Redis 列表存储，每次只追加新消息
+     */
     @Resource
-    private RedisChatMemoryStore redisChatMemoryStore;
+    private RedisListChatMemoryStore redisListChatMemoryStore;
 
     @Resource
     private TtdChatModelConfig ttdChatModelConfig;
@@ -56,12 +75,39 @@ public class AiCodeGeneratorServiceFactory {
     @Resource
     private ChatHistoryService chatHistoryService;
 
+    @Resource
+    private ChatMemoryConfig chatMemoryConfig;
+
     @Resource
     private ChatMessagesService chatMessagesService;
 
+    @Resource
+    private ModelChatSummarizer modelChatSummarizer;
+
+    @Resource
+    private DatabaseChatSummaryStore databaseChatSummaryStore;
+
+    /**
+     * 对话记忆的 token 估算器，所有记忆共用
+     */
+    private TokenCountEstimator tokenCountEstimator;
+
+    /**
+     * 对话记忆的后台任务：加载更早的历史、超出 token 预算后生成摘要
+     */
+    private final ExecutorService compactionExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * 对话记忆使用的存储：开启后台写入时包装 Redis 列表存储，追加消息不阻塞流式回调
+     */
+    private ChatMemoryStore chatMemoryStore;
+
     @Resource
     private ToolManager toolManager;
 
+    @Resource
+    private ModelClientRegistry modelClientRegistry;
+
     @Value("classpath:prompt/codegen-vue-project-system-prompt.txt")
     private org.springframework.core.io.Resource vueProjectPromptResource;
 
@@ -76,21 +122,103 @@ public class AiCodeGeneratorServiceFactory {
     private  String htmlPromptContent;
     private  String multiFilePromptContent;
 
+    @Resource
+    private AiServiceCacheConfig aiServiceCacheConfig;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
     /**
      * AI 服务实例缓存
      * 缓存策略：
-     * - 最大缓存 1000 个实例
+     * - 按对话记忆中的消息内容大小加权，总量不超过配置的内存预算
      * - 写入后 30 分钟过期
      * - 访问后 10 分钟过期
+     * - 缓存键包含 API Key 的摘要，不同 Key 构建的实例互相隔离
+     */
+    private Cache<String, CachedAiService> serviceCache;
+
+    /**
+     * 缓存的 AI 服务实例及其对话记忆
+     * 使用普通类而不是 record：缓存的 replace 按 equals 比较，AI 服务代理对象的 equals 不可靠，这里只需按引用比较
+     */
+    private static final class CachedAiService {
+
+        private final AiCodeGeneratorService service;
+        private final StatefulChatMemory chatMemory;
+
+        private CachedAiService(AiCodeGeneratorService service, StatefulChatMemory chatMemory) {
+            this.service = service;
+            this.chatMemory = chatMemory;
+        }
+
+        AiCodeGeneratorService service() {
+            return service;
+        }
+
+        StatefulChatMemory chatMemory() {
+            return chatMemory;
+        }
+    }
+
+    @PostConstruct
+    public void initializeServiceCache() {
+        serviceCache = Caffeine.newBuilder()
+                .maximumWeight(aiServiceCacheConfig.getMaxWeight().toBytes())
+                .weigher((String key, CachedAiService value) ->
+                        (int) Math.min(Integer.MAX_VALUE, value.chatMemory().estimatedSizeInBytes()))
+                .expireAfterWrite(aiServiceCacheConfig.getExpireAfterWrite())
+                .expireAfterAccess(aiServiceCacheConfig.getExpireAfterAccess())
+                .recordStats()
+                .removalListener((key, value, cause) -> {
+                    log.debug("AI 服务实例被移除，缓存键: {}, 原因: {}", key, cause);
+                })
+                .build();
+        // 命中、未命中、淘汰次数及条目数
+        CaffeineCacheMetrics.monitor(meterRegistry, serviceCache, "aiCodeGeneratorService");
+        Gauge.builder("codegen.ai.service.cache.weight", serviceCache,
+                        cache -> cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L))
+                .description("AI 服务实例缓存中对话记忆的估算字节数")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void initializeChatMemoryStore() {
+        if (!chatMemoryConfig.isWriteBehindEnabled()) {
+            chatMemoryStore = redisListChatMemoryStore;
+            return;
+        }
+        WriteBehindChatMemoryStore writeBehindStore = new WriteBehindChatMemoryStore(redisListChatMemoryStore,
+                chatMemoryConfig.getWriteBehindFlushDelay(), chatMemoryConfig.getWriteBehindMaxBatch(),
+                chatMemoryConfig.getWriteBehindDrainTimeout());
+        Gauge.builder("codegen.memory.writebehind.pending", writeBehindStore, WriteBehindChatMemoryStore::pendingCount)
+                .description("尚未写入存储的对话记忆操作数")
+                .register(meterRegistry);
+        Gauge.builder("codegen.memory.writebehind.failed", writeBehindStore, WriteBehindChatMemoryStore::failedCount)
+                .description("写入失败被丢弃的对话记忆操作数")
+                .register(meterRegistry);
+        chatMemoryStore = writeBehindStore;
+    }
+
+    /**
+     * 关闭时写完积压的对话记忆（Redisson 客户端在本工厂之后才会被销毁）
      */
-    private final Cache<String, AiCodeGeneratorService> serviceCache = Caffeine.newBuilder()
-            .maximumSize(1000)
-            .expireAfterWrite(Duration.ofMinutes(30))
-            .expireAfterAccess(Duration.ofMinutes(10))
-            .removalListener((key, value, cause) -> {
-                log.debug("AI 服务实例被移除，缓存键: {}, 原因: {}", key, cause);
-            })
-            .build();
+    @PreDestroy
+    public void drainChatMemoryStore() {
+        if (chatMemoryStore instanceof WriteBehindChatMemoryStore writeBehindStore) {
+            writeBehindStore.close();
+        }
+        compactionExecutor.shutdown();
+    }
+
+    @PostConstruct
+    public void initializeTokenCountEstimator() {
+        if (chatMemoryConfig.getTokenBudget() > 0) {
+            tokenCountEstimator = new OpenAiTokenCountEstimator(chatMemoryConfig.getTokenizerModelName());
+        }
+    }
+
     @PostConstruct
     public void initializePrompts() {
         log.info("开始加载 AI System Prompts...");
@@ -208,19 +336,23 @@ public class AiCodeGeneratorServiceFactory {
       * @return 统一的 AiCodeGeneratorService 实例
       */
     public AiCodeGeneratorService getAiCodeGeneratorService(long appId, UserMessage userMessage, CodeGenTypeEnum codeGenType, String apiKey) {
-        String cacheKey = buildCacheKey(appId, codeGenType);
-        return serviceCache.get(cacheKey, key -> createAiService(appId,userMessage, codeGenType,apiKey));
+        String cacheKey = buildCacheKey(appId, codeGenType, apiKey);
+        CachedAiService cached = serviceCache.get(cacheKey, key -> createAiService(key, appId, userMessage, codeGenType, apiKey));
+        // 在缓存锁之外加载最近的历史，避免数据库 I/O 阻塞其他 appId 的服务创建
+        cached.chatMemory().hydrate();
+        return cached.service();
     }
 
     /**
      * 创建 AI 服务实例的核心方法
      *
+     * @param cacheKey    缓存键
      * @param appId       应用 id
      * @param codeGenType 生成类型
      * @param apiKey
-     * @return AiCodeGeneratorService 实例
+     * @return 缓存的 AI 服务实例
      */
-    private AiCodeGeneratorService createAiService(long appId, UserMessage userMessage, CodeGenTypeEnum codeGenType, String apiKey) {
+    private CachedAiService createAiService(String cacheKey, long appId, UserMessage userMessage, CodeGenTypeEnum codeGenType, String apiKey) {
         if (appId==0){
             appId=165456418;
         }
@@ -234,12 +366,25 @@ public class AiCodeGeneratorServiceFactory {
 ////                .chatMemoryStore(redisChatMemoryStore)
 //                .maxMessages(1000)
 //                .build();
+        long memoryAppId = appId;
         StatefulChatMemory chatMemory = StatefulChatMemory.builder()
                 .id(appId)
-                .chatMemoryStore(redisChatMemoryStore)
+                .chatMemoryStore(chatMemoryStore)
 //                .messages(chatMessagesService.loadChatHistory(appId, userMessage, 1000))
+                // 历史在服务创建后再加载：先加载最近窗口，更早的历史在首次读取记忆后于后台按页加载，且不回写 Redis
+                .historyLoader((beforeId, fromId, limit) -> chatHistoryService.loadChatHistoryPage(memoryAppId, beforeId, fromId, limit))
+                .recentWindow(chatMemoryConfig.getRecentWindow())
+                .pageSize(chatMemoryConfig.getPageSize())
+                .maxHistory(chatMemoryConfig.getMaxHistory())
+                .historyExecutor(compactionExecutor)
+                // 超出 token 预算后在后台把最早的对话压缩为摘要，摘要持久化到数据库
+                .tokenBudget(chatMemoryConfig.getTokenBudget())
+                .compactionTarget(chatMemoryConfig.getCompactionTarget())
+                .tokenCountEstimator(tokenCountEstimator)
+                .summarizer(modelChatSummarizer.forApiKey(apiKey))
+                .summaryStore(databaseChatSummaryStore)
+                .compactionExecutor(compactionExecutor)
                 .build();
-        chatHistoryService.loadChatHistoryToMemory(appId, chatMemory, 1000);
 
 
         // 2. 根据任务类型选择不同的模型和 Prompt
@@ -266,7 +411,7 @@ public class AiCodeGeneratorServiceFactory {
         }
 
         // 4. 构建统一的 AI 服务
-        return AiServices.builder(AiCodeGeneratorService.class)
+        AiCodeGeneratorService aiCodeGeneratorService = AiServices.builder(AiCodeGeneratorService.class)
 //                .chatModel(chatModel)
                 .streamingChatModel(getStreamingChatModel(apiKey)) // <--- 使用动态选择的模型
                 .chatMemoryProvider(memoryId -> chatMemory)
@@ -278,6 +423,10 @@ public class AiCodeGeneratorServiceFactory {
                 )
                 .maxSequentialToolsInvocations(1000)
                 .build();
+        CachedAiService cachedAiService = new CachedAiService(aiCodeGeneratorService, chatMemory);
+        // 对话记忆增长后重新计算缓存权重（replace 同一实例即可触发），实例已被淘汰时不做任何事
+        chatMemory.onSizeChanged(() -> serviceCache.asMap().replace(cacheKey, cachedAiService, cachedAiService));
+        return cachedAiService;
     }
 
     /**
@@ -291,14 +440,16 @@ public class AiCodeGeneratorServiceFactory {
     }
 
     /**
-     * 构造缓存键
+     * 构造缓存键，包含 API Key 的摘要而不是 Key 本身
      *
      * @param appId
      * @param codeGenType
+     * @param apiKey
      * @return
      */
-    private String buildCacheKey(long appId, CodeGenTypeEnum codeGenType) {
-        return appId + "_" + codeGenType.getValue();
+    private String buildCacheKey(long appId, CodeGenTypeEnum codeGenType, String apiKey) {
+        String apiKeyDigest = apiKey == null ? "none" : DigestUtil.sha256Hex(apiKey).substring(0, 16);
+        return appId + "_" + codeGenType.getValue() + "_" + apiKeyDigest;
     }
 
     /**
@@ -306,17 +457,22 @@ public class AiCodeGeneratorServiceFactory {
      */
 
     private StreamingChatModel getStreamingChatModel(String apiKey) {
-        return AnthropicStreamingChatModel.builder()
-                .timeout(Duration.ofMinutes(50))
-                .httpClientBuilder(new SpringRestClientBuilder())
-                .cacheSystemMessages(true)
-                .apiKey(apiKey)
-                .baseUrl(ttdChatModelConfig.getBaseUrl())
-                .modelName(ttdChatModelConfig.getModelName())
-                .maxTokens(ttdChatModelConfig.getMaxTokens())
-                .temperature(ttdChatModelConfig.getTemperature())
-                .logRequests(ttdChatModelConfig.getLogRequests())
-                .logResponses(ttdChatModelConfig.getLogResponses())
-                .build();
+        List<String> endpoints = ttdChatModelConfig.endpoints();
+        ModelClientKey key = new ModelClientKey("anthropic-streaming", String.join(",", endpoints),
+                apiKey, ttdChatModelConfig.getModelName());
+        // 同一 API Key 的客户端在服务实例之间复用，并共享底层连接池；配置了多个端点时按首 token 延迟选择并对冲
+        return modelClientRegistry.get(key, ttdChatModelConfig.getTransport(), httpClientBuilder ->
+                modelClientRegistry.streamingChatModel(endpoints, endpoint -> AnthropicStreamingChatModel.builder()
+                        .timeout(ttdChatModelConfig.getTimeout())
+                        .httpClientBuilder(httpClientBuilder)
+                        .cacheSystemMessages(true)
+                        .apiKey(apiKey)
+                        .baseUrl(endpoint)
+                        .modelName(ttdChatModelConfig.getModelName())
+                        .maxTokens(ttdChatModelConfig.getMaxTokens())
+                        .temperature(ttdChatModelConfig.getTemperature())
+                        .logRequests(ttdChatModelConfig.getLogRequests())
+                        .logResponses(ttdChatModelConfig.getLogResponses())
+                        .build()));
     }
 }
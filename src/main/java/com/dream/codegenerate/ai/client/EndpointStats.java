@@ -0,0 +1,94 @@
+package com.dream.codegenerate.ai.client;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * 单个模型端点的首 token 延迟与健康状态统计，同一 baseUrl 的所有模型客户端共享一份
+ * <p>
+ * 首 token 延迟（TTFT）用指数加权移动平均（EWMA）衡量端点当前的快慢，用于选择端点；
+ * 最近若干次的样本用于估算 p95，作为对冲请求的等待预算。
+ * 连续失败达到阈值后，端点在一段时间内被视为不健康，期间只在没有健康端点时使用。
+ */
+public class EndpointStats {
+
+    /**
+     * EWMA 的平滑系数，越大越偏向最近的样本
+     */
+    private static final double ALPHA = 0.2;
+
+    private final String endpoint;
+    private final long[] samples;
+    private int sampleCount;
+    private int nextSample;
+    private double ewmaMillis = -1;
+    private int consecutiveFailures;
+    private long unhealthyUntilNanos;
+
+    public EndpointStats(String endpoint, int window) {
+        this.endpoint = endpoint;
+        this.samples = new long[window];
+    }
+
+    public String endpoint() {
+        return endpoint;
+    }
+
+    /**
+     * 记录一次首 token 延迟，同时视为端点恢复正常
+     */
+    public synchronized void recordFirstToken(Duration latency) {
+        recordLatency(latency);
+        consecutiveFailures = 0;
+        unhealthyUntilNanos = 0;
+    }
+
+    /**
+     * 记录一次延迟样本（如对冲中落败被取消的请求，其已等待的时长是真实延迟的下界），不影响健康状态
+     */
+    public synchronized void recordLatency(Duration latency) {
+        long millis = latency.toMillis();
+        ewmaMillis = ewmaMillis < 0 ? millis : ALPHA * millis + (1 - ALPHA) * ewmaMillis;
+        samples[nextSample] = millis;
+        nextSample = (nextSample + 1) % samples.length;
+        sampleCount = Math.min(sampleCount + 1, samples.length);
+    }
+
+    /**
+     * 记录一次失败，连续失败达到阈值后在 cooldown 内标记为不健康
+     */
+    public synchronized void recordFailure(int failureThreshold, Duration cooldown) {
+        consecutiveFailures++;
+        if (consecutiveFailures >= failureThreshold) {
+            unhealthyUntilNanos = System.nanoTime() + cooldown.toNanos();
+        }
+    }
+
+    public synchronized boolean isHealthy() {
+        return unhealthyUntilNanos == 0 || System.nanoTime() - unhealthyUntilNanos >= 0;
+    }
+
+    /**
+     * 首 token 延迟的 EWMA（毫秒），还没有样本时为 0，使新端点会被优先尝试
+     */
+    public synchronized double ewmaMillis() {
+        return Math.max(ewmaMillis, 0);
+    }
+
+    public synchronized int sampleCount() {
+        return sampleCount;
+    }
+
+    /**
+     * 最近样本的 p95（毫秒），没有样本时返回 -1
+     */
+    public synchronized long p95Millis() {
+        if (sampleCount == 0) {
+            return -1;
+        }
+        long[] sorted = Arrays.copyOf(samples, sampleCount);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(sampleCount * 0.95) - 1;
+        return sorted[Math.max(index, 0)];
+    }
+}
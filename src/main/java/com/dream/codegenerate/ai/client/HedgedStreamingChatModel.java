@@ -0,0 +1,320 @@
+package com.dream.codegenerate.ai.client;
+
+import com.dream.codegenerate.config.ModelClientConfig;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.model.ModelProvider;
+import dev.langchain4j.model.chat.Capability;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.listener.ChatModelListener;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.ChatRequestParameters;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 由多个等价端点组成的流式模型
+ * <p>
+ * 1. 选择：每次调用按首 token 延迟的 EWMA 从快到慢排列健康端点，优先使用最快的端点；
+ * 2. 对冲：首 token 在等待预算（该端点 TTFT 的 p95，样本不足时为默认值）内未到达时，向下一个健康端点发起同样的请求，
+ *    先产出首个事件的请求胜出，其余请求被取消（见 {@link StreamCancellation}），落败请求的事件不会转发；
+ * 3. 故障转移：请求在产出首个事件前失败时，立即改用下一个端点，所有端点都失败后才把错误交给调用方。
+ * 首个事件之后的错误直接交给调用方，不会重试，避免重复输出。
+ * 在调用方的 {@link StreamCancellation} 中发起时，调用方取消会同时取消所有端点请求。
+ */
+@Slf4j
+public class HedgedStreamingChatModel implements StreamingChatModel {
+
+    private final List<Endpoint> endpoints;
+    private final ModelClientConfig.Hedging hedging;
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * @param endpoints 等价的端点，至少一个
+     * @param hedging   对冲与健康检查配置
+     * @param scheduler 用于对冲计时的调度器
+     */
+    public HedgedStreamingChatModel(List<Endpoint> endpoints, ModelClientConfig.Hedging hedging,
+                                    ScheduledExecutorService scheduler) {
+        if (endpoints.isEmpty()) {
+            throw new IllegalArgumentException("at least one endpoint is required");
+        }
+        this.endpoints = List.copyOf(endpoints);
+        this.hedging = hedging;
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public void chat(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+        new HedgedCall(chatRequest, handler, rankEndpoints(), StreamCancellation.current()).start();
+    }
+
+    /**
+     * 健康端点按 EWMA 从快到慢在前，不健康的端点排在最后，仅用于故障转移
+     */
+    List<Endpoint> rankEndpoints() {
+        List<Endpoint> ranked = new ArrayList<>(endpoints);
+        ranked.sort(Comparator.comparing((Endpoint endpoint) -> !endpoint.stats().isHealthy())
+                .thenComparingDouble(endpoint -> endpoint.stats().ewmaMillis()));
+        return ranked;
+    }
+
+    /**
+     * 对冲等待时间：样本足够时取 p95，否则取默认值，并限制在上下限之间
+     */
+    long hedgeDelayMillis(EndpointStats stats) {
+        long delay = stats.sampleCount() >= hedging.getMinSamples()
+                ? stats.p95Millis()
+                : hedging.getDefaultDelay().toMillis();
+        return Math.clamp(delay, hedging.getMinDelay().toMillis(), hedging.getMaxDelay().toMillis());
+    }
+
+    @Override
+    public ChatRequestParameters defaultRequestParameters() {
+        return endpoints.getFirst().model().defaultRequestParameters();
+    }
+
+    @Override
+    public List<ChatModelListener> listeners() {
+        return endpoints.getFirst().model().listeners();
+    }
+
+    @Override
+    public ModelProvider provider() {
+        return endpoints.getFirst().model().provider();
+    }
+
+    @Override
+    public Set<Capability> supportedCapabilities() {
+        return endpoints.getFirst().model().supportedCapabilities();
+    }
+
+    /**
+     * 一个端点：该端点的模型客户端及其共享的统计
+     */
+    public record Endpoint(StreamingChatModel model, EndpointStats stats) {
+    }
+
+    /**
+     * 一次模型调用，可能包含多个并发的端点请求
+     */
+    private final class HedgedCall {
+
+        private final ChatRequest chatRequest;
+        private final StreamingChatResponseHandler handler;
+        private final List<Endpoint> candidates;
+        private final StreamCancellation parent;
+        private final List<Attempt> attempts = new ArrayList<>(2);
+        private volatile Attempt winner;
+        private boolean finished;
+        private ScheduledFuture<?> hedgeTimer;
+
+        private HedgedCall(ChatRequest chatRequest, StreamingChatResponseHandler handler, List<Endpoint> candidates,
+                           StreamCancellation parent) {
+            this.chatRequest = chatRequest;
+            this.handler = handler;
+            this.candidates = candidates;
+            this.parent = parent;
+        }
+
+        void start() {
+            if (parent != null) {
+                // 每个端点请求绑定各自的令牌，调用方的令牌需要单独转发
+                parent.onCancel(this::cancel);
+            }
+            Endpoint primary = candidates.getFirst();
+            if (hedging.isEnabled() && candidates.size() > 1 && candidates.get(1).stats().isHealthy()) {
+                long delay = hedgeDelayMillis(primary.stats());
+                synchronized (this) {
+                    hedgeTimer = scheduler.schedule(this::hedge, delay, TimeUnit.MILLISECONDS);
+                }
+            }
+            launchNext(false);
+        }
+
+        private void hedge() {
+            log.info("首 token 超出等待预算，发起对冲请求");
+            launchNext(true);
+        }
+
+        /**
+         * 向下一个未尝试的端点发起请求
+         *
+         * @param healthyOnly 是否只使用健康端点（对冲时不向不健康的端点发请求）
+         */
+        private void launchNext(boolean healthyOnly) {
+            Attempt attempt;
+            synchronized (this) {
+                if (winner != null || finished || attempts.size() >= candidates.size()) {
+                    return;
+                }
+                Endpoint endpoint = candidates.get(attempts.size());
+                if (healthyOnly && !endpoint.stats().isHealthy()) {
+                    return;
+                }
+                attempt = new Attempt(endpoint);
+                attempts.add(attempt);
+            }
+            attempt.start();
+        }
+
+        /**
+         * 请求产出首个事件时争夺胜出权，胜出后取消其他请求
+         *
+         * @return 该请求的事件是否应转发给调用方
+         */
+        private boolean claim(Attempt attempt) {
+            Attempt current = winner;
+            if (current != null) {
+                return current == attempt;
+            }
+            List<Attempt> losers;
+            synchronized (this) {
+                if (winner != null) {
+                    return winner == attempt;
+                }
+                if (finished || attempt.failed) {
+                    return false;
+                }
+                winner = attempt;
+                cancelHedgeTimer();
+                losers = attempts.stream().filter(other -> other != attempt && !other.failed).toList();
+            }
+            attempt.endpoint.stats().recordFirstToken(attempt.elapsed());
+            for (Attempt loser : losers) {
+                loser.cancellation.cancel();
+                // 落败请求已等待的时长是其首 token 延迟的下界
+                loser.endpoint.stats().recordLatency(loser.elapsed());
+            }
+            if (attempts.size() > 1) {
+                log.info("对冲请求结束，胜出端点: {}", attempt.endpoint.stats().endpoint());
+            }
+            return true;
+        }
+
+        private void failed(Attempt attempt, Throwable error) {
+            boolean forward = false;
+            boolean failover = false;
+            synchronized (this) {
+                if (winner == attempt) {
+                    finished = true;
+                    forward = true;
+                } else if (winner != null || finished) {
+                    // 落败请求的错误直接忽略
+                    return;
+                } else {
+                    attempt.failed = true;
+                    boolean othersRunning = attempts.stream().anyMatch(other -> !other.failed);
+                    if (!othersRunning) {
+                        if (attempts.size() < candidates.size()) {
+                            failover = true;
+                        } else {
+                            finished = true;
+                            forward = true;
+                        }
+                        cancelHedgeTimer();
+                    }
+                }
+            }
+            attempt.endpoint.stats().recordFailure(hedging.getFailureThreshold(), hedging.getUnhealthyCooldown());
+            if (failover) {
+                log.warn("模型端点 {} 请求失败，切换到下一个端点: {}", attempt.endpoint.stats().endpoint(), error.getMessage());
+                launchNext(false);
+            }
+            if (forward) {
+                handler.onError(error);
+            }
+        }
+
+        /**
+         * 调用方取消：不再发起新的请求，并取消所有进行中的请求
+         */
+        private void cancel() {
+            List<Attempt> running;
+            synchronized (this) {
+                finished = true;
+                cancelHedgeTimer();
+                running = List.copyOf(attempts);
+            }
+            running.forEach(attempt -> attempt.cancellation.cancel());
+        }
+
+        private void cancelHedgeTimer() {
+            if (hedgeTimer != null) {
+                hedgeTimer.cancel(false);
+            }
+        }
+
+        /**
+         * 发往单个端点的请求
+         */
+        private final class Attempt implements StreamingChatResponseHandler {
+
+            private final Endpoint endpoint;
+            private final StreamCancellation cancellation = new StreamCancellation();
+            private final long startNanos = System.nanoTime();
+            /**
+             * 由 HedgedCall 的锁保护
+             */
+            private boolean failed;
+
+            private Attempt(Endpoint endpoint) {
+                this.endpoint = endpoint;
+            }
+
+            void start() {
+                try {
+                    StreamCancellation.runWith(cancellation, () -> endpoint.model().chat(chatRequest, this));
+                } catch (Exception e) {
+                    onError(e);
+                }
+            }
+
+            Duration elapsed() {
+                return Duration.ofNanos(System.nanoTime() - startNanos);
+            }
+
+            @Override
+            public void onPartialResponse(String partialResponse) {
+                if (claim(this)) {
+                    handler.onPartialResponse(partialResponse);
+                }
+            }
+
+            @Override
+            public void onPartialToolExecutionRequest(int index, ToolExecutionRequest partialToolExecutionRequest) {
+                if (claim(this)) {
+                    handler.onPartialToolExecutionRequest(index, partialToolExecutionRequest);
+                }
+            }
+
+            @Override
+            public void onCompleteToolExecutionRequest(int index, ToolExecutionRequest completeToolExecutionRequest) {
+                if (claim(this)) {
+                    handler.onCompleteToolExecutionRequest(index, completeToolExecutionRequest);
+                }
+            }
+
+            @Override
+            public void onCompleteResponse(ChatResponse completeResponse) {
+                if (claim(this)) {
+                    handler.onCompleteResponse(completeResponse);
+                }
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                failed(this, error);
+            }
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.dream.codegenerate.ai.client;
+
+/**
+ * 模型客户端的缓存键
+ *
+ * @param type      客户端类型，如 anthropic-streaming、openai-chat
+ * @param baseUrl   服务地址
+ * @param apiKey    API Key
+ * @param modelName 模型名称
+ */
+public record ModelClientKey(String type, String baseUrl, String apiKey, String modelName) {
+
+    /**
+     * 日志中只输出 API Key 的末尾几位
+     */
+    @Override
+    public String toString() {
+        String maskedKey = apiKey == null || apiKey.length() <= 4 ? "****" : "****" + apiKey.substring(apiKey.length() - 4);
+        return type + "[" + baseUrl + ", " + modelName + ", " + maskedKey + "]";
+    }
+}
@@ -0,0 +1,169 @@
+package com.dream.codegenerate.ai.client;
+
+import com.dream.codegenerate.config.ModelClientConfig;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import dev.langchain4j.http.client.HttpClientBuilder;
+import dev.langchain4j.http.client.spring.restclient.SpringRestClientBuilder;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.net.http.HttpClient;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Function;
+
+/**
+ * 模型客户端注册表
+ * 1. 按 (类型, baseUrl, apiKey, modelName) 缓存模型客户端，数量有上限，空闲一段时间后淘汰；
+ * 2. 所有客户端共用一个支持 HTTP/2 的 JDK HttpClient，连接（含 TLS 会话）在客户端之间复用，
+ *    冷启动的应用不必再为每次生成重新建立连接；流式响应的监听回调（含工具执行）在虚拟线程上执行，不占用连接池的线程；
+ * 3. 传输方式按模型配置选择，见 {@link ModelTransport}；
+ * 4. 配置了多个等价端点的流式模型包装为 {@link HedgedStreamingChatModel}，端点的延迟统计按 baseUrl 全局共享。
+ */
+@Slf4j
+@Component
+public class ModelClientRegistry {
+
+    private static final String KEEP_ALIVE_PROPERTY = "jdk.httpclient.keepalive.timeout";
+
+    @Resource
+    private ModelClientConfig modelClientConfig;
+
+    private HttpClient sharedHttpClient;
+
+    private Cache<ModelClientKey, Object> clients;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private final Map<String, EndpointStats> endpointStats = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService hedgingScheduler;
+
+    private ScheduledExecutorService streamTimeoutScheduler;
+
+    /**
+     * 执行流式响应监听回调的虚拟线程，每个流在其上串行执行
+     */
+    private final ExecutorService listenerExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @PostConstruct
+    public void init() {
+        // 连接池的保活时长只能通过系统属性设置，且需在第一个 JDK HttpClient 创建前生效
+        if (System.getProperty(KEEP_ALIVE_PROPERTY) == null) {
+            System.setProperty(KEEP_ALIVE_PROPERTY, String.valueOf(modelClientConfig.getKeepAliveTimeout().toSeconds()));
+        }
+        sharedHttpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(modelClientConfig.getConnectTimeout())
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+        clients = Caffeine.newBuilder()
+                .maximumSize(modelClientConfig.getMaxClients())
+                .expireAfterAccess(modelClientConfig.getIdleTimeout())
+                .removalListener((key, value, cause) -> log.debug("模型客户端被移除: {}, 原因: {}", key, cause))
+                .build();
+        hedgingScheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform()
+                .name("model-hedging")
+                .daemon(true)
+                .factory());
+        streamTimeoutScheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform()
+                .name("model-stream-timeout")
+                .daemon(true)
+                .factory());
+    }
+
+    /**
+     * 获取模型客户端，不存在时使用共享连接池创建
+     *
+     * @param key       缓存键
+     * @param transport 客户端使用的 HTTP 传输方式
+     * @param factory   客户端创建方法，参数为对应传输方式的 HttpClientBuilder
+     * @return 模型客户端
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(ModelClientKey key, ModelTransport transport, Function<HttpClientBuilder, T> factory) {
+        return (T) clients.get(key, k -> {
+            log.info("创建模型客户端: {}, 传输方式: {}", k, transport);
+            return factory.apply(httpClientBuilder(transport));
+        });
+    }
+
+    /**
+     * 获取指定传输方式的 HttpClientBuilder，JDK_ASYNC 使用共享连接池
+     */
+    public HttpClientBuilder httpClientBuilder(ModelTransport transport) {
+        return switch (transport) {
+            case SPRING_REST -> new SpringRestClientBuilder();
+            case JDK_ASYNC -> new PooledHttpClientBuilder(sharedHttpClient, listenerExecutor, streamTimeoutScheduler,
+                    modelClientConfig.getStreamIdleTimeout());
+        };
+    }
+
+    /**
+     * 创建流式模型：只有一个端点时直接返回该端点的模型，多个端点时按延迟选择端点并对冲
+     *
+     * @param baseUrls 等价端点的 baseUrl
+     * @param factory  按 baseUrl 创建单个端点模型的方法
+     */
+    public StreamingChatModel streamingChatModel(List<String> baseUrls, Function<String, StreamingChatModel> factory) {
+        if (baseUrls.size() == 1) {
+            return factory.apply(baseUrls.getFirst());
+        }
+        List<HedgedStreamingChatModel.Endpoint> endpoints = baseUrls.stream()
+                .map(baseUrl -> new HedgedStreamingChatModel.Endpoint(factory.apply(baseUrl), endpointStats(baseUrl)))
+                .toList();
+        return new HedgedStreamingChatModel(endpoints, modelClientConfig.getHedging(), hedgingScheduler);
+    }
+
+    /**
+     * 合并主端点和备用端点，主端点在前，去重
+     */
+    public static List<String> endpoints(String baseUrl, List<String> baseUrls) {
+        Set<String> endpoints = new LinkedHashSet<>();
+        if (baseUrl != null) {
+            endpoints.add(baseUrl);
+        }
+        if (baseUrls != null) {
+            endpoints.addAll(baseUrls);
+        }
+        return List.copyOf(endpoints);
+    }
+
+    private EndpointStats endpointStats(String baseUrl) {
+        return endpointStats.computeIfAbsent(baseUrl, url -> {
+            EndpointStats stats = new EndpointStats(url, modelClientConfig.getHedging().getSampleWindow());
+            Gauge.builder("codegen.model.endpoint.ttft.ewma", stats, EndpointStats::ewmaMillis)
+                    .description("模型端点首 token 延迟的指数加权移动平均（毫秒）")
+                    .tag("endpoint", url)
+                    .register(meterRegistry);
+            Gauge.builder("codegen.model.endpoint.ttft.p95", stats, EndpointStats::p95Millis)
+                    .description("模型端点最近首 token 延迟的 p95（毫秒）")
+                    .tag("endpoint", url)
+                    .register(meterRegistry);
+            return stats;
+        });
+    }
+
+    @PreDestroy
+    public void destroy() {
+        hedgingScheduler.shutdownNow();
+        streamTimeoutScheduler.shutdownNow();
+        listenerExecutor.shutdownNow();
+        clients.invalidateAll();
+        sharedHttpClient.close();
+    }
+}
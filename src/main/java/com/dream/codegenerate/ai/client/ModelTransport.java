@@ -0,0 +1,17 @@
+package com.dream.codegenerate.ai.client;
+
+/**
+ * 模型客户端使用的 HTTP 传输方式
+ */
+public enum ModelTransport {
+
+    /**
+     * Spring RestClient：阻塞式读取，每个进行中的流式响应占用一个线程
+     */
+    SPRING_REST,
+
+    /**
+     * 共享连接池的 JDK HttpClient：流式响应以非阻塞方式逐行推送，等待模型输出期间不占用线程
+     */
+    JDK_ASYNC
+}
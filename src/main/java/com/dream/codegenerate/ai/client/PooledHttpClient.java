@@ -0,0 +1,177 @@
+package com.dream.codegenerate.ai.client;
+
+import dev.langchain4j.exception.HttpException;
+import dev.langchain4j.http.client.HttpClient;
+import dev.langchain4j.http.client.HttpRequest;
+import dev.langchain4j.http.client.SuccessfulHttpResponse;
+import dev.langchain4j.http.client.sse.DefaultServerSentEventParser;
+import dev.langchain4j.http.client.sse.ServerSentEventListener;
+import dev.langchain4j.http.client.sse.ServerSentEventParser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 使用共享 JDK HttpClient 发送请求的 langchain4j HttpClient
+ * 流式响应通过 {@link ServerSentEventSubscriber} 非阻塞地逐行处理，并发的流式生成数量不再受线程数限制。
+ * readTimeout 作用于单个请求：JDK 客户端中它限制的是收到响应头之前的等待时间；
+ * 流式响应体由 streamIdleTimeout 限制两行数据之间的等待时间，响应停滞时中止请求，不会无限期挂起。
+ * 在 {@link StreamCancellation#runWith} 中发起的流式请求可以被取消，取消后不再回调监听方。
+ * 流式请求的监听回调按请求串行地在 listenerExecutor（虚拟线程）上执行，不占用 HttpClient 的线程。
+ */
+public class PooledHttpClient implements HttpClient {
+
+    private final java.net.http.HttpClient delegate;
+    private final Duration readTimeout;
+    private final Executor listenerExecutor;
+    private final ScheduledExecutorService scheduler;
+    private final Duration streamIdleTimeout;
+
+    PooledHttpClient(java.net.http.HttpClient delegate, Duration readTimeout, Executor listenerExecutor,
+                     ScheduledExecutorService scheduler, Duration streamIdleTimeout) {
+        this.delegate = delegate;
+        this.readTimeout = readTimeout;
+        this.listenerExecutor = listenerExecutor;
+        this.scheduler = scheduler;
+        this.streamIdleTimeout = streamIdleTimeout;
+    }
+
+    @Override
+    public SuccessfulHttpResponse execute(HttpRequest request) throws HttpException {
+        try {
+            HttpResponse<String> response = delegate.send(toJdkRequest(request), HttpResponse.BodyHandlers.ofString());
+            if (!isSuccessful(response.statusCode())) {
+                throw new HttpException(response.statusCode(), response.body());
+            }
+            return fromJdkResponse(response, response.body());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("模型请求被中断", e);
+        }
+    }
+
+    /**
+     * 流式请求：以非阻塞方式逐行接收响应体，等待模型输出期间不占用线程
+     */
+    @Override
+    public void execute(HttpRequest request, ServerSentEventListener listener) {
+        AtomicBoolean terminated = new AtomicBoolean();
+        StreamCancellation cancellation = StreamCancellation.current();
+        Executor delivery = new SerialExecutor(listenerExecutor);
+        HttpResponse.BodyHandler<Void> bodyHandler = responseInfo -> {
+            if (!isSuccessful(responseInfo.statusCode())) {
+                return HttpResponse.BodySubscribers.mapping(HttpResponse.BodySubscribers.ofString(StandardCharsets.UTF_8), body -> {
+                    if (terminated.compareAndSet(false, true)) {
+                        delivery.execute(() -> listener.onError(new HttpException(responseInfo.statusCode(), body)));
+                    }
+                    return null;
+                });
+            }
+            SuccessfulHttpResponse openResponse = SuccessfulHttpResponse.builder()
+                    .statusCode(responseInfo.statusCode())
+                    .headers(responseInfo.headers().map())
+                    .build();
+            delivery.execute(() -> listener.onOpen(openResponse));
+            return HttpResponse.BodySubscribers.fromLineSubscriber(
+                    new ServerSentEventSubscriber(listener, terminated, cancellation, delivery, scheduler, streamIdleTimeout),
+                    subscriber -> null, StandardCharsets.UTF_8, null);
+        };
+        CompletableFuture<HttpResponse<Void>> future = delegate.sendAsync(toJdkRequest(request), bodyHandler);
+        if (cancellation != null) {
+            // 收到响应头之前取消：中止请求，且不再回调 onError
+            cancellation.onCancel(() -> {
+                terminated.set(true);
+                future.cancel(true);
+            });
+        }
+        future.whenComplete((response, throwable) -> {
+            if (throwable != null && terminated.compareAndSet(false, true)) {
+                Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                        ? throwable.getCause() : throwable;
+                delivery.execute(() -> listener.onError(cause));
+            }
+        });
+    }
+
+    /**
+     * 指定解析器的流式请求：默认解析器走非阻塞路径，自定义解析器只能基于 InputStream 阻塞读取，读取在 listenerExecutor 上进行
+     */
+    @Override
+    public void execute(HttpRequest request, ServerSentEventParser parser, ServerSentEventListener listener) {
+        if (parser == null || parser.getClass() == DefaultServerSentEventParser.class) {
+            execute(request, listener);
+            return;
+        }
+        delegate.sendAsync(toJdkRequest(request), HttpResponse.BodyHandlers.ofInputStream())
+                .thenAcceptAsync(response -> {
+                    try (InputStream body = response.body()) {
+                        if (!isSuccessful(response.statusCode())) {
+                            String errorBody = new String(body.readAllBytes(), StandardCharsets.UTF_8);
+                            ignoringExceptions(() -> listener.onError(new HttpException(response.statusCode(), errorBody)));
+                            return;
+                        }
+                        ignoringExceptions(() -> listener.onOpen(fromJdkResponse(response, null)));
+                        parser.parse(body, listener);
+                        ignoringExceptions(listener::onClose);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, listenerExecutor)
+                .exceptionally(throwable -> {
+                    Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                            ? throwable.getCause() : throwable;
+                    ignoringExceptions(() -> listener.onError(cause));
+                    return null;
+                });
+    }
+
+    private java.net.http.HttpRequest toJdkRequest(HttpRequest request) {
+        java.net.http.HttpRequest.Builder builder = java.net.http.HttpRequest.newBuilder()
+                .uri(URI.create(request.url()));
+        request.headers().forEach((name, values) -> {
+            if (values != null) {
+                values.forEach(value -> builder.header(name, value));
+            }
+        });
+        java.net.http.HttpRequest.BodyPublisher bodyPublisher = request.body() != null
+                ? java.net.http.HttpRequest.BodyPublishers.ofString(request.body())
+                : java.net.http.HttpRequest.BodyPublishers.noBody();
+        builder.method(request.method().name(), bodyPublisher);
+        if (readTimeout != null) {
+            builder.timeout(readTimeout);
+        }
+        return builder.build();
+    }
+
+    private static boolean isSuccessful(int statusCode) {
+        return statusCode >= 200 && statusCode < 300;
+    }
+
+    private static SuccessfulHttpResponse fromJdkResponse(HttpResponse<?> response, String body) {
+        return SuccessfulHttpResponse.builder()
+                .statusCode(response.statusCode())
+                .headers(response.headers().map())
+                .body(body)
+                .build();
+    }
+
+    static void ignoringExceptions(Runnable runnable) {
+        try {
+            runnable.run();
+        } catch (Exception ignored) {
+            // 回调中的异常不应影响连接的处理
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.dream.codegenerate.ai.client;
+
+import dev.langchain4j.http.client.HttpClient;
+import dev.langchain4j.http.client.HttpClientBuilder;
+
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * 基于共享 JDK HttpClient 的 langchain4j HttpClientBuilder
+ * 每次 build 只创建一层轻量包装，底层连接池（HTTP/2 多路复用、keep-alive）由所有模型客户端共用。
+ * 连接超时在连接池级别统一配置，这里设置的 connectTimeout 仅作记录。
+ * readTimeout 为等待响应头的超时，流式响应体的空闲超时由注册表统一配置。
+ */
+public class PooledHttpClientBuilder implements HttpClientBuilder {
+
+    private final java.net.http.HttpClient sharedClient;
+    private final Executor listenerExecutor;
+    private final ScheduledExecutorService scheduler;
+    private final Duration streamIdleTimeout;
+    private Duration connectTimeout;
+    private Duration readTimeout;
+
+    /**
+     * @param sharedClient      共享的 JDK HttpClient
+     * @param listenerExecutor  执行流式响应监听回调的执行器
+     * @param scheduler         流式响应空闲超时检查使用的调度器
+     * @param streamIdleTimeout 流式响应两行数据之间的最长等待时间，为 0 时不限制
+     */
+    public PooledHttpClientBuilder(java.net.http.HttpClient sharedClient, Executor listenerExecutor,
+                                   ScheduledExecutorService scheduler, Duration streamIdleTimeout) {
+        this.sharedClient = sharedClient;
+        this.listenerExecutor = listenerExecutor;
+        this.scheduler = scheduler;
+        this.streamIdleTimeout = streamIdleTimeout;
+    }
+
+    @Override
+    public Duration connectTimeout() {
+        return connectTimeout;
+    }
+
+    @Override
+    public PooledHttpClientBuilder connectTimeout(Duration connectTimeout) {
+        this.connectTimeout = connectTimeout;
+        return this;
+    }
+
+    @Override
+    public Duration readTimeout() {
+        return readTimeout;
+    }
+
+    @Override
+    public PooledHttpClientBuilder readTimeout(Duration readTimeout) {
+        this.readTimeout = readTimeout;
+        return this;
+    }
+
+    @Override
+    public HttpClient build() {
+        return new PooledHttpClient(sharedClient, readTimeout, listenerExecutor, scheduler, streamIdleTimeout);
+    }
+}
@@ -0,0 +1,146 @@
+package com.dream.codegenerate.ai.client;
+
+import dev.langchain4j.model.anthropic.internal.api.AnthropicCacheType;
+import dev.langchain4j.model.anthropic.internal.api.AnthropicCreateMessageRequest;
+import dev.langchain4j.model.anthropic.internal.api.AnthropicCreateMessageResponse;
+import dev.langchain4j.model.anthropic.internal.api.AnthropicImageContent;
+import dev.langchain4j.model.anthropic.internal.api.AnthropicMessage;
+import dev.langchain4j.model.anthropic.internal.api.AnthropicMessageContent;
+import dev.langchain4j.model.anthropic.internal.api.AnthropicPdfContent;
+import dev.langchain4j.model.anthropic.internal.api.AnthropicRole;
+import dev.langchain4j.model.anthropic.internal.api.AnthropicTextContent;
+import dev.langchain4j.model.anthropic.internal.api.AnthropicToolResultContent;
+import dev.langchain4j.model.anthropic.internal.api.AnthropicToolUseContent;
+import dev.langchain4j.model.anthropic.internal.client.AnthropicClient;
+import dev.langchain4j.model.anthropic.internal.client.DefaultAnthropicClient;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 为对话历史自动添加提示词缓存断点的 Anthropic 客户端
+ * <p>
+ * langchain4j 只能缓存系统消息和工具定义，不断增长的对话历史和工具结果在每一轮、每一次工具调用迭代中都会被完整地重新计费。
+ * 这里在请求发出前，为最后两条 user 消息（用户输入或工具结果）的最后一个内容块加上 cache_control：
+ * 最后一条用于写入本次请求的完整前缀，下一次迭代即可读取；倒数第二条用于命中上一次请求写入的前缀。
+ * <p>
+ * 只在模型开启了 cacheSystemMessages（即系统消息带有 cache_control）时生效，且断点总数不超过 Anthropic 允许的 4 个。
+ * 通过 {@link PromptCachingAnthropicClientBuilderFactory} 以 SPI 方式替换默认客户端，实际请求仍由 {@link DefaultAnthropicClient} 发送。
+ */
+public class PromptCachingAnthropicClient extends AnthropicClient {
+
+    /**
+     * Anthropic 单个请求允许的缓存断点上限
+     */
+    static final int MAX_BREAKPOINTS = 4;
+
+    /**
+     * 对话历史上最多添加的断点数
+     */
+    static final int HISTORY_BREAKPOINTS = 2;
+
+    private final AnthropicClient delegate;
+
+    private PromptCachingAnthropicClient(AnthropicClient delegate) {
+        this.delegate = delegate;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public AnthropicCreateMessageResponse createMessage(AnthropicCreateMessageRequest request) {
+        addHistoryBreakpoints(request);
+        return delegate.createMessage(request);
+    }
+
+    @Override
+    public void createMessage(AnthropicCreateMessageRequest request, StreamingChatResponseHandler handler) {
+        addHistoryBreakpoints(request);
+        delegate.createMessage(request, handler);
+    }
+
+    /**
+     * 为对话历史添加缓存断点，请求对象由模型按次创建，可以直接修改
+     *
+     * @return 添加的断点数
+     */
+    static int addHistoryBreakpoints(AnthropicCreateMessageRequest request) {
+        if (request.system == null || request.system.stream().noneMatch(content -> content.cacheControl != null)) {
+            return 0;
+        }
+        List<AnthropicMessage> messages = request.messages;
+        if (messages == null || messages.isEmpty()) {
+            return 0;
+        }
+        int budget = Math.min(HISTORY_BREAKPOINTS, MAX_BREAKPOINTS - countBreakpoints(request));
+        int added = 0;
+        for (int i = messages.size() - 1; i >= 0 && added < budget; i--) {
+            AnthropicMessage message = messages.get(i);
+            if (message.role != AnthropicRole.USER || message.content == null) {
+                continue;
+            }
+            AnthropicMessageContent block = lastCacheableBlock(message.content);
+            if (block != null && block.cacheControl == null) {
+                block.cacheControl = AnthropicCacheType.EPHEMERAL.cacheControl();
+                added++;
+            }
+        }
+        return added;
+    }
+
+    private static int countBreakpoints(AnthropicCreateMessageRequest request) {
+        long count = request.system.stream().filter(content -> content.cacheControl != null).count();
+        if (request.tools != null) {
+            count += request.tools.stream().filter(tool -> tool.cacheControl != null).count();
+        }
+        for (AnthropicMessage message : request.messages) {
+            if (message.content != null) {
+                count += message.content.stream().filter(Objects::nonNull)
+                        .filter(content -> content.cacheControl != null).count();
+            }
+        }
+        return (int) count;
+    }
+
+    /**
+     * 最后一个可以携带 cache_control 的内容块（空文本块不能缓存）
+     */
+    private static AnthropicMessageContent lastCacheableBlock(List<AnthropicMessageContent> contents) {
+        for (int i = contents.size() - 1; i >= 0; i--) {
+            AnthropicMessageContent content = contents.get(i);
+            boolean cacheable = switch (content) {
+                case AnthropicTextContent text -> text.text != null && !text.text.isBlank();
+                case AnthropicToolResultContent ignored -> true;
+                case AnthropicToolUseContent ignored -> true;
+                case AnthropicImageContent ignored -> true;
+                case AnthropicPdfContent ignored -> true;
+                case null, default -> false;
+            };
+            if (cacheable) {
+                return content;
+            }
+        }
+        return null;
+    }
+
+    public static class Builder extends AnthropicClient.Builder<PromptCachingAnthropicClient, Builder> {
+
+        @Override
+        public PromptCachingAnthropicClient build() {
+            AnthropicClient delegate = DefaultAnthropicClient.builder()
+                    .httpClientBuilder(httpClientBuilder)
+                    .baseUrl(baseUrl)
+                    .apiKey(apiKey)
+                    .version(version)
+                    .beta(beta)
+                    .timeout(timeout)
+                    .logRequests(logRequests)
+                    .logResponses(logResponses)
+                    .build();
+            return new PromptCachingAnthropicClient(delegate);
+        }
+    }
+}
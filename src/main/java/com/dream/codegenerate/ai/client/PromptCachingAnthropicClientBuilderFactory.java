@@ -0,0 +1,16 @@
+package com.dream.codegenerate.ai.client;
+
+import dev.langchain4j.model.anthropic.internal.client.AnthropicClient;
+import dev.langchain4j.model.anthropic.internal.client.AnthropicClientBuilderFactory;
+
+/**
+ * 通过 META-INF/services 注册，让 langchain4j 创建 Anthropic 模型时使用 {@link PromptCachingAnthropicClient}
+ * 注意：SPI 注册对整个应用生效，应用中所有 Anthropic 模型（不只是代码生成）都会使用该客户端。
+ */
+public class PromptCachingAnthropicClientBuilderFactory implements AnthropicClientBuilderFactory {
+
+    @Override
+    public AnthropicClient.Builder<PromptCachingAnthropicClient, PromptCachingAnthropicClient.Builder> get() {
+        return PromptCachingAnthropicClient.builder();
+    }
+}
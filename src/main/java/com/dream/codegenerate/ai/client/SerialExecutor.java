@@ -0,0 +1,47 @@
+package com.dream.codegenerate.ai.client;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+/**
+ * 串行执行器
+ * 提交的任务按提交顺序逐个在底层执行器上运行，同一时刻最多只有一个任务在执行，不独占线程。
+ * 用于把同一个流式响应的监听回调从 HttpClient 的线程移到虚拟线程上，同时保持回调的顺序。
+ */
+class SerialExecutor implements Executor {
+
+    private final Executor delegate;
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+    private boolean running;
+
+    SerialExecutor(Executor delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        synchronized (tasks) {
+            tasks.add(task);
+            if (running) {
+                return;
+            }
+            running = true;
+        }
+        delegate.execute(this::drain);
+    }
+
+    private void drain() {
+        while (true) {
+            Runnable task;
+            synchronized (tasks) {
+                task = tasks.poll();
+                if (task == null) {
+                    running = false;
+                    return;
+                }
+            }
+            PooledHttpClient.ignoringExceptions(task);
+        }
+    }
+}
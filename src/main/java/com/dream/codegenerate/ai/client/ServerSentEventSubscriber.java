@@ -0,0 +1,170 @@
+package com.dream.codegenerate.ai.client;
+
+import dev.langchain4j.http.client.sse.ServerSentEvent;
+import dev.langchain4j.http.client.sse.ServerSentEventListener;
+
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 非阻塞的 SSE 行订阅者
+ * 由 JDK HttpClient 按行推送响应体，解析规则与 langchain4j 的 DefaultServerSentEventParser 一致：
+ * event: 设置事件名，data: 追加数据（多行以换行连接），空行分发事件。
+ * 行的解析与监听回调都在 delivery 上串行执行，不占用 HttpClient 的线程：监听方可能执行工具、等待下游缓冲区，
+ * 在 HttpClient 线程上执行会拖慢同一节点上的所有模型流。
+ * 每处理完一行才请求下一行，监听方处理变慢时背压会传递到 TCP 连接上。
+ * 绑定了 {@link StreamCancellation} 时，取消后立即中止响应流，之后的行不再处理。
+ * 等待下一行的时间超过空闲超时后中止响应流并回调 onError；监听方处理一行的时间不计入空闲时间。
+ */
+class ServerSentEventSubscriber implements Flow.Subscriber<String> {
+
+    private final ServerSentEventListener listener;
+    private final AtomicBoolean terminated;
+    private final StreamCancellation cancellation;
+    private final Executor delivery;
+    private final ScheduledExecutorService scheduler;
+    private final long idleTimeoutNanos;
+    private final StringBuilder data = new StringBuilder();
+    private String event;
+    private Flow.Subscription subscription;
+
+    /**
+     * 是否已请求下一行、正在等待数据
+     */
+    private volatile boolean awaiting;
+    private volatile long awaitingSinceNanos;
+    private volatile ScheduledFuture<?> idleCheck;
+
+    /**
+     * @param listener     事件监听方
+     * @param terminated   与请求共享的结束标记，保证 onError / onClose 只回调一次
+     * @param cancellation 请求绑定的取消令牌，可以为 null
+     * @param delivery     执行解析与监听回调的串行执行器
+     * @param scheduler    空闲超时检查使用的调度器
+     * @param idleTimeout  等待下一行的最长时间，为 0 时不限制
+     */
+    ServerSentEventSubscriber(ServerSentEventListener listener, AtomicBoolean terminated, StreamCancellation cancellation,
+                              Executor delivery, ScheduledExecutorService scheduler, Duration idleTimeout) {
+        this.listener = listener;
+        this.terminated = terminated;
+        this.cancellation = cancellation;
+        this.delivery = delivery;
+        this.scheduler = scheduler;
+        this.idleTimeoutNanos = idleTimeout == null ? 0 : idleTimeout.toNanos();
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        if (cancellation != null) {
+            cancellation.onCancel(() -> {
+                terminated.set(true);
+                cancelIdleCheck();
+                subscription.cancel();
+            });
+        }
+        requestNext();
+        if (idleTimeoutNanos > 0) {
+            scheduleIdleCheck(idleTimeoutNanos);
+        }
+    }
+
+    @Override
+    public void onNext(String line) {
+        awaiting = false;
+        delivery.execute(() -> handle(line));
+    }
+
+    private void handle(String line) {
+        if (cancellation != null && cancellation.isCancelled()) {
+            return;
+        }
+        if (line.isEmpty()) {
+            dispatch();
+        } else if (line.startsWith("event:")) {
+            event = line.substring("event:".length()).trim();
+        } else if (line.startsWith("data:")) {
+            if (!data.isEmpty()) {
+                data.append('\n');
+            }
+            data.append(line.substring("data:".length()).trim());
+        }
+        requestNext();
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        cancelIdleCheck();
+        if (terminated.compareAndSet(false, true)) {
+            delivery.execute(() -> listener.onError(throwable));
+        }
+    }
+
+    @Override
+    public void onComplete() {
+        cancelIdleCheck();
+        // 排在已收到的行之后执行，保证最后一个事件先于 onClose 分发
+        delivery.execute(() -> {
+            if (cancellation != null && cancellation.isCancelled()) {
+                return;
+            }
+            dispatch();
+            if (terminated.compareAndSet(false, true)) {
+                PooledHttpClient.ignoringExceptions(listener::onClose);
+            }
+        });
+    }
+
+    private void requestNext() {
+        awaitingSinceNanos = System.nanoTime();
+        awaiting = true;
+        subscription.request(1);
+    }
+
+    private void dispatch() {
+        if (data.isEmpty()) {
+            return;
+        }
+        ServerSentEvent serverSentEvent = new ServerSentEvent(event, data.toString());
+        event = null;
+        data.setLength(0);
+        PooledHttpClient.ignoringExceptions(() -> listener.onEvent(serverSentEvent));
+    }
+
+    /**
+     * 每行数据都重新计时开销太大，这里只在到期时检查实际的等待时长，未超时则按剩余时间重新调度
+     */
+    private void checkIdle() {
+        if (terminated.get()) {
+            return;
+        }
+        long waited = awaiting ? System.nanoTime() - awaitingSinceNanos : 0;
+        if (waited < idleTimeoutNanos) {
+            scheduleIdleCheck(idleTimeoutNanos - waited);
+            return;
+        }
+        if (terminated.compareAndSet(false, true)) {
+            subscription.cancel();
+            HttpTimeoutException timeout = new HttpTimeoutException(
+                    "流式响应超过 " + Duration.ofNanos(idleTimeoutNanos).toSeconds() + " 秒未收到数据");
+            delivery.execute(() -> listener.onError(timeout));
+        }
+    }
+
+    private void scheduleIdleCheck(long delayNanos) {
+        idleCheck = scheduler.schedule(this::checkIdle, delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void cancelIdleCheck() {
+        ScheduledFuture<?> check = idleCheck;
+        if (check != null) {
+            check.cancel(false);
+        }
+    }
+}
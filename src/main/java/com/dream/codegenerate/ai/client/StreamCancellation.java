@@ -0,0 +1,79 @@
+package com.dream.codegenerate.ai.client;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 流式模型请求的取消令牌
+ * <p>
+ * langchain4j 的 StreamingChatModel 没有取消接口，这里借助调用链的同步性传递令牌：
+ * 模型在 chat() 调用线程上同步构造请求并调用 {@link PooledHttpClient}，因此在 {@link #runWith} 中发起的请求
+ * 会在发送时取得当前令牌并登记取消动作。令牌取消后，请求（或已经打开的响应流）被中止，且不再回调监听方。
+ * 只有 JDK_ASYNC 传输方式支持取消，其他传输方式会忽略令牌。
+ */
+public final class StreamCancellation {
+
+    private static final ThreadLocal<StreamCancellation> CURRENT = new ThreadLocal<>();
+
+    private final List<Runnable> callbacks = new ArrayList<>(2);
+    private boolean cancelled;
+
+    /**
+     * 在令牌生效的情况下执行，期间发起的流式请求都绑定到该令牌
+     */
+    public static void runWith(StreamCancellation cancellation, Runnable action) {
+        StreamCancellation previous = CURRENT.get();
+        CURRENT.set(cancellation);
+        try {
+            action.run();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    /**
+     * 当前线程上生效的令牌，没有时返回 null
+     */
+    static StreamCancellation current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 登记取消动作，令牌已取消时立即执行
+     */
+    void onCancel(Runnable callback) {
+        synchronized (callbacks) {
+            if (!cancelled) {
+                callbacks.add(callback);
+                return;
+            }
+        }
+        PooledHttpClient.ignoringExceptions(callback);
+    }
+
+    /**
+     * 取消令牌并执行已登记的取消动作，重复调用无效果
+     */
+    public void cancel() {
+        List<Runnable> toRun;
+        synchronized (callbacks) {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            toRun = new ArrayList<>(callbacks);
+            callbacks.clear();
+        }
+        toRun.forEach(PooledHttpClient::ignoringExceptions);
+    }
+
+    public boolean isCancelled() {
+        synchronized (callbacks) {
+            return cancelled;
+        }
+    }
+}
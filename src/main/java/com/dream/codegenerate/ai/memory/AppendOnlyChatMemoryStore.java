@@ -0,0 +1,34 @@
+package com.dream.codegenerate.ai.memory;
+
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+
+import java.util.List;
+
+/**
+ * 以追加方式实现 updateMessages 的存储：传入的是需要追加的新消息（可以是多条），而不是完整的消息列表。
+ * {@link WriteBehindChatMemoryStore} 会把同一记忆中连续的多次追加合并为一次调用；
+ * 未实现该接口的存储仍按每条消息调用一次。
+ * 追加不是幂等的：写入超时后存储可能已经写入，直接重试会重复追加，
+ * 因此只有支持按批次 ID 去重（{@link #supportsIdempotentAppend()}）的存储才会在失败后被重试。
+ */
+public interface AppendOnlyChatMemoryStore extends ChatMemoryStore {
+
+    /**
+     * 按批次 ID 幂等追加：同一 batchId 重复调用只追加一次。默认实现直接追加，不去重
+     *
+     * @param memoryId 记忆 ID
+     * @param messages 需要追加的新消息
+     * @param batchId  本批追加的唯一 ID，重试时保持不变
+     */
+    default void appendMessages(Object memoryId, List<ChatMessage> messages, String batchId) {
+        updateMessages(memoryId, messages);
+    }
+
+    /**
+     * {@link #appendMessages} 是否按 batchId 去重，为 true 时写入失败后可以安全重试
+     */
+    default boolean supportsIdempotentAppend() {
+        return false;
+    }
+}
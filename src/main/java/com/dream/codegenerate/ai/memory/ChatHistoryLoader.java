@@ -0,0 +1,18 @@
+package com.dream.codegenerate.ai.memory;
+
+/**
+ * 按页加载某个对话记忆的历史消息，供 {@link StatefulChatMemory} 懒加载使用
+ */
+@FunctionalInterface
+public interface ChatHistoryLoader {
+
+    /**
+     * 加载游标之前的一页历史
+     *
+     * @param beforeId 只加载 id 小于该值的记录；为 null 时加载最新的一页
+     * @param fromId   只加载 id 大于等于该值的记录（更早的对话已被摘要）；为 null 时不限制
+     * @param limit    最多加载多少条
+     * @return 按时间正序排列的一页历史
+     */
+    ChatHistoryPage load(Long beforeId, Long fromId, int limit);
+}
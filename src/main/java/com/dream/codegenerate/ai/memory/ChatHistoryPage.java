@@ -0,0 +1,19 @@
+package com.dream.codegenerate.ai.memory;
+
+import dev.langchain4j.data.message.ChatMessage;
+
+import java.util.List;
+
+/**
+ * 一页对话历史
+ *
+ * @param messages 按时间正序（老的在前）排列的消息
+ * @param oldestId 本页最早一条记录的 id，作为加载更早一页的游标；本页为空时为 null
+ * @param scanned  本页扫描的记录条数（含未转换为消息的记录），小于请求条数说明已没有更早的历史
+ */
+public record ChatHistoryPage(List<ChatMessage> messages, Long oldestId, int scanned) {
+
+    public static ChatHistoryPage empty() {
+        return new ChatHistoryPage(List.of(), null, 0);
+    }
+}
@@ -0,0 +1,328 @@
+package com.dream.codegenerate.ai.memory;
+
+import com.dream.codegenerate.config.EmbeddingPipelineConfig;
+import com.dream.codegenerate.mapper.ChatMessagesMapper;
+import com.dream.codegenerate.model.entity.ChatMessagesEntity;
+import com.dream.codegenerate.utils.EmbeddingUtils;
+import com.pgvector.PGvector;
+import dev.langchain4j.data.embedding.Embedding;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对话消息异步向量化流水线
+ * 消息先以 embedding = null 保存，值得向量化的消息放入队列；后台线程把队列中的消息凑成小批，
+ * 每批经向量缓存后只对未命中的文本发起一次 embedAll 请求，回填 embedding 列，失败时退避重试。
+ * 队列已满、重试仍失败或关闭时尚未处理的消息，由定期的补偿扫描找出并回填。
+ */
+@Slf4j
+@Component
+public class ChatMessageEmbeddingPipeline {
+
+    /**
+     * 补偿扫描跳过最近保存的消息，避免与队列中尚未处理的消息重复向量化
+     */
+    private static final Duration BACKFILL_GRACE = Duration.ofMinutes(1);
+
+    @Resource
+    private EmbeddingPipelineConfig embeddingPipelineConfig;
+
+    @Resource
+    private EmbeddingUtils embeddingUtils;
+
+    @Resource
+    private ChatMessagesMapper chatMessagesMapper;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private ChatMessageEmbeddingPolicy policy;
+
+    private BlockingQueue<EmbeddingTask> queue;
+
+    private Thread worker;
+
+    private volatile boolean running;
+
+    /**
+     * 补偿扫描的游标（已扫描到的消息 ID），只由后台线程读写
+     */
+    private long backfillCursor;
+
+    private long nextBackfillNanos;
+
+    private Counter embeddedCounter;
+
+    private Counter failedCounter;
+
+    private Counter droppedCounter;
+
+    private Counter requestCounter;
+
+    @PostConstruct
+    public void init() {
+        policy = new ChatMessageEmbeddingPolicy(embeddingPipelineConfig);
+        queue = new LinkedBlockingQueue<>(Math.max(1, embeddingPipelineConfig.getQueueCapacity()));
+        Gauge.builder("codegen.embedding.queue", queue, BlockingQueue::size)
+                .description("等待向量化的对话消息数")
+                .register(meterRegistry);
+        embeddedCounter = messageCounter("embedded");
+        failedCounter = messageCounter("failed");
+        droppedCounter = messageCounter("dropped");
+        requestCounter = Counter.builder("codegen.embedding.requests")
+                .description("向量化流水线发起的批量向量化次数")
+                .register(meterRegistry);
+        if (!embeddingPipelineConfig.isEnabled()) {
+            return;
+        }
+        running = true;
+        nextBackfillNanos = System.nanoTime();
+        worker = Thread.ofVirtual().name("chat-message-embedding").start(this::run);
+    }
+
+    /**
+     * 是否异步向量化
+     */
+    public boolean isEnabled() {
+        return running;
+    }
+
+    /**
+     * 向量化策略
+     */
+    public ChatMessageEmbeddingPolicy policy() {
+        return policy;
+    }
+
+    /**
+     * 把已保存的消息中值得向量化的放入队列，立即返回
+     *
+     * @param savedMessages 已保存（已有 ID）的消息
+     */
+    public void submit(List<ChatMessagesEntity> savedMessages) {
+        for (ChatMessagesEntity message : savedMessages) {
+            String text = policy.textFor(message);
+            if (text == null || message.getId() == null) {
+                continue;
+            }
+            if (!queue.offer(new EmbeddingTask(message.getId(), text))) {
+                // 队列已满，留给补偿扫描
+                droppedCounter.increment();
+            }
+        }
+    }
+
+    /**
+     * 停止后台线程，队列中尚未处理的消息留给下次启动后的补偿扫描
+     */
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (worker == null) {
+            return;
+        }
+        worker.interrupt();
+        try {
+            worker.join(Duration.ofSeconds(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!queue.isEmpty()) {
+            log.info("关闭时还有 {} 条对话消息未向量化，将由补偿扫描处理", queue.size());
+        }
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                EmbeddingTask first = queue.poll(nanosUntilBackfill(), TimeUnit.NANOSECONDS);
+                if (first != null) {
+                    embed(nextBatch(first));
+                }
+                if (backfillDue()) {
+                    backfill();
+                }
+            } catch (InterruptedException e) {
+                if (!running) {
+                    return;
+                }
+            } catch (Exception e) {
+                log.error("对话消息向量化出错: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * 从队首的任务开始凑批，最多等待 batchDelay 或凑满 batchSize 条
+     */
+    private List<EmbeddingTask> nextBatch(EmbeddingTask first) throws InterruptedException {
+        List<EmbeddingTask> batch = new ArrayList<>();
+        batch.add(first);
+        int batchSize = Math.max(1, embeddingPipelineConfig.getBatchSize());
+        long deadline = System.nanoTime() + embeddingPipelineConfig.getBatchDelay().toNanos();
+        while (batch.size() < batchSize) {
+            // 先取走已在队列中的任务，不够时再等待
+            queue.drainTo(batch, batchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= batchSize || remaining <= 0) {
+                break;
+            }
+            EmbeddingTask next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+        }
+        return batch;
+    }
+
+    /**
+     * 向量化一批消息并回填，相同文本只向量化一次
+     *
+     * @return 是否全部成功
+     */
+    private boolean embed(List<EmbeddingTask> batch) throws InterruptedException {
+        Map<String, List<Long>> idsByText = new LinkedHashMap<>();
+        for (EmbeddingTask task : batch) {
+            idsByText.computeIfAbsent(task.text(), text -> new ArrayList<>()).add(task.messageId());
+        }
+        List<Embedding> embeddings = embedWithRetry(new ArrayList<>(idsByText.keySet()));
+        if (embeddings == null) {
+            failedCounter.increment(batch.size());
+            retryLater(batch);
+            return false;
+        }
+        boolean success = true;
+        int index = 0;
+        for (List<Long> messageIds : idsByText.values()) {
+            PGvector vector = new PGvector(embeddings.get(index++).vector());
+            for (Long messageId : messageIds) {
+                try {
+                    ChatMessagesEntity update = new ChatMessagesEntity();
+                    update.setId(messageId);
+                    update.setEmbedding(vector);
+                    chatMessagesMapper.update(update);
+                    embeddedCounter.increment();
+                } catch (Exception e) {
+                    log.error("回填对话消息向量失败，messageId: {}, error: {}", messageId, e.getMessage());
+                    failedCounter.increment();
+                    backfillCursor = Math.min(backfillCursor, messageId - 1);
+                    success = false;
+                }
+            }
+        }
+        return success;
+    }
+
+    private List<Embedding> embedWithRetry(List<String> texts) throws InterruptedException {
+        int maxRetries = Math.max(0, embeddingPipelineConfig.getMaxRetries());
+        for (int attempt = 0; ; attempt++) {
+            try {
+                requestCounter.increment();
+                // 经过向量缓存，命中缓存的文本不会产生向量化请求
+                List<Embedding> embeddings = embeddingUtils.embeddingShortTexts(texts);
+                if (embeddings.size() == texts.size() && !embeddings.contains(null)) {
+                    return embeddings;
+                }
+                log.warn("向量化返回结果不完整，期望 {} 条", texts.size());
+            } catch (Exception e) {
+                log.warn("向量化请求失败（第 {} 次）: {}", attempt + 1, e.getMessage());
+            }
+            if (attempt >= maxRetries || !running) {
+                return null;
+            }
+            Thread.sleep(200L << attempt);
+        }
+    }
+
+    /**
+     * 让补偿扫描重新覆盖失败的消息
+     */
+    private void retryLater(List<EmbeddingTask> batch) {
+        for (EmbeddingTask task : batch) {
+            backfillCursor = Math.min(backfillCursor, task.messageId() - 1);
+        }
+    }
+
+    private boolean backfillDue() {
+        return !embeddingPipelineConfig.getBackfillInterval().isZero() && nanosUntilBackfill() <= 0;
+    }
+
+    private long nanosUntilBackfill() {
+        if (embeddingPipelineConfig.getBackfillInterval().isZero()) {
+            return TimeUnit.SECONDS.toNanos(1);
+        }
+        return Math.max(0, nextBackfillNanos - System.nanoTime());
+    }
+
+    /**
+     * 补偿扫描：按 ID 顺序找出近期保存但缺少向量的消息并回填，遇到失败时停止，下次从失败处继续
+     */
+    private void backfill() throws InterruptedException {
+        nextBackfillNanos = System.nanoTime() + embeddingPipelineConfig.getBackfillInterval().toNanos();
+        OffsetDateTime now = OffsetDateTime.now();
+        OffsetDateTime since = now.minus(embeddingPipelineConfig.getBackfillLookback());
+        OffsetDateTime before = now.minus(BACKFILL_GRACE);
+        int pageSize = Math.max(1, embeddingPipelineConfig.getBackfillPageSize());
+        int batchSize = Math.max(1, embeddingPipelineConfig.getBatchSize());
+        int backfilled = 0;
+        while (running) {
+            List<ChatMessagesEntity> page = chatMessagesMapper.findMissingEmbeddings(backfillCursor, since, before,
+                    pageSize);
+            if (page.isEmpty()) {
+                break;
+            }
+            long pageEnd = page.getLast().getId();
+            List<EmbeddingTask> tasks = new ArrayList<>();
+            for (ChatMessagesEntity message : page) {
+                String text = policy.textFor(message);
+                if (text != null) {
+                    tasks.add(new EmbeddingTask(message.getId(), text));
+                }
+            }
+            backfillCursor = pageEnd;
+            for (int from = 0; from < tasks.size(); from += batchSize) {
+                if (!embed(tasks.subList(from, Math.min(from + batchSize, tasks.size())))) {
+                    log.warn("补偿向量化失败，已回填 {} 条，剩余消息留待下次扫描", backfilled);
+                    return;
+                }
+            }
+            backfilled += tasks.size();
+            if (page.size() < pageSize) {
+                break;
+            }
+        }
+        if (backfilled > 0) {
+            log.info("补偿向量化完成，回填 {} 条对话消息", backfilled);
+        }
+    }
+
+    private Counter messageCounter(String result) {
+        return Counter.builder("codegen.embedding.messages")
+                .description("异步向量化处理的对话消息数")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 一条待向量化的消息
+     */
+    private record EmbeddingTask(Long messageId, String text) {
+    }
+}
@@ -0,0 +1,76 @@
+package com.dream.codegenerate.ai.memory;
+
+import com.dream.codegenerate.config.EmbeddingPipelineConfig;
+import com.dream.codegenerate.model.entity.ChatMessagesEntity;
+import com.dream.codegenerate.utils.JsonProcessorUtil;
+import io.micrometer.common.util.StringUtils;
+
+/**
+ * 对话消息向量化策略：决定哪些消息值得向量化，以及送去向量化的文本
+ * 用户消息取文本内容，AI 消息取回复文本（没有文本时取工具调用的动作描述），
+ * 工具执行结果默认不向量化，开启后也只向量化足够长的结果；系统消息不向量化。
+ */
+public class ChatMessageEmbeddingPolicy {
+
+    private final int minTextLength;
+
+    private final boolean embedToolResults;
+
+    private final int minToolResultLength;
+
+    private final int maxTextLength;
+
+    public ChatMessageEmbeddingPolicy(EmbeddingPipelineConfig config) {
+        this.minTextLength = config.getMinTextLength();
+        this.embedToolResults = config.isEmbedToolResults();
+        this.minToolResultLength = config.getMinToolResultLength();
+        this.maxTextLength = config.getMaxTextLength();
+    }
+
+    /**
+     * 返回消息需要向量化的文本
+     *
+     * @param message 消息实体
+     * @return 需要向量化的文本，不值得向量化时返回 null
+     */
+    public String textFor(ChatMessagesEntity message) {
+        if (message.getMessageType() == null) {
+            return null;
+        }
+        String text;
+        int minLength;
+        switch (message.getMessageType()) {
+            case USER -> {
+                text = JsonProcessorUtil.findFirstFieldValue(message.getContents(), "text");
+                minLength = minTextLength;
+            }
+            case AI -> {
+                text = StringUtils.isNotBlank(message.getText())
+                        ? message.getText()
+                        : JsonProcessorUtil.findActionDescriptionInArguments(message.getToolExecutionRequests());
+                minLength = minTextLength;
+            }
+            case TOOL_EXECUTION_RESULT -> {
+                if (!embedToolResults) {
+                    return null;
+                }
+                text = message.getText();
+                minLength = minToolResultLength;
+            }
+            default -> {
+                return null;
+            }
+        }
+        if (StringUtils.isBlank(text)) {
+            return null;
+        }
+        text = text.strip();
+        if (text.length() < minLength) {
+            return null;
+        }
+        if (maxTextLength > 0 && text.length() > maxTextLength) {
+            text = text.substring(0, maxTextLength);
+        }
+        return text;
+    }
+}
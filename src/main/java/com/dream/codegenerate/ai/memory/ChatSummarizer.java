@@ -0,0 +1,21 @@
+package com.dream.codegenerate.ai.memory;
+
+import dev.langchain4j.data.message.ChatMessage;
+
+import java.util.List;
+
+/**
+ * 把最早的若干轮对话压缩为摘要，供 {@link StatefulChatMemory} 在超出 token 预算时调用
+ */
+@FunctionalInterface
+public interface ChatSummarizer {
+
+    /**
+     * 生成新的摘要
+     *
+     * @param previousSummary 之前的摘要，没有时为 null
+     * @param messages        需要压缩的消息，按时间正序排列，以完整的轮次为单位（工具调用与结果成对出现）
+     * @return 覆盖之前摘要与这些消息的新摘要
+     */
+    String summarize(String previousSummary, List<ChatMessage> messages);
+}
@@ -0,0 +1,10 @@
+package com.dream.codegenerate.ai.memory;
+
+/**
+ * 已持久化的对话摘要
+ *
+ * @param text          摘要内容
+ * @param fromHistoryId 摘要之后保留的第一条对话历史 id，重建记忆时只加载该 id 及之后的历史
+ */
+public record ChatSummary(String text, Long fromHistoryId) {
+}
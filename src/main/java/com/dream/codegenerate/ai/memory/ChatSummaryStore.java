@@ -0,0 +1,40 @@
+package com.dream.codegenerate.ai.memory;
+
+/**
+ * 对话摘要的持久化存储，保证压缩后的记忆在服务重启后仍能重建
+ */
+public interface ChatSummaryStore {
+
+    /**
+     * 读取摘要
+     *
+     * @param memoryId 记忆 ID
+     * @return 摘要，没有时返回 null
+     */
+    ChatSummary load(Object memoryId);
+
+    /**
+     * 查询摘要之后保留的第一条对话历史 id，在选定压缩切分点时调用
+     *
+     * @param memoryId      记忆 ID
+     * @param keptUserTurns 切分点之后仍保留在记忆中的用户消息条数
+     * @return 对话历史 id，找不到时返回 null
+     */
+    Long findBoundary(Object memoryId, int keptUserTurns);
+
+    /**
+     * 保存摘要（覆盖旧摘要）
+     *
+     * @param memoryId      记忆 ID
+     * @param summary       摘要内容
+     * @param fromHistoryId 摘要之后保留的第一条对话历史 id，重建记忆时从这里开始加载历史
+     */
+    void save(Object memoryId, String summary, Long fromHistoryId);
+
+    /**
+     * 删除摘要
+     *
+     * @param memoryId 记忆 ID
+     */
+    void delete(Object memoryId);
+}
@@ -0,0 +1,45 @@
+package com.dream.codegenerate.ai.memory;
+
+import com.dream.codegenerate.model.entity.ChatMemorySummary;
+import com.dream.codegenerate.service.ChatHistoryService;
+import com.dream.codegenerate.service.ChatMemorySummaryService;
+import jakarta.annotation.Resource;
+import org.springframework.stereotype.Component;
+
+/**
+ * 基于 chat_memory_summary 表的对话摘要存储，记忆 ID 即应用 ID
+ */
+@Component
+public class DatabaseChatSummaryStore implements ChatSummaryStore {
+
+    @Resource
+    private ChatMemorySummaryService chatMemorySummaryService;
+
+    @Resource
+    private ChatHistoryService chatHistoryService;
+
+    @Override
+    public ChatSummary load(Object memoryId) {
+        ChatMemorySummary summary = chatMemorySummaryService.getByAppId(toAppId(memoryId));
+        return summary == null ? null : new ChatSummary(summary.getSummary(), summary.getFromHistoryId());
+    }
+
+    @Override
+    public Long findBoundary(Object memoryId, int keptUserTurns) {
+        return chatHistoryService.getLatestUserMessageId(toAppId(memoryId), keptUserTurns);
+    }
+
+    @Override
+    public void save(Object memoryId, String summary, Long fromHistoryId) {
+        chatMemorySummaryService.saveSummary(toAppId(memoryId), summary, fromHistoryId);
+    }
+
+    @Override
+    public void delete(Object memoryId) {
+        chatMemorySummaryService.deleteByAppId(toAppId(memoryId));
+    }
+
+    private static Long toAppId(Object memoryId) {
+        return Long.valueOf(memoryId.toString());
+    }
+}
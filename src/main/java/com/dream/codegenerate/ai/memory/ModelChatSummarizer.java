@@ -0,0 +1,127 @@
+package com.dream.codegenerate.ai.memory;
+
+import cn.hutool.core.io.IoUtil;
+import com.dream.codegenerate.ai.client.ModelClientKey;
+import com.dream.codegenerate.ai.client.ModelClientRegistry;
+import com.dream.codegenerate.config.ChatMemoryConfig;
+import com.dream.codegenerate.config.RoutingAiModelConfig;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.TextContent;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.openai.OpenAiChatModel;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * 使用轻量模型（与代码生成类型路由共用模型配置）生成对话摘要
+ */
+@Component
+public class ModelChatSummarizer {
+
+    /**
+     * 工具参数与工具结果在摘要输入中保留的最大字符数，完整的文件内容对摘要没有帮助
+     */
+    private static final int MAX_TOOL_TEXT = 500;
+
+    @Resource
+    private RoutingAiModelConfig routingAiModelConfig;
+
+    @Resource
+    private ChatMemoryConfig chatMemoryConfig;
+
+    @Resource
+    private ModelClientRegistry modelClientRegistry;
+
+    @Value("classpath:prompt/chat-memory-summary-system-prompt.txt")
+    private org.springframework.core.io.Resource systemPromptResource;
+
+    private String systemPrompt;
+
+    @PostConstruct
+    public void init() throws IOException {
+        try (InputStream inputStream = systemPromptResource.getInputStream()) {
+            systemPrompt = IoUtil.read(inputStream, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * 使用指定 API Key 调用模型的摘要器
+     */
+    public ChatSummarizer forApiKey(String apiKey) {
+        return (previousSummary, messages) -> getChatModel(apiKey)
+                .chat(SystemMessage.from(systemPrompt), UserMessage.from(render(previousSummary, messages)))
+                .aiMessage()
+                .text();
+    }
+
+    private ChatModel getChatModel(String apiKey) {
+        ModelClientKey key = new ModelClientKey("openai-chat-summary", routingAiModelConfig.getBaseUrl(),
+                apiKey, routingAiModelConfig.getModelName());
+        return modelClientRegistry.get(key, routingAiModelConfig.getTransport(), httpClientBuilder -> OpenAiChatModel.builder()
+                .apiKey(apiKey)
+                .httpClientBuilder(httpClientBuilder)
+                .modelName(routingAiModelConfig.getModelName())
+                .baseUrl(routingAiModelConfig.getBaseUrl())
+                .maxTokens(chatMemoryConfig.getSummaryMaxTokens())
+                .logRequests(routingAiModelConfig.getLogRequests())
+                .logResponses(routingAiModelConfig.getLogResponses())
+                .build());
+    }
+
+    /**
+     * 把之前的摘要和需要压缩的消息渲染为摘要模型的输入，工具调用与结果按出现顺序成对展示并截断
+     */
+    static String render(String previousSummary, List<ChatMessage> messages) {
+        StringBuilder builder = new StringBuilder();
+        builder.append("【之前的摘要】\n")
+                .append(previousSummary == null ? "无" : previousSummary)
+                .append("\n\n【需要压缩的对话】\n");
+        for (ChatMessage message : messages) {
+            switch (message) {
+                case UserMessage userMessage -> {
+                    builder.append("用户：");
+                    userMessage.contents().stream()
+                            .filter(TextContent.class::isInstance)
+                            .forEach(content -> builder.append(((TextContent) content).text()));
+                    builder.append('\n');
+                }
+                case AiMessage aiMessage -> {
+                    if (aiMessage.text() != null && !aiMessage.text().isBlank()) {
+                        builder.append("AI：").append(aiMessage.text()).append('\n');
+                    }
+                    if (aiMessage.hasToolExecutionRequests()) {
+                        for (ToolExecutionRequest request : aiMessage.toolExecutionRequests()) {
+                            builder.append("AI 调用工具 ").append(request.name())
+                                    .append("：").append(truncate(request.arguments())).append('\n');
+                        }
+                    }
+                }
+                case ToolExecutionResultMessage resultMessage -> builder.append("工具 ")
+                        .append(resultMessage.toolName()).append(" 返回：")
+                        .append(truncate(resultMessage.text())).append('\n');
+                default -> {
+                }
+            }
+        }
+        return builder.toString();
+    }
+
+    private static String truncate(String text) {
+        if (text == null) {
+            return "";
+        }
+        return text.length() <= MAX_TOOL_TEXT ? text : text.substring(0, MAX_TOOL_TEXT) + "...（已截断）";
+    }
+}
@@ -0,0 +1,136 @@
+package com.dream.codegenerate.ai.memory;
+
+import com.dream.codegenerate.config.ChatMemoryConfig;
+import com.dream.codegenerate.config.RedisChatMemoryStoreConfig;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.ChatMessageDeserializer;
+import dev.langchain4j.data.message.ChatMessageSerializer;
+import jakarta.annotation.Resource;
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 基于 Redis 列表的追加式对话记忆存储
+ * 每条消息是列表中的一个元素：追加为 RPUSH（只传输新消息），读取为 LRANGE 最近的窗口，
+ * 同一批追加、长度裁剪（LTRIM）和过期时间刷新（EXPIRE）由一个 Lua 脚本一次完成，不再整体重写整个会话。
+ * 带批次 ID 的追加先用 SET NX 写入批次标记，标记已存在时不再追加，后台写入失败后的重试不会重复追加消息。
+ */
+@Component
+public class RedisListChatMemoryStore implements AppendOnlyChatMemoryStore {
+
+    private static final String KEY_PREFIX = "codegen:memory:";
+
+    /**
+     * 批次标记的保留时间，覆盖后台写入的全部重试
+     */
+    private static final long BATCH_MARKER_TTL_SECONDS = 3600;
+
+    /**
+     * KEYS[1] 消息列表，KEYS[2] 批次标记；ARGV[1] 最多保留的条数，ARGV[2] 过期秒数，
+     * ARGV[3] 是否使用批次标记，ARGV[4] 标记过期秒数，ARGV[5..] 需要追加的消息
+     */
+    private static final String APPEND_SCRIPT = """
+            if ARGV[3] == '1' and not redis.call('SET', KEYS[2], '1', 'NX', 'EX', ARGV[4]) then
+                return 0
+            end
+            for i = 5, #ARGV do
+                redis.call('RPUSH', KEYS[1], ARGV[i])
+            end
+            local max = tonumber(ARGV[1])
+            if max > 0 then
+                redis.call('LTRIM', KEYS[1], -max, -1)
+            end
+            local ttl = tonumber(ARGV[2])
+            if ttl > 0 then
+                redis.call('EXPIRE', KEYS[1], ttl)
+            end
+            return 1
+            """;
+
+    @Resource
+    private RedissonClient redissonClient;
+
+    @Resource
+    private RedisChatMemoryStoreConfig redisChatMemoryStoreConfig;
+
+    @Resource
+    private ChatMemoryConfig chatMemoryConfig;
+
+    /**
+     * 读取最近的 redisReadWindow 条消息
+     */
+    @Override
+    public List<ChatMessage> getMessages(Object memoryId) {
+        return getMessages(memoryId, chatMemoryConfig.getRedisReadWindow());
+    }
+
+    /**
+     * 读取最近的 window 条消息，按时间正序排列
+     *
+     * @param memoryId 记忆 ID
+     * @param window   最多读取的条数，小于等于 0 时读取全部
+     * @return 消息列表
+     */
+    public List<ChatMessage> getMessages(Object memoryId, int window) {
+        List<String> values = redissonClient.<String>getList(key(memoryId), StringCodec.INSTANCE)
+                .range(window > 0 ? -window : 0, -1);
+        List<ChatMessage> messages = new ArrayList<>(values.size());
+        for (String value : values) {
+            messages.add(ChatMessageDeserializer.messageFromJson(value));
+        }
+        return messages;
+    }
+
+    /**
+     * 追加消息：一次脚本调用完成 RPUSH、按上限裁剪和刷新过期时间
+     */
+    @Override
+    public void updateMessages(Object memoryId, List<ChatMessage> messages) {
+        append(memoryId, messages, null);
+    }
+
+    /**
+     * 按批次 ID 幂等追加，同一批次重复调用只追加一次
+     */
+    @Override
+    public void appendMessages(Object memoryId, List<ChatMessage> messages, String batchId) {
+        append(memoryId, messages, batchId);
+    }
+
+    @Override
+    public boolean supportsIdempotentAppend() {
+        return true;
+    }
+
+    private void append(Object memoryId, List<ChatMessage> messages, String batchId) {
+        if (messages == null || messages.isEmpty()) {
+            return;
+        }
+        List<Object> args = new ArrayList<>(messages.size() + 4);
+        args.add(String.valueOf(Math.max(0, chatMemoryConfig.getRedisMaxMessages())));
+        args.add(String.valueOf(Math.max(0, redisChatMemoryStoreConfig.getTtl())));
+        args.add(batchId == null ? "0" : "1");
+        args.add(String.valueOf(BATCH_MARKER_TTL_SECONDS));
+        for (ChatMessage message : messages) {
+            args.add(ChatMessageSerializer.messageToJson(message));
+        }
+        String key = key(memoryId);
+        String markerKey = key + ":batch:" + (batchId == null ? "" : batchId);
+        redissonClient.getScript(StringCodec.INSTANCE).eval(RScript.Mode.READ_WRITE, APPEND_SCRIPT,
+                RScript.ReturnType.INTEGER, List.of(key, markerKey), args.toArray());
+    }
+
+    @Override
+    public void deleteMessages(Object memoryId) {
+        redissonClient.getList(key(memoryId), StringCodec.INSTANCE).delete();
+    }
+
+    private static String key(Object memoryId) {
+        return KEY_PREFIX + memoryId;
+    }
+}
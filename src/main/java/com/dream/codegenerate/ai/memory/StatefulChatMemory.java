@@ -8,40 +8,162 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import dev.langchain4j.agent.tool.ToolExecutionRequest;
 import dev.langchain4j.data.message.AiMessage;
 import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.TextContent;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
 import dev.langchain4j.memory.ChatMemory;
+import dev.langchain4j.model.TokenCountEstimator;
 import dev.langchain4j.store.memory.chat.ChatMemoryStore;
-import lombok.Data;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * 一个有状态的、持久化的聊天记忆实现。
  * 它严格遵循“内存优先，数据库追加”的设计模式。
  *
- * 1.  **初始化**: 创建时，从 ChatMemoryStore 加载一次完整的历史记录到内存中。
+ * 1.  **初始化**: 通过 hydrate() 从 ChatHistoryLoader 加载最近一个窗口的历史，更早的历史在首次读取后由 historyExecutor
+ *     在后台按页加载，首次读取只等待最近窗口，不拖慢首个 token；未设置 historyExecutor 时在首次读取时同步加载。
+ *     历史只放入内存，不会回写 ChatMemoryStore。
  * 2.  **读取**: messages() 方法总是从高速的内存中返回当前的消息列表。
  * 3.  **写入**: add() 方法会同时向内存列表和后端的 ChatMemoryStore 追加新消息。
  * 它通过只传递新消息给 store.updateMessages() 来实现“追加”而非“覆写”。
+ * 存储为 {@link WriteBehindChatMemoryStore} 时只是放入后台写入队列，调用发生在写锁内，入队顺序即消息顺序。
+ * 4.  **系统消息**: AiServices 每轮都会 add 一次系统消息，这里只保留最新的一条并始终放在最前面，不随轮次重复累积。
+ * 5.  **token 预算**（可选）: 配置了 token 预算、估算器和摘要器后，按条统计消息的 token 数。
+ *     超出预算时在后台把最早的若干轮对话压缩为一条摘要（以用户消息为边界切分，工具调用与结果不会被拆开），
+ *     摘要持久化到 ChatSummaryStore，重建记忆时先加载摘要，再只加载摘要之后的历史。
  */
-@Data
+@Slf4j
 public class StatefulChatMemory implements ChatMemory {
 
+    @Getter
     private final Object id;
+    @Getter
     private final ChatMemoryStore store; // 你已经实现的 VectorChatMemoryStore
+    @Getter
     private final List<ChatMessage> messages; // 核心：内存中的消息列表
+    @Getter
     private final ReadWriteLock lock = new ReentrantReadWriteLock();
     // 添加 ObjectMapper 依赖，用于序列化和反序列化
+    @Getter
     private final ObjectMapper objectMapper;
+    /**
+     * 内存中消息内容的字符数估算，用于缓存按占用内存淘汰
+     */
+    private final AtomicLong payloadChars = new AtomicLong();
+    /**
+     * 消息内容大小变化时的回调（如通知缓存重新计算权重）
+     */
+    private volatile Runnable sizeChangeListener;
+
+    /**
+     * 历史加载器，为 null 时不加载历史
+     */
+    private final ChatHistoryLoader historyLoader;
+    private final int recentWindow;
+    private final int pageSize;
+    private final int maxHistory;
+    /**
+     * 保证历史只被一个线程加载，且加载 I/O 不占用消息读写锁
+     */
+    private final ReentrantLock hydrationLock = new ReentrantLock();
+    /**
+     * 最近窗口是否已加载
+     */
+    private volatile boolean hydrated;
+    /**
+     * 更早的历史是否已全部加载（或已达到上限）
+     */
+    private volatile boolean historyComplete;
+    /**
+     * 在后台加载更早历史的执行器，为 null 时在首次读取时同步加载
+     */
+    private final Executor historyExecutor;
+    /**
+     * 更早历史的加载是否已开始，保证只提交一次
+     */
+    private final AtomicBoolean olderHistoryStarted = new AtomicBoolean();
+    /**
+     * 已加载的最早一条历史的 id，由 hydrationLock 保护
+     */
+    private Long historyCursor;
+    /**
+     * 已扫描的历史条数，由 hydrationLock 保护
+     */
+    private int historyLoaded;
+
+    /**
+     * 最新的系统消息，不放入消息列表
+     */
+    private volatile SystemMessage systemMessage;
+
+    /**
+     * token 预算，为 0 时不按 token 压缩
+     */
+    private final int tokenBudget;
+    /**
+     * 压缩后保留的最近消息占预算的比例
+     */
+    private final double compactionTarget;
+    private final TokenCountEstimator tokenCountEstimator;
+    private final ChatSummarizer summarizer;
+    private final ChatSummaryStore summaryStore;
+    private final Executor compactionExecutor;
+    /**
+     * 与 messages 一一对应的 token 数，由 lock 保护
+     */
+    private final List<Integer> messageTokens = new ArrayList<>();
+    /**
+     * 消息列表与摘要的 token 总数，由 lock 保护
+     */
+    private long tokenCount;
+    /**
+     * 更早对话的摘要，由 lock 保护
+     */
+    private String summary;
+    private int summaryTokens;
+    /**
+     * 已持久化摘要之后的第一条历史 id，加载历史时不再加载更早的记录，由 hydrationLock 保护
+     */
+    private Long historyFromId;
+    /**
+     * 同一时间只运行一个压缩任务
+     */
+    private final AtomicBoolean compacting = new AtomicBoolean();
 
     private StatefulChatMemory(Builder builder) {
         this.id = builder.id;
         this.store = builder.store;
         this.messages = new ArrayList<>() ;
         this.objectMapper = SpringContextUtil.getBean("langchain4jObjectMapper", ObjectMapper.class);
+        this.historyLoader = builder.historyLoader;
+        this.recentWindow = builder.recentWindow;
+        this.pageSize = builder.pageSize;
+        this.maxHistory = builder.maxHistory;
+        this.historyExecutor = builder.historyExecutor;
+        this.tokenCountEstimator = builder.tokenCountEstimator;
+        this.summarizer = builder.summarizer;
+        this.summaryStore = builder.summaryStore;
+        this.compactionExecutor = builder.compactionExecutor;
+        this.compactionTarget = builder.compactionTarget;
+        this.tokenBudget = tokenCountEstimator != null && summarizer != null && compactionExecutor != null
+                ? builder.tokenBudget : 0;
+        if (historyLoader == null) {
+            this.hydrated = true;
+            this.historyComplete = true;
+        }
 
     }
 
@@ -57,6 +179,15 @@ public class StatefulChatMemory implements ChatMemory {
      */
     @Override
     public void add(ChatMessage message) {
+        if (message instanceof SystemMessage newSystemMessage) {
+            // 系统消息不追加，只替换；内容未变化时也不重复写入存储
+            SystemMessage previous = systemMessage;
+            systemMessage = newSystemMessage;
+            if (!newSystemMessage.equals(previous)) {
+                store.updateMessages(this.id, List.of(newSystemMessage));
+            }
+            return;
+        }
         ChatMessage messageToAdd = message;
 
         // 核心逻辑：只在消息是包含工具请求的 AiMessage 时才处理
@@ -82,27 +213,47 @@ public class StatefulChatMemory implements ChatMemory {
                 // 如果出错，为了保证流程继续，我们选择添加原始消息
             }
         }
+        int tokens = countTokens(messageToAdd);
         lock.writeLock().lock();
         try {
             // 1. 添加到内存列表
             messages.add(messageToAdd);
+            messageTokens.add(tokens);
+            tokenCount += tokens;
+            payloadChars.addAndGet(sizeOf(messageToAdd));
             // 2. 追加到持久化存储
             // 我们只传递最新的消息，利用你已有的 Service 实现“仅追加最后一条”的逻辑
             store.updateMessages(this.id, List.of(messageToAdd));
         } finally {
             lock.writeLock().unlock();
         }
+        notifySizeChanged();
+        compactIfNeeded();
     }
 
     /**
      * 总是从内存中返回当前的消息列表，速度快。
+     * 首次读取时只等待最近窗口加载完成，更早的历史在后台按页插入到列表头部，之后的读取才能看到。
+     * 返回的列表依次为：系统消息、更早对话的摘要（如有）、其余消息。
      */
     @Override
     public List<ChatMessage> messages() {
+        hydrate();
+        startLoadingOlderHistory();
+        compactIfNeeded();
+        SystemMessage currentSystemMessage = systemMessage;
         lock.readLock().lock();
         try {
             // 返回一个不可变的副本，保证线程安全
-            return Collections.unmodifiableList(new ArrayList<>(messages));
+            List<ChatMessage> result = new ArrayList<>(messages.size() + 2);
+            if (currentSystemMessage != null) {
+                result.add(currentSystemMessage);
+            }
+            if (summary != null) {
+                result.add(summaryMessage(summary));
+            }
+            result.addAll(messages);
+            return Collections.unmodifiableList(result);
         } finally {
             lock.readLock().unlock();
         }
@@ -116,10 +267,367 @@ public class StatefulChatMemory implements ChatMemory {
         lock.writeLock().lock();
         try {
             messages.clear();
+            messageTokens.clear();
+            tokenCount = 0;
+            summary = null;
+            summaryTokens = 0;
+            payloadChars.set(0);
+            // 清空后不再加载历史
+            hydrated = true;
+            historyComplete = true;
             store.deleteMessages(id);
+            if (summaryStore != null) {
+                summaryStore.delete(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        notifySizeChanged();
+    }
+
+    /**
+     * 加载最近一个窗口的历史到内存中，只在第一次调用时生效。
+     * 历史来自数据库，不会回写 ChatMemoryStore；调用方应在缓存锁之外调用，避免 I/O 阻塞其他请求。
+     */
+    public void hydrate() {
+        if (hydrated) {
+            return;
+        }
+        hydrationLock.lock();
+        try {
+            if (hydrated) {
+                return;
+            }
+            loadSummary();
+            loadPage(recentWindow);
+            hydrated = true;
+        } finally {
+            hydrationLock.unlock();
+        }
+    }
+
+    /**
+     * 开始加载更早的历史，只在第一次调用时生效：有 historyExecutor 时提交到后台，加载完成后再检查是否需要压缩
+     */
+    private void startLoadingOlderHistory() {
+        if (historyComplete || !olderHistoryStarted.compareAndSet(false, true)) {
+            return;
+        }
+        if (historyExecutor == null) {
+            loadOlderHistory();
+            return;
+        }
+        try {
+            historyExecutor.execute(() -> {
+                loadOlderHistory();
+                compactIfNeeded();
+            });
+        } catch (RejectedExecutionException e) {
+            olderHistoryStarted.set(false);
+            log.warn("提交历史加载任务失败，memoryId: {}", id);
+        }
+    }
+
+    /**
+     * 按页向前加载更早的历史，直到没有更多历史或达到上限
+     */
+    private void loadOlderHistory() {
+        if (historyComplete) {
+            return;
+        }
+        hydrationLock.lock();
+        try {
+            while (!historyComplete) {
+                loadPage(pageSize);
+            }
+        } finally {
+            hydrationLock.unlock();
+        }
+    }
+
+    /**
+     * 加载游标之前的一页历史并插入到内存列表头部，需持有 hydrationLock
+     */
+    private void loadPage(int limit) {
+        int size = Math.min(limit, maxHistory - historyLoaded);
+        if (size <= 0) {
+            historyComplete = true;
+            return;
+        }
+        ChatHistoryPage page;
+        try {
+            page = historyLoader.load(historyCursor, historyFromId, size);
+        } catch (Exception e) {
+            // 加载失败不影响对话，只是缺少更早的上下文
+            log.error("加载历史对话失败，memoryId: {}, error: {}", id, e.getMessage(), e);
+            historyComplete = true;
+            return;
+        }
+        boolean budgetFilled = false;
+        if (!page.messages().isEmpty()) {
+            long chars = 0;
+            long pageTokens = 0;
+            List<Integer> tokens = new ArrayList<>(page.messages().size());
+            for (ChatMessage message : page.messages()) {
+                chars += sizeOf(message);
+                int count = countTokens(message);
+                tokens.add(count);
+                pageTokens += count;
+            }
+            lock.writeLock().lock();
+            try {
+                if (historyComplete) {
+                    // 加载期间记忆已被清空
+                    return;
+                }
+                messages.addAll(0, page.messages());
+                messageTokens.addAll(0, tokens);
+                tokenCount += pageTokens;
+                payloadChars.addAndGet(chars);
+                budgetFilled = tokenBudget > 0 && tokenCount >= tokenBudget;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            notifySizeChanged();
+        }
+        historyLoaded += page.scanned();
+        historyCursor = page.oldestId();
+        // 已超出 token 预算时，更早的历史即使加载也会被立即压缩，不再继续加载
+        if (page.scanned() < size || historyCursor == null || budgetFilled) {
+            historyComplete = true;
+        }
+    }
+
+    /**
+     * 加载已持久化的摘要，需持有 hydrationLock
+     */
+    private void loadSummary() {
+        if (tokenBudget <= 0 || summaryStore == null) {
+            return;
+        }
+        ChatSummary persisted;
+        try {
+            persisted = summaryStore.load(id);
+        } catch (Exception e) {
+            log.error("加载对话摘要失败，memoryId: {}, error: {}", id, e.getMessage(), e);
+            return;
+        }
+        if (persisted == null || persisted.text() == null) {
+            return;
+        }
+        int tokens = tokenCountEstimator.estimateTokenCountInText(persisted.text());
+        lock.writeLock().lock();
+        try {
+            summary = persisted.text();
+            summaryTokens = tokens;
+            tokenCount += tokens;
+            payloadChars.addAndGet(persisted.text().length());
         } finally {
             lock.writeLock().unlock();
         }
+        historyFromId = persisted.fromHistoryId();
+    }
+
+    /**
+     * 超出 token 预算时提交后台压缩任务：选出最早的若干轮对话交给摘要器，当前请求不等待压缩结果
+     */
+    private void compactIfNeeded() {
+        // 历史加载完成前列表头部还会变化，等加载完成后再压缩
+        if (tokenBudget <= 0 || !historyComplete || compacting.get()) {
+            return;
+        }
+        List<ChatMessage> prefix;
+        String previousSummary;
+        int keptUserTurns = 0;
+        lock.readLock().lock();
+        try {
+            if (tokenCount <= tokenBudget) {
+                return;
+            }
+            int cut = findCompactionCut();
+            if (cut <= 0 || !compacting.compareAndSet(false, true)) {
+                return;
+            }
+            prefix = new ArrayList<>(messages.subList(0, cut));
+            previousSummary = summary;
+            for (int i = cut; i < messages.size(); i++) {
+                if (messages.get(i) instanceof UserMessage) {
+                    keptUserTurns++;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        // 摘要耗时较长，期间可能保存了新的用户消息，历史边界必须在选定切分点时确定
+        Long fromHistoryId = findSummaryBoundary(keptUserTurns);
+        try {
+            compactionExecutor.execute(() -> compact(prefix, previousSummary, fromHistoryId));
+        } catch (RejectedExecutionException e) {
+            compacting.set(false);
+            log.warn("提交对话压缩任务失败，memoryId: {}", id);
+        }
+    }
+
+    /**
+     * 查询切分点之后保留的第一条对话历史 id，作为重建记忆时加载历史的起点
+     *
+     * @param keptUserTurns 切分点之后保留的用户消息条数
+     * @return 对话历史 id，没有摘要存储或查询失败时返回 null
+     */
+    private Long findSummaryBoundary(int keptUserTurns) {
+        if (summaryStore == null) {
+            return null;
+        }
+        try {
+            return summaryStore.findBoundary(id, keptUserTurns);
+        } catch (Exception e) {
+            log.error("查询对话摘要边界失败，memoryId: {}, error: {}", id, e.getMessage(), e);
+            return null;
+        }
+    }
+
+    /**
+     * 选择压缩的切分位置：之后的消息不超过预算的 compactionTarget，且切分点必须是一条用户消息，
+     * 这样一轮对话中的工具调用与工具结果总是一起被保留或一起被压缩。需持有读锁
+     *
+     * @return 需要压缩的消息条数，没有合适的切分点时返回 0
+     */
+    private int findCompactionCut() {
+        long keepTokens = (long) (tokenBudget * compactionTarget);
+        long kept = 0;
+        int start = messages.size();
+        while (start > 0 && kept + messageTokens.get(start - 1) <= keepTokens) {
+            kept += messageTokens.get(--start);
+        }
+        for (int i = Math.max(start, 1); i < messages.size(); i++) {
+            if (messages.get(i) instanceof UserMessage) {
+                return i;
+            }
+        }
+        // 最近一轮本身就超过了保留比例，只保留最近一轮
+        for (int i = messages.size() - 1; i > 0; i--) {
+            if (messages.get(i) instanceof UserMessage) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * 生成摘要并替换被压缩的消息；摘要期间列表头部发生变化（如被清空）时放弃本次结果
+     *
+     * @param fromHistoryId 选定切分点时确定的历史边界，为 null 时只压缩内存中的记忆、不持久化摘要
+     */
+    private void compact(List<ChatMessage> prefix, String previousSummary, Long fromHistoryId) {
+        try {
+            String newSummary = summarizer.summarize(previousSummary, prefix);
+            if (newSummary == null || newSummary.isBlank()) {
+                return;
+            }
+            int newSummaryTokens = tokenCountEstimator.estimateTokenCountInText(newSummary);
+            int count = prefix.size();
+            long removedTokens;
+            lock.writeLock().lock();
+            try {
+                if (messages.size() < count || messages.get(0) != prefix.getFirst()
+                        || messages.get(count - 1) != prefix.getLast()) {
+                    log.info("对话记忆在压缩期间已变化，放弃本次摘要，memoryId: {}", id);
+                    return;
+                }
+                removedTokens = 0;
+                long removedChars = 0;
+                for (int i = 0; i < count; i++) {
+                    removedTokens += messageTokens.get(i);
+                    removedChars += sizeOf(messages.get(i));
+                }
+                messages.subList(0, count).clear();
+                messageTokens.subList(0, count).clear();
+                payloadChars.addAndGet(newSummary.length() - length(summary) - removedChars);
+                tokenCount += newSummaryTokens - summaryTokens - removedTokens;
+                summary = newSummary;
+                summaryTokens = newSummaryTokens;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            notifySizeChanged();
+            log.info("对话记忆已压缩，memoryId: {}, 压缩消息 {} 条（{} tokens），摘要 {} tokens",
+                    id, count, removedTokens, newSummaryTokens);
+            if (fromHistoryId != null) {
+                summaryStore.save(id, newSummary, fromHistoryId);
+            } else if (summaryStore != null) {
+                // 找不到边界时不保存，否则重建记忆时摘要与历史会重复
+                log.warn("未找到对话摘要的历史边界，跳过保存对话摘要，memoryId: {}", id);
+            }
+        } catch (Exception e) {
+            log.error("压缩对话记忆失败，memoryId: {}, error: {}", id, e.getMessage(), e);
+        } finally {
+            compacting.set(false);
+        }
+    }
+
+    /**
+     * 当前消息列表与摘要的 token 总数，未启用 token 预算时为 0
+     */
+    public long tokenCount() {
+        lock.readLock().lock();
+        try {
+            return tokenCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int countTokens(ChatMessage message) {
+        return tokenBudget > 0 ? tokenCountEstimator.estimateTokenCountInMessage(message) : 0;
+    }
+
+    /**
+     * 摘要以系统消息的形式放在系统提示词之后
+     */
+    static SystemMessage summaryMessage(String summary) {
+        return SystemMessage.from("以下是本次会话中更早对话的摘要，请结合摘要继续当前对话：\n" + summary);
+    }
+
+    /**
+     * 内存中消息内容占用的字节数估算（按每个字符 2 字节计算）
+     */
+    public long estimatedSizeInBytes() {
+        return payloadChars.get() * 2;
+    }
+
+    /**
+     * 设置消息内容大小变化时的回调
+     */
+    public void onSizeChanged(Runnable listener) {
+        this.sizeChangeListener = listener;
+    }
+
+    private void notifySizeChanged() {
+        Runnable listener = sizeChangeListener;
+        if (listener != null) {
+            listener.run();
+        }
+    }
+
+    /**
+     * 估算单条消息随内容增长的字符数
+     */
+    private static long sizeOf(ChatMessage message) {
+        return switch (message) {
+            case UserMessage userMessage -> userMessage.contents().stream()
+                    .mapToLong(content -> content instanceof TextContent text ? length(text.text()) : 0)
+                    .sum();
+            case AiMessage aiMessage -> length(aiMessage.text()) + (aiMessage.hasToolExecutionRequests()
+                    ? aiMessage.toolExecutionRequests().stream().mapToLong(request -> length(request.arguments())).sum()
+                    : 0);
+            case ToolExecutionResultMessage resultMessage -> length(resultMessage.text());
+            case SystemMessage systemMessage -> length(systemMessage.text());
+            default -> 0;
+        };
+    }
+
+    private static long length(String text) {
+        return text == null ? 0 : text.length();
     }
 
     // --- Builder 模式 ---
@@ -132,6 +640,17 @@ public class StatefulChatMemory implements ChatMemory {
         private Object id;
         private ChatMemoryStore store;
         private List<ChatMessage> messages;
+        private ChatHistoryLoader historyLoader;
+        private int recentWindow = 50;
+        private int pageSize = 200;
+        private int maxHistory = 1000;
+        private Executor historyExecutor;
+        private int tokenBudget;
+        private double compactionTarget = 0.5;
+        private TokenCountEstimator tokenCountEstimator;
+        private ChatSummarizer summarizer;
+        private ChatSummaryStore summaryStore;
+        private Executor compactionExecutor;
 
         public Builder id(Object id) {
             this.id = id;
@@ -151,6 +670,88 @@ public class StatefulChatMemory implements ChatMemory {
             return this;
         }
 
+        /**
+         * 历史加载器，创建后通过 hydrate() 或首次读取时加载历史
+         */
+        public Builder historyLoader(ChatHistoryLoader historyLoader) {
+            this.historyLoader = historyLoader;
+            return this;
+        }
+
+        /**
+         * hydrate() 加载的最近消息条数
+         */
+        public Builder recentWindow(int recentWindow) {
+            this.recentWindow = recentWindow;
+            return this;
+        }
+
+        /**
+         * 懒加载更早历史时每页的条数
+         */
+        public Builder pageSize(int pageSize) {
+            this.pageSize = pageSize;
+            return this;
+        }
+
+        /**
+         * 最多加载的历史条数
+         */
+        public Builder maxHistory(int maxHistory) {
+            this.maxHistory = maxHistory;
+            return this;
+        }
+
+        /**
+         * 在后台加载更早历史的执行器，为 null 时在首次读取时同步加载
+         */
+        public Builder historyExecutor(Executor historyExecutor) {
+            this.historyExecutor = historyExecutor;
+            return this;
+        }
+
+        /**
+         * token 预算，超出后把最早的对话压缩为摘要；为 0 时关闭，需同时设置估算器、摘要器和执行器才会生效
+         */
+        public Builder tokenBudget(int tokenBudget) {
+            this.tokenBudget = tokenBudget;
+            return this;
+        }
+
+        /**
+         * 压缩后保留的最近消息占预算的比例
+         */
+        public Builder compactionTarget(double compactionTarget) {
+            this.compactionTarget = compactionTarget;
+            return this;
+        }
+
+        public Builder tokenCountEstimator(TokenCountEstimator tokenCountEstimator) {
+            this.tokenCountEstimator = tokenCountEstimator;
+            return this;
+        }
+
+        public Builder summarizer(ChatSummarizer summarizer) {
+            this.summarizer = summarizer;
+            return this;
+        }
+
+        /**
+         * 摘要的持久化存储，为 null 时摘要只保存在内存中
+         */
+        public Builder summaryStore(ChatSummaryStore summaryStore) {
+            this.summaryStore = summaryStore;
+            return this;
+        }
+
+        /**
+         * 运行压缩任务的执行器
+         */
+        public Builder compactionExecutor(Executor compactionExecutor) {
+            this.compactionExecutor = compactionExecutor;
+            return this;
+        }
+
         public StatefulChatMemory build() {
             if (store == null) {
                 throw new IllegalArgumentException("ChatMemoryStore must be provided.");
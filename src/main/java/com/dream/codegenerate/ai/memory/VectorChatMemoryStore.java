@@ -4,7 +4,6 @@ import com.dream.codegenerate.service.ChatMessagesService;
 import com.dream.codegenerate.utils.ChatMessageJsonConverter;
 import dev.langchain4j.data.message.ChatMessage;
 import dev.langchain4j.data.message.ChatMessageDeserializer;
-import dev.langchain4j.store.memory.chat.ChatMemoryStore;
 import jakarta.annotation.Resource;
 import org.springframework.stereotype.Component;
 
@@ -18,7 +17,7 @@ import java.util.List;
  * Created by womon
  */
 @Component
-public class VectorChatMemoryStore implements ChatMemoryStore {
+public class VectorChatMemoryStore implements AppendOnlyChatMemoryStore {
 
 
     @Resource
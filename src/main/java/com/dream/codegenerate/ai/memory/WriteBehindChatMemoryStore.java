@@ -0,0 +1,325 @@
+package com.dream.codegenerate.ai.memory;
+
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 后台写入（write-behind）的对话记忆存储
+ * updateMessages / deleteMessages 只把操作放入该记忆自己的有序队列后立即返回，不阻塞流式回调；
+ * 每个有待写入操作的记忆由一个虚拟线程按顺序批量写入底层存储，同一记忆同一时间只有一个线程在写，保证顺序。
+ * 读取（getMessages）前会先写完该记忆的积压操作；关闭时等待所有积压操作写完。
+ * 底层存储实现了 {@link AppendOnlyChatMemoryStore} 时，连续的多次追加合并为一次调用。
+ * 写入失败时只重试可以安全重放的操作：删除、整体覆盖式的写入，以及支持按批次 ID 去重的追加；
+ * 不能去重的追加在超时后可能已经写入，重试会重复追加消息，因此直接计为失败。
+ */
+@Slf4j
+public class WriteBehindChatMemoryStore implements ChatMemoryStore, AutoCloseable {
+
+    /**
+     * 单批写入失败后的最大重试次数
+     */
+    private static final int MAX_RETRIES = 3;
+
+    private final ChatMemoryStore delegate;
+
+    private final Duration flushDelay;
+
+    private final int maxBatchSize;
+
+    private final Duration drainTimeout;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final Map<Object, MemoryQueue> queues = new ConcurrentHashMap<>();
+
+    private final AtomicLong pending = new AtomicLong();
+
+    private final AtomicLong failed = new AtomicLong();
+
+    private volatile boolean closed;
+
+    /**
+     * @param delegate     底层存储
+     * @param flushDelay   第一条操作入队后等待多久再写入，用于攒批；为 0 时立即写入
+     * @param maxBatchSize 单次写入合并的最大追加条数
+     * @param drainTimeout 关闭时等待积压操作写完的最长时间
+     */
+    public WriteBehindChatMemoryStore(ChatMemoryStore delegate, Duration flushDelay, int maxBatchSize,
+                                      Duration drainTimeout) {
+        this.delegate = delegate;
+        this.flushDelay = flushDelay;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.drainTimeout = drainTimeout;
+    }
+
+    /**
+     * 先写完该记忆的积压操作，再从底层存储读取
+     */
+    @Override
+    public List<ChatMessage> getMessages(Object memoryId) {
+        MemoryQueue queue = queues.get(memoryId);
+        if (queue != null) {
+            drain(queue);
+        }
+        return delegate.getMessages(memoryId);
+    }
+
+    @Override
+    public void updateMessages(Object memoryId, List<ChatMessage> messages) {
+        if (messages == null || messages.isEmpty()) {
+            return;
+        }
+        enqueue(memoryId, new Operation(List.copyOf(messages)), false);
+    }
+
+    /**
+     * 删除会丢弃该记忆尚未写入的追加操作
+     */
+    @Override
+    public void deleteMessages(Object memoryId) {
+        enqueue(memoryId, Operation.DELETE, true);
+    }
+
+    /**
+     * 尚未写入底层存储的操作数
+     */
+    public long pendingCount() {
+        return pending.get();
+    }
+
+    /**
+     * 重试后仍写入失败而被丢弃的操作数
+     */
+    public long failedCount() {
+        return failed.get();
+    }
+
+    /**
+     * 停止接收后台写入，并等待积压操作写完；之后的写入直接同步写入底层存储
+     */
+    @Override
+    public void close() {
+        closed = true;
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(drainTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                log.warn("等待对话记忆后台写入超时，剩余 {} 条操作", pending.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // 未能提交到执行器或超时未写完的操作，在当前线程写完
+        for (MemoryQueue queue : queues.values()) {
+            drain(queue);
+        }
+    }
+
+    private void enqueue(Object memoryId, Operation operation, boolean discardPending) {
+        if (closed) {
+            apply(memoryId, List.of(operation));
+            return;
+        }
+        while (true) {
+            MemoryQueue queue = queues.computeIfAbsent(memoryId, MemoryQueue::new);
+            boolean schedule;
+            synchronized (queue) {
+                if (queue.retired) {
+                    // 队列刚被清理，重新获取
+                    continue;
+                }
+                if (discardPending) {
+                    pending.addAndGet(-queue.operations.size());
+                    queue.operations.clear();
+                }
+                queue.operations.addLast(operation);
+                pending.incrementAndGet();
+                schedule = !queue.scheduled;
+                queue.scheduled = true;
+            }
+            if (schedule) {
+                try {
+                    executor.execute(() -> flush(queue));
+                } catch (RejectedExecutionException e) {
+                    // 正在关闭，在当前线程写入
+                    flush(queue);
+                }
+            }
+            return;
+        }
+    }
+
+    /**
+     * 后台写入任务：攒批后写完该记忆的所有操作，队列为空时清理队列
+     */
+    private void flush(MemoryQueue queue) {
+        if (!flushDelay.isZero() && !closed) {
+            try {
+                Thread.sleep(flushDelay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        while (true) {
+            drain(queue);
+            synchronized (queue) {
+                if (queue.operations.isEmpty()) {
+                    queue.scheduled = false;
+                    queue.retired = true;
+                    queues.remove(queue.memoryId, queue);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * 按顺序写完队列中当前的所有操作，同一队列同一时间只有一个线程在写
+     */
+    private void drain(MemoryQueue queue) {
+        queue.writeLock.lock();
+        try {
+            List<Operation> batch;
+            while (!(batch = nextBatch(queue)).isEmpty()) {
+                apply(queue.memoryId, batch);
+                pending.addAndGet(-batch.size());
+            }
+        } finally {
+            queue.writeLock.unlock();
+        }
+    }
+
+    /**
+     * 取出队首的一批操作：一个删除操作，或最多 maxBatchSize 条消息的连续追加操作
+     */
+    private List<Operation> nextBatch(MemoryQueue queue) {
+        synchronized (queue) {
+            List<Operation> batch = new ArrayList<>();
+            int messages = 0;
+            while (!queue.operations.isEmpty()) {
+                Operation next = queue.operations.peekFirst();
+                if (next.isDelete()) {
+                    if (batch.isEmpty()) {
+                        batch.add(queue.operations.pollFirst());
+                    }
+                    break;
+                }
+                if (!batch.isEmpty() && messages + next.messages().size() > maxBatchSize) {
+                    break;
+                }
+                batch.add(queue.operations.pollFirst());
+                messages += next.messages().size();
+            }
+            return batch;
+        }
+    }
+
+    private void apply(Object memoryId, List<Operation> batch) {
+        // 同一批次的重试使用同一个 ID，存储据此去重
+        String batchId = UUID.randomUUID().toString();
+        boolean retryable = isRetryable(batch);
+        for (int attempt = 1; ; attempt++) {
+            try {
+                write(memoryId, batch, batchId);
+                return;
+            } catch (Exception e) {
+                if (!retryable || attempt > MAX_RETRIES) {
+                    failed.addAndGet(batch.size());
+                    log.error("对话记忆后台写入失败，已丢弃 {} 条操作，memoryId: {}, error: {}",
+                            batch.size(), memoryId, e.getMessage(), e);
+                    return;
+                }
+                try {
+                    Thread.sleep(100L * attempt);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    /**
+     * 失败后重放该批操作是否安全
+     */
+    private boolean isRetryable(List<Operation> batch) {
+        if (batch.getFirst().isDelete()) {
+            return true;
+        }
+        if (delegate instanceof AppendOnlyChatMemoryStore appendOnlyStore) {
+            return appendOnlyStore.supportsIdempotentAppend();
+        }
+        return true;
+    }
+
+    private void write(Object memoryId, List<Operation> batch, String batchId) {
+        if (batch.getFirst().isDelete()) {
+            delegate.deleteMessages(memoryId);
+            return;
+        }
+        if (delegate instanceof AppendOnlyChatMemoryStore appendOnlyStore) {
+            List<ChatMessage> messages = new ArrayList<>();
+            for (Operation operation : batch) {
+                messages.addAll(operation.messages());
+            }
+            appendOnlyStore.appendMessages(memoryId, messages, batchId);
+            return;
+        }
+        // 其他存储保持原有的调用方式，每次调用只传入一次追加的消息
+        for (Operation operation : batch) {
+            delegate.updateMessages(memoryId, operation.messages());
+        }
+    }
+
+    /**
+     * 一次追加（messages 不为空）或一次删除（messages 为 null）
+     */
+    private record Operation(List<ChatMessage> messages) {
+
+        private static final Operation DELETE = new Operation(null);
+
+        boolean isDelete() {
+            return messages == null;
+        }
+    }
+
+    /**
+     * 单个记忆的待写入操作队列
+     */
+    private static final class MemoryQueue {
+
+        private final Object memoryId;
+
+        private final Deque<Operation> operations = new ArrayDeque<>();
+
+        private final ReentrantLock writeLock = new ReentrantLock();
+
+        /**
+         * 是否已有后台任务负责该队列，由 this 保护
+         */
+        private boolean scheduled;
+
+        /**
+         * 队列已从 queues 中移除，不能再放入操作，由 this 保护
+         */
+        private boolean retired;
+
+        private MemoryQueue(Object memoryId) {
+            this.memoryId = memoryId;
+        }
+    }
+}
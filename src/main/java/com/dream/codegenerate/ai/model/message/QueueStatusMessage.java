@@ -0,0 +1,30 @@
+package com.dream.codegenerate.ai.model.message;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+/**
+ * 排队状态消息，生成请求在准入队列中等待时推送
+ */
+@EqualsAndHashCode(callSuper = true)
+@Data
+@NoArgsConstructor
+public class QueueStatusMessage extends StreamMessage {
+
+    /**
+     * 当前排在第几位，从 1 开始
+     */
+    private int position;
+
+    /**
+     * 预计还需等待的秒数，样本不足时为 -1
+     */
+    private long estimatedWaitSeconds;
+
+    public QueueStatusMessage(int position, long estimatedWaitSeconds) {
+        super(StreamMessageTypeEnum.QUEUE.getValue());
+        this.position = position;
+        this.estimatedWaitSeconds = estimatedWaitSeconds;
+    }
+}
@@ -0,0 +1,31 @@
+package com.dream.codegenerate.ai.model.message;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+/**
+ * 续传缺口消息：订阅者落后太多，部分事件已从缓冲区淘汰，无法继续增量续传
+ * 收到后客户端应停止拼接增量内容，改为重新加载对话历史
+ */
+@EqualsAndHashCode(callSuper = true)
+@Data
+@NoArgsConstructor
+public class ReplayGapMessage extends StreamMessage {
+
+    /**
+     * 缺失的第一个事件序号
+     */
+    private long fromSequence;
+
+    /**
+     * 缺失的最后一个事件序号
+     */
+    private long toSequence;
+
+    public ReplayGapMessage(long fromSequence, long toSequence) {
+        super(StreamMessageTypeEnum.REPLAY_GAP.getValue());
+        this.fromSequence = fromSequence;
+        this.toSequence = toSequence;
+    }
+}
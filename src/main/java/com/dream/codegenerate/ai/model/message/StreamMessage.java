@@ -1,11 +1,13 @@
 package com.dream.codegenerate.ai.model.message;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 /**
  * 流式消息响应基类
+ * 生成流在服务端内部始终以该类型（及其子类）传递，仅在 HTTP 出口处序列化一次
  */
 @Data
 @AllArgsConstructor
@@ -22,6 +24,7 @@ public class StreamMessage {
      * 这使得所有继承此类或实现相关接口的子类都能被统一处理。
      * @return 事件类型字符串
      */
+    @JsonIgnore
     public String getEventType() {
         return this.type;
     }
@@ -11,7 +11,10 @@ public enum StreamMessageTypeEnum {
     AI_RESPONSE("ai_response", "AI响应"),
     TOOL_REQUEST("tool_request", "工具请求"),
     TOOL_EXECUTED("tool_executed", "工具执行结果"),
-    TOOL_STREAM("tool_stream", "工具流式执行结果") ;
+    TOOL_STREAM("tool_stream", "工具流式执行结果"),
+    QUEUE("queue", "排队状态"),
+    REPLAY_GAP("replay_gap", "事件已过期无法续传"),
+    DONE("done", "生成结束");
 
     private final String value;
     private final String text;
@@ -5,6 +5,8 @@ import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 
+import java.util.Map;
+
 /**
  * 工具调用消息
  */
@@ -17,8 +19,26 @@ public class ToolRequestMessage extends StreamMessage {
 
     private String name;
 
+    /**
+     * 本次参数增量（原始 JSON 片段）
+     */
     private String arguments;
 
+    /**
+     * 截至目前已完整解析的顶层字段（如 relativeFilePath、actionDescription），只包含较短的字符串与标量值
+     */
+    private Map<String, String> fields;
+
+    /**
+     * 正在流式接收的字符串字段名（如 content）
+     */
+    private String streamingField;
+
+    /**
+     * 正在流式接收的字段本次新增的已解码内容
+     */
+    private String streamingDelta;
+
     public ToolRequestMessage(ToolExecutionRequest toolExecutionRequest) {
         super(StreamMessageTypeEnum.TOOL_REQUEST.getValue());
         this.id = toolExecutionRequest.id();
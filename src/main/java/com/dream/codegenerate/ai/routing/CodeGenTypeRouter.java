@@ -0,0 +1,181 @@
+package com.dream.codegenerate.ai.routing;
+
+import cn.hutool.crypto.digest.DigestUtil;
+import com.dream.codegenerate.ai.AiCodeGenTypeRoutingServiceFactory;
+import com.dream.codegenerate.config.RoutingCacheConfig;
+import com.dream.codegenerate.config.RoutingClassifierConfig;
+import com.dream.codegenerate.model.enums.CodeGenTypeEnum;
+import com.dream.codegenerate.utils.EmbeddingUtils;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import dev.langchain4j.data.embedding.Embedding;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * 代码生成类型路由（带缓存）
+ * <p>
+ * 大部分新建应用的 prompt 都是近似重复的（如"做一个待办应用"），这里在调用路由模型前依次查找：
+ * 1. 精确匹配：规范化后的 prompt 哈希；
+ * 2. 本地分类器：置信度达到阈值时直接采用其结果（见 {@link LinearRoutingClassifier}）；
+ * 3. 语义匹配：与历史 prompt 向量的最近邻，余弦相似度达到阈值时复用其路由结果。
+ * 都未命中时才调用路由模型，并把结果写回缓存。向量化失败时跳过语义匹配。
+ */
+@Slf4j
+@Component
+public class CodeGenTypeRouter {
+
+    @Resource
+    private AiCodeGenTypeRoutingServiceFactory aiCodeGenTypeRoutingServiceFactory;
+
+    @Resource
+    private EmbeddingUtils embeddingUtils;
+
+    @Resource
+    private RoutingCacheConfig routingCacheConfig;
+
+    @Resource
+    private RoutingClassifierConfig routingClassifierConfig;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 本地分类器，未加载模型时为 null
+     */
+    private volatile LinearRoutingClassifier classifier;
+
+    private Cache<String, CodeGenTypeEnum> exactCache;
+
+    private RoutingEmbeddingIndex embeddingIndex;
+
+    @PostConstruct
+    public void init() {
+        exactCache = Caffeine.newBuilder()
+                .maximumSize(routingCacheConfig.getMaxEntries())
+                .build();
+        embeddingIndex = new RoutingEmbeddingIndex(routingCacheConfig.getSemanticMaxEntries());
+        reloadClassifier();
+    }
+
+    /**
+     * 从配置的路径重新加载本地分类器，加载失败时保留原有模型
+     *
+     * @return 是否加载成功
+     */
+    public boolean reloadClassifier() {
+        if (!routingClassifierConfig.isEnabled()) {
+            classifier = null;
+            return false;
+        }
+        Path path = Path.of(routingClassifierConfig.getModelPath());
+        if (!Files.exists(path)) {
+            log.info("路由分类器模型文件不存在，仅使用缓存和路由模型: {}", path.toAbsolutePath());
+            return false;
+        }
+        try {
+            classifier = LinearRoutingClassifier.load(path);
+            log.info("已加载路由分类器模型: {}", path.toAbsolutePath());
+            return true;
+        } catch (IOException e) {
+            log.error("加载路由分类器模型失败: {}", path.toAbsolutePath(), e);
+            return false;
+        }
+    }
+
+    /**
+     * 根据用户需求选择代码生成类型
+     *
+     * @param userPrompt 用户输入的需求描述
+     * @param apiKey     用户的 API Key，缓存未命中时用于调用路由模型
+     * @return 代码生成类型
+     */
+    public CodeGenTypeEnum route(String userPrompt, String apiKey) {
+        if (!routingCacheConfig.isEnabled()) {
+            CodeGenTypeEnum classified = classify(userPrompt);
+            return classified != null ? classified : routeByModel(userPrompt, apiKey);
+        }
+        String key = DigestUtil.sha256Hex(normalize(userPrompt));
+        CodeGenTypeEnum cached = exactCache.getIfPresent(key);
+        if (cached != null) {
+            count("exact");
+            return cached;
+        }
+        CodeGenTypeEnum classified = classify(userPrompt);
+        if (classified != null) {
+            exactCache.put(key, classified);
+            return classified;
+        }
+        float[] vector = embed(userPrompt);
+        if (vector != null) {
+            CodeGenTypeEnum nearest = embeddingIndex.nearest(vector, routingCacheConfig.getSimilarityThreshold());
+            if (nearest != null) {
+                count("semantic");
+                exactCache.put(key, nearest);
+                return nearest;
+            }
+        }
+        count("miss");
+        CodeGenTypeEnum routed = routeByModel(userPrompt, apiKey);
+        exactCache.put(key, routed);
+        if (vector != null) {
+            embeddingIndex.add(vector, routed);
+        }
+        return routed;
+    }
+
+    /**
+     * 使用本地分类器预测，置信度不足或未加载模型时返回 null
+     */
+    private CodeGenTypeEnum classify(String userPrompt) {
+        LinearRoutingClassifier current = classifier;
+        if (current == null) {
+            return null;
+        }
+        LinearRoutingClassifier.Prediction prediction = current.predict(userPrompt);
+        if (prediction.confidence() < routingClassifierConfig.getConfidenceThreshold()) {
+            return null;
+        }
+        count("classifier");
+        return prediction.type();
+    }
+
+    private CodeGenTypeEnum routeByModel(String userPrompt, String apiKey) {
+        return aiCodeGenTypeRoutingServiceFactory.createAiCodeGenTypeRoutingService(apiKey).routeCodeGenType(userPrompt);
+    }
+
+    private float[] embed(String userPrompt) {
+        try {
+            Embedding embedding = embeddingUtils.embeddingShortText(userPrompt);
+            return embedding == null ? null : embedding.vector();
+        } catch (Exception e) {
+            // 向量化失败不影响路由，只是无法语义命中
+            log.warn("路由 prompt 向量化失败: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private void count(String result) {
+        Counter.builder("codegen.routing.cache")
+                .description("代码生成类型路由缓存的命中情况")
+                .tag("result", result)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * 规范化 prompt：去除首尾空白、统一小写、合并连续空白
+     */
+    static String normalize(String userPrompt) {
+        return userPrompt.strip().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ");
+    }
+}
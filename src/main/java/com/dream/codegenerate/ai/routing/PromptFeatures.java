@@ -0,0 +1,105 @@
+package com.dream.codegenerate.ai.routing;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 路由分类器的 prompt 特征提取
+ * <p>
+ * 中文需求没有空格分词，这里使用字符 1~3-gram 加英文单词，经特征哈希映射到固定维度；
+ * 另外追加若干人工关键词特征和长度特征，放在哈希维度之后的固定位置。
+ * 同一个 prompt 总是得到同样的特征，训练和线上预测必须使用同一份实现。
+ */
+public final class PromptFeatures {
+
+    /**
+     * 对复杂度有明显指示作用的关键词，顺序决定特征位置，只能在末尾追加
+     */
+    static final List<String> KEYWORDS = List.of(
+            "vue", "react", "组件", "路由", "登录", "注册", "后台", "管理系统", "权限", "数据库",
+            "接口", "状态", "购物车", "商城", "图表", "仪表盘", "多页面", "页面跳转", "交互", "动态",
+            "单页", "一个页面", "静态", "展示", "介绍", "简历", "落地页", "宣传", "简单", "个人主页",
+            "css", "js", "样式", "脚本", "分离");
+
+    /**
+     * 长度特征的分段（字符数）
+     */
+    private static final int[] LENGTH_BUCKETS = {20, 50, 100, 200};
+
+    private PromptFeatures() {
+    }
+
+    /**
+     * 特征向量的总维度
+     */
+    public static int dimensions(int hashDimensions) {
+        return hashDimensions + KEYWORDS.size() + LENGTH_BUCKETS.length + 1;
+    }
+
+    /**
+     * 提取特征，哈希部分按 L2 归一化
+     */
+    public static SparseVector extract(String prompt, int hashDimensions) {
+        String text = CodeGenTypeRouter.normalize(prompt);
+        Map<Integer, Float> features = new TreeMap<>();
+        addNgrams(text, hashDimensions, features);
+        double norm = 0;
+        for (float value : features.values()) {
+            norm += value * value;
+        }
+        if (norm > 0) {
+            float scale = (float) (1 / Math.sqrt(norm));
+            features.replaceAll((index, value) -> value * scale);
+        }
+        for (int i = 0; i < KEYWORDS.size(); i++) {
+            if (text.contains(KEYWORDS.get(i))) {
+                features.put(hashDimensions + i, 1f);
+            }
+        }
+        int lengthBase = hashDimensions + KEYWORDS.size();
+        int bucket = 0;
+        while (bucket < LENGTH_BUCKETS.length && text.length() > LENGTH_BUCKETS[bucket]) {
+            bucket++;
+        }
+        features.put(lengthBase + bucket, 1f);
+        int[] indices = new int[features.size()];
+        float[] values = new float[features.size()];
+        int i = 0;
+        for (Map.Entry<Integer, Float> entry : features.entrySet()) {
+            indices[i] = entry.getKey();
+            values[i] = entry.getValue();
+            i++;
+        }
+        return new SparseVector(indices, values);
+    }
+
+    private static void addNgrams(String text, int hashDimensions, Map<Integer, Float> features) {
+        int[] codePoints = text.codePoints().toArray();
+        for (int n = 1; n <= 3; n++) {
+            for (int start = 0; start + n <= codePoints.length; start++) {
+                String gram = new String(codePoints, start, n);
+                if (gram.isBlank()) {
+                    continue;
+                }
+                features.merge(bucket("c" + n + ":" + gram, hashDimensions), 1f, Float::sum);
+            }
+        }
+        for (String word : text.split("[^a-z0-9]+")) {
+            if (word.length() > 1) {
+                features.merge(bucket("w:" + word.toLowerCase(Locale.ROOT), hashDimensions), 1f, Float::sum);
+            }
+        }
+    }
+
+    private static int bucket(String feature, int hashDimensions) {
+        return Math.floorMod(feature.hashCode() * 0x9E3779B9, hashDimensions);
+    }
+
+    /**
+     * 稀疏特征向量，indices 升序
+     */
+    public record SparseVector(int[] indices, float[] values) {
+    }
+}
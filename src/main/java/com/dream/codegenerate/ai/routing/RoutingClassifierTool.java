@@ -0,0 +1,128 @@
+package com.dream.codegenerate.ai.routing;
+
+import cn.hutool.core.text.csv.CsvData;
+import cn.hutool.core.text.csv.CsvReadConfig;
+import cn.hutool.core.text.csv.CsvRow;
+import cn.hutool.core.text.csv.CsvUtil;
+import cn.hutool.core.util.StrUtil;
+import com.dream.codegenerate.model.enums.CodeGenTypeEnum;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 路由分类器的离线训练与评估工具
+ * <p>
+ * 输入为 app 表的 CSV 导出（带表头，至少包含 initPrompt 和 codeGenType 两列），
+ * 可用数据库客户端将 {@code select initPrompt, codeGenType from app where isDelete = 0} 的结果导出为 CSV。
+ * 用法：
+ * <ul>
+ *     <li>train &lt;app.csv&gt; &lt;model.json&gt;：使用全部数据训练并导出模型</li>
+ *     <li>evaluate &lt;app.csv&gt; [model.json] [threshold]：评估准确率和可省去的模型调用数；
+ *     不指定模型时按 8:2 切分，用前 80% 训练、后 20% 评估</li>
+ * </ul>
+ */
+public class RoutingClassifierTool {
+
+    private static final double[] THRESHOLDS = {0.5, 0.6, 0.7, 0.8, 0.9, 0.95, 0.99};
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("用法: train <app.csv> <model.json> | evaluate <app.csv> [model.json] [threshold]");
+            return;
+        }
+        List<LinearRoutingClassifier.LabeledPrompt> samples = readDump(Path.of(args[1]));
+        System.out.printf("读取样本 %d 条%n", samples.size());
+        switch (args[0]) {
+            case "train" -> {
+                if (args.length < 3) {
+                    System.out.println("请指定模型输出路径");
+                    return;
+                }
+                LinearRoutingClassifier classifier = LinearRoutingClassifier.train(samples,
+                        LinearRoutingClassifier.TrainingOptions.defaults());
+                classifier.save(Path.of(args[2]));
+                System.out.printf("模型已导出到 %s%n", args[2]);
+            }
+            case "evaluate" -> {
+                LinearRoutingClassifier classifier;
+                List<LinearRoutingClassifier.LabeledPrompt> testSet;
+                if (args.length >= 3) {
+                    classifier = LinearRoutingClassifier.load(Path.of(args[2]));
+                    testSet = samples;
+                } else {
+                    List<LinearRoutingClassifier.LabeledPrompt> shuffled = new ArrayList<>(samples);
+                    Collections.shuffle(shuffled, new Random(42));
+                    int split = (int) (shuffled.size() * 0.8);
+                    classifier = LinearRoutingClassifier.train(shuffled.subList(0, split),
+                            LinearRoutingClassifier.TrainingOptions.defaults());
+                    testSet = shuffled.subList(split, shuffled.size());
+                    System.out.printf("训练 %d 条，评估 %d 条%n", split, testSet.size());
+                }
+                double threshold = args.length >= 4 ? Double.parseDouble(args[3]) : -1;
+                evaluate(classifier, testSet, threshold);
+            }
+            default -> System.out.println("未知命令: " + args[0]);
+        }
+    }
+
+    /**
+     * 读取 app 表的 CSV 导出，跳过 prompt 为空或类型未知的行
+     */
+    static List<LinearRoutingClassifier.LabeledPrompt> readDump(Path path) {
+        CsvReadConfig config = CsvReadConfig.defaultConfig().setContainsHeader(true);
+        CsvData data = CsvUtil.getReader(config).read(path.toFile(), StandardCharsets.UTF_8);
+        List<LinearRoutingClassifier.LabeledPrompt> samples = new ArrayList<>(data.getRowCount());
+        for (CsvRow row : data.getRows()) {
+            String prompt = row.getByName("initPrompt");
+            CodeGenTypeEnum type = CodeGenTypeEnum.getEnumByValue(row.getByName("codeGenType"));
+            if (StrUtil.isNotBlank(prompt) && type != null) {
+                samples.add(new LinearRoutingClassifier.LabeledPrompt(prompt, type));
+            }
+        }
+        return samples;
+    }
+
+    /**
+     * 输出总体准确率，以及各置信度阈值下本地直接回答的比例（即省去的模型调用）和这部分的准确率
+     */
+    static void evaluate(LinearRoutingClassifier classifier, List<LinearRoutingClassifier.LabeledPrompt> testSet,
+                         double threshold) {
+        if (testSet.isEmpty()) {
+            System.out.println("没有可评估的样本");
+            return;
+        }
+        List<LinearRoutingClassifier.Prediction> predictions = new ArrayList<>(testSet.size());
+        int correct = 0;
+        for (LinearRoutingClassifier.LabeledPrompt sample : testSet) {
+            LinearRoutingClassifier.Prediction prediction = classifier.predict(sample.prompt());
+            predictions.add(prediction);
+            if (prediction.type() == sample.type()) {
+                correct++;
+            }
+        }
+        System.out.printf("总体准确率: %.2f%% (%d/%d)%n", 100.0 * correct / testSet.size(), correct, testSet.size());
+        System.out.println("阈值\t本地回答(省去的模型调用)\t本地回答准确率");
+        double[] thresholds = threshold >= 0 ? new double[]{threshold} : THRESHOLDS;
+        for (double t : thresholds) {
+            int answered = 0;
+            int answeredCorrect = 0;
+            for (int i = 0; i < testSet.size(); i++) {
+                LinearRoutingClassifier.Prediction prediction = predictions.get(i);
+                if (prediction.confidence() >= t) {
+                    answered++;
+                    if (prediction.type() == testSet.get(i).type()) {
+                        answeredCorrect++;
+                    }
+                }
+            }
+            System.out.printf("%.2f\t%d (%.2f%%)\t%s%n", t, answered, 100.0 * answered / testSet.size(),
+                    answered == 0 ? "-" : String.format("%.2f%%", 100.0 * answeredCorrect / answered));
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.dream.codegenerate.ai.routing;
+
+import com.dream.codegenerate.model.enums.CodeGenTypeEnum;
+
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 已路由 prompt 的向量索引，用于按语义近邻复用路由结果
+ * <p>
+ * 向量写入时归一化，查询时逐条计算点积（即余弦相似度）。容量固定，写满后覆盖最早写入的条目；
+ * 路由缓存的规模在数千条以内，暴力检索只需几毫秒，远小于一次模型调用。
+ */
+public class RoutingEmbeddingIndex {
+
+    private final float[][] vectors;
+    private final CodeGenTypeEnum[] types;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    /**
+     * 下一次写入的位置
+     */
+    private int next;
+    private int size;
+
+    public RoutingEmbeddingIndex(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.vectors = new float[capacity][];
+        this.types = new CodeGenTypeEnum[capacity];
+    }
+
+    /**
+     * 写入一条路由结果
+     */
+    public void add(float[] vector, CodeGenTypeEnum type) {
+        float[] normalized = normalize(vector);
+        if (normalized == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            vectors[next] = normalized;
+            types[next] = type;
+            next = (next + 1) % vectors.length;
+            size = Math.min(size + 1, vectors.length);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 查找相似度不低于阈值的最近邻
+     *
+     * @return 最近邻的路由结果，没有满足阈值的条目时返回 null
+     */
+    public CodeGenTypeEnum nearest(float[] vector, double minSimilarity) {
+        float[] query = normalize(vector);
+        if (query == null) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            CodeGenTypeEnum best = null;
+            double bestSimilarity = minSimilarity;
+            for (int i = 0; i < size; i++) {
+                float[] candidate = vectors[i];
+                if (candidate.length != query.length) {
+                    continue;
+                }
+                double similarity = dot(candidate, query);
+                if (similarity >= bestSimilarity) {
+                    bestSimilarity = similarity;
+                    best = types[i];
+                }
+            }
+            return best;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static double dot(float[] a, float[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    private static float[] normalize(float[] vector) {
+        if (vector == null || vector.length == 0) {
+            return null;
+        }
+        double norm = Math.sqrt(dot(vector, vector));
+        if (norm == 0) {
+            return null;
+        }
+        float[] normalized = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = (float) (vector[i] / norm);
+        }
+        return normalized;
+    }
+}
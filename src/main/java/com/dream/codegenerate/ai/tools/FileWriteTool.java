@@ -4,17 +4,17 @@ import cn.hutool.core.io.FileUtil;
 import cn.hutool.json.JSONObject;
 import cn.hutool.json.JSONUtil;
 import com.dream.codegenerate.ai.model.ToolResponse;
-import com.dream.codegenerate.constant.AppConstant;
+import com.dream.codegenerate.ai.tools.stream.SpeculativeFileWriter;
 import dev.langchain4j.agent.tool.P;
 import dev.langchain4j.agent.tool.Tool;
 import dev.langchain4j.agent.tool.ToolMemoryId;
+import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
 
 /**
@@ -25,6 +25,9 @@ import java.nio.file.StandardOpenOption;
 @Component
 public class FileWriteTool extends BaseTool {
 
+    @Resource
+    private SpeculativeFileWriter speculativeFileWriter;
+
     @Tool("写入文件到指定路径")
     public String writeFile(
             @P("文件的相对路径")
@@ -37,22 +40,20 @@ public class FileWriteTool extends BaseTool {
 
     ) {
         try {
-            Path path = Paths.get(relativeFilePath);
-            if (!path.isAbsolute()) {
-                // 相对路径处理，创建基于 appId 的项目目录
-                String projectDirName = getContext(appId).getCodeGenType().getValue()+"_" + appId;
-                Path projectRoot = Paths.get(AppConstant.CODE_OUTPUT_ROOT_DIR, projectDirName);
-                path = projectRoot.resolve(relativeFilePath);
-            }
-            // 创建父目录（如果不存在）
-            Path parentDir = path.getParent();
-            if (parentDir != null) {
-                Files.createDirectories(parentDir);
+            // 相对路径处理，基于 appId 的项目目录
+            Path path = speculativeFileWriter.resolveTarget(relativeFilePath, appId);
+            // 参数流式到达时已推测写入临时文件，内容一致则只需原子重命名
+            if (!speculativeFileWriter.commit(appId, path, content)) {
+                // 创建父目录（如果不存在）
+                Path parentDir = path.getParent();
+                if (parentDir != null) {
+                    Files.createDirectories(parentDir);
+                }
+                // 写入文件内容
+                Files.write(path, content.getBytes(),
+                        StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING);
             }
-            // 写入文件内容
-            Files.write(path, content.getBytes(),
-                    StandardOpenOption.CREATE,
-                    StandardOpenOption.TRUNCATE_EXISTING);
             log.info("成功写入文件: {}", path.toAbsolutePath());
             // 注意要返回相对路径，不能让 AI 把文件绝对路径返回给用户
             // 构建一个JSON字符串
@@ -0,0 +1,271 @@
+package com.dream.codegenerate.ai.tools.stream;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * 增量、可恢复的 JSON 解析器
+ * 逐段消费模型流式返回的工具参数，状态在两次 {@link #feed} 之间保留，每个字符只扫描一次。
+ * 解析过程以事件形式交给 {@link Listener}：字符串值一边到达一边解码（包括被截断的转义与 \\uXXXX），
+ * 标量值（数字、布尔、null）完整后一次性回调。字段路径形如 {@code content}、{@code options.items[0]}。
+ * 解析器只做宽松校验，遇到不合法的输入不会抛出异常，结果以最终的完整参数为准。
+ */
+public class IncrementalJsonParser {
+
+    /**
+     * 解析事件监听器
+     */
+    public interface Listener {
+
+        /**
+         * 字符串值的一段已解码内容
+         */
+        default void onStringChunk(String path, CharSequence chunk) {
+        }
+
+        /**
+         * 字符串值结束
+         */
+        default void onStringEnd(String path) {
+        }
+
+        /**
+         * 标量值（数字、true、false、null）结束
+         */
+        default void onScalar(String path, String literal) {
+        }
+
+        /**
+         * 顶层 JSON 值已完整
+         */
+        default void onComplete() {
+        }
+    }
+
+    private enum State {
+        VALUE, KEY, AFTER_KEY, STRING, LITERAL, AFTER_VALUE, DONE
+    }
+
+    /**
+     * 容器栈帧：对象记录当前字段名，数组记录当前下标
+     */
+    private static final class Frame {
+        private final boolean array;
+        private String key;
+        private int index;
+
+        private Frame(boolean array) {
+            this.array = array;
+        }
+    }
+
+    private final Listener listener;
+    private final Deque<Frame> stack = new ArrayDeque<>();
+    private final StringBuilder token = new StringBuilder();
+    private final StringBuilder chunk = new StringBuilder();
+
+    private State state = State.VALUE;
+    private String path;
+    private boolean escaping;
+    private int unicodeDigits = -1;
+    private int unicodeValue;
+
+    public IncrementalJsonParser(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * 消费一段增量
+     */
+    public void feed(CharSequence delta) {
+        if (delta == null) {
+            return;
+        }
+        for (int i = 0; i < delta.length() && state != State.DONE; i++) {
+            accept(delta.charAt(i));
+        }
+        // 每段增量结束时把已解码的字符串内容交给监听方，避免在解析器内累积
+        if (state == State.STRING && !chunk.isEmpty()) {
+            emitChunk();
+        }
+    }
+
+    /**
+     * 顶层 JSON 值是否已完整
+     */
+    public boolean isDone() {
+        return state == State.DONE;
+    }
+
+    private void accept(char c) {
+        switch (state) {
+            case VALUE -> acceptValueStart(c);
+            case KEY -> acceptKeyChar(c);
+            case AFTER_KEY -> {
+                if (c == ':') {
+                    state = State.VALUE;
+                }
+            }
+            case STRING -> acceptStringChar(c);
+            case LITERAL -> acceptLiteralChar(c);
+            case AFTER_VALUE -> acceptAfterValue(c);
+            case DONE -> {
+            }
+        }
+    }
+
+    private void acceptValueStart(char c) {
+        if (Character.isWhitespace(c)) {
+            return;
+        }
+        switch (c) {
+            case '{' -> {
+                stack.push(new Frame(false));
+                // 对象开头与字段之间的处理相同：等待字段名或结束符
+                state = State.AFTER_VALUE;
+            }
+            case '[' -> stack.push(new Frame(true));
+            case ']' -> closeContainer();
+            case '"' -> {
+                path = currentPath();
+                state = State.STRING;
+            }
+            default -> {
+                path = currentPath();
+                token.setLength(0);
+                token.append(c);
+                state = State.LITERAL;
+            }
+        }
+    }
+
+    private void acceptKeyChar(char c) {
+        if (escaping) {
+            token.append(c);
+            escaping = false;
+        } else if (c == '\\') {
+            escaping = true;
+        } else if (c == '"') {
+            stack.peek().key = token.toString();
+            state = State.AFTER_KEY;
+        } else {
+            token.append(c);
+        }
+    }
+
+    private void acceptStringChar(char c) {
+        if (unicodeDigits >= 0) {
+            unicodeValue = (unicodeValue << 4) + Character.digit(c, 16);
+            if (++unicodeDigits == 4) {
+                chunk.append((char) unicodeValue);
+                unicodeDigits = -1;
+            }
+            return;
+        }
+        if (escaping) {
+            escaping = false;
+            switch (c) {
+                case 'n' -> chunk.append('\n');
+                case 't' -> chunk.append('\t');
+                case 'r' -> chunk.append('\r');
+                case 'b' -> chunk.append('\b');
+                case 'f' -> chunk.append('\f');
+                case 'u' -> {
+                    unicodeDigits = 0;
+                    unicodeValue = 0;
+                }
+                default -> chunk.append(c);
+            }
+            return;
+        }
+        if (c == '\\') {
+            escaping = true;
+        } else if (c == '"') {
+            if (!chunk.isEmpty()) {
+                emitChunk();
+            }
+            listener.onStringEnd(path);
+            endValue();
+        } else {
+            chunk.append(c);
+        }
+    }
+
+    private void acceptLiteralChar(char c) {
+        if (c == ',' || c == '}' || c == ']' || Character.isWhitespace(c)) {
+            listener.onScalar(path, token.toString());
+            endValue();
+            acceptAfterValue(c);
+        } else {
+            token.append(c);
+        }
+    }
+
+    private void acceptAfterValue(char c) {
+        Frame frame = stack.peek();
+        if (frame == null) {
+            return;
+        }
+        switch (c) {
+            case ',' -> {
+                if (frame.array) {
+                    frame.index++;
+                    state = State.VALUE;
+                }
+            }
+            case '"' -> {
+                // 对象中下一个字段名开始
+                if (!frame.array) {
+                    token.setLength(0);
+                    state = State.KEY;
+                }
+            }
+            case '}', ']' -> closeContainer();
+            default -> {
+            }
+        }
+    }
+
+    private void closeContainer() {
+        if (stack.isEmpty()) {
+            // 没有打开的容器，忽略多余的结束符
+            return;
+        }
+        stack.pop();
+        endValue();
+    }
+
+    private void endValue() {
+        if (stack.isEmpty()) {
+            state = State.DONE;
+            listener.onComplete();
+        } else {
+            state = State.AFTER_VALUE;
+        }
+    }
+
+    private String currentPath() {
+        if (stack.isEmpty()) {
+            return "";
+        }
+        StringBuilder builder = new StringBuilder();
+        var iterator = stack.descendingIterator();
+        while (iterator.hasNext()) {
+            Frame frame = iterator.next();
+            if (frame.array) {
+                builder.append('[').append(frame.index).append(']');
+            } else {
+                if (!builder.isEmpty()) {
+                    builder.append('.');
+                }
+                builder.append(frame.key);
+            }
+        }
+        return builder.toString();
+    }
+
+    private void emitChunk() {
+        listener.onStringChunk(path, chunk);
+        chunk.setLength(0);
+    }
+}
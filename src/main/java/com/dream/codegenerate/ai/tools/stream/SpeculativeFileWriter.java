@@ -0,0 +1,287 @@
+package com.dream.codegenerate.ai.tools.stream;
+
+import com.dream.codegenerate.ai.tools.context.SessionContextManager;
+import com.dream.codegenerate.config.CodeGenStreamConfig;
+import com.dream.codegenerate.constant.AppConstant;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * writeFile 工具的推测式写入
+ * 模型流式返回 writeFile 参数时，边解码边把 content 写入目标文件旁边的临时文件；
+ * 工具真正执行时，若临时文件内容与最终参数一致，只需一次原子重命名，省去调用结束时的整文件写入。
+ * 任何环节失败都只是放弃推测结果，由工具回退到普通写入。
+ */
+@Slf4j
+@Component
+public class SpeculativeFileWriter {
+
+    private static final String FIELD_PATH = "relativeFilePath";
+
+    private static final String FIELD_CONTENT = "content";
+
+    @Resource
+    private SessionContextManager contextManager;
+
+    @Resource
+    private CodeGenStreamConfig codeGenStreamConfig;
+
+    /**
+     * 正在接收参数的写入，key 为工具调用 ID
+     */
+    private final Map<String, PendingWrite> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * 参数已接收完毕、等待工具执行的写入，key 为目标文件路径
+     */
+    private final Map<Path, PendingWrite> completed = new ConcurrentHashMap<>();
+
+    /**
+     * 为一次 writeFile 工具调用创建推测写入，返回的监听器需挂到该调用的参数解析器上
+     *
+     * @param appId   应用 ID
+     * @param request 工具调用请求
+     * @return 解析监听器；功能关闭时返回 null
+     */
+    public IncrementalJsonParser.Listener open(Long appId, ToolExecutionRequest request) {
+        if (!codeGenStreamConfig.isSpeculativeWriteEnabled() || request.id() == null) {
+            return null;
+        }
+        PendingWrite pendingWrite = new PendingWrite(appId, request.id());
+        PendingWrite previous = inFlight.put(request.id(), pendingWrite);
+        if (previous != null) {
+            previous.discard();
+        }
+        return pendingWrite;
+    }
+
+    /**
+     * 参数接收完毕：登记为待提交，等待工具执行
+     */
+    private void onArgumentsComplete(PendingWrite pendingWrite) {
+        inFlight.remove(pendingWrite.toolCallId, pendingWrite);
+        if (!pendingWrite.isReady()) {
+            pendingWrite.discard();
+            return;
+        }
+        PendingWrite previous = completed.put(pendingWrite.target, pendingWrite);
+        if (previous != null) {
+            previous.discard();
+        }
+    }
+
+    /**
+     * 提交推测写入：临时文件与最终内容一致时原子重命名为目标文件
+     *
+     * @param appId   应用 ID
+     * @param target  目标文件
+     * @param content 工具最终收到的文件内容
+     * @return 是否已通过重命名完成写入；false 表示调用方需要自行写入
+     */
+    public boolean commit(Long appId, Path target, String content) {
+        PendingWrite pendingWrite = completed.remove(target.toAbsolutePath().normalize());
+        if (pendingWrite == null) {
+            return false;
+        }
+        if (!pendingWrite.appId.equals(appId) || !pendingWrite.matches(content)) {
+            log.info("推测写入的内容与最终参数不一致，回退为普通写入: {}", target);
+            pendingWrite.discard();
+            return false;
+        }
+        try {
+            try {
+                Files.move(pendingWrite.tempFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(pendingWrite.tempFile, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return true;
+        } catch (IOException e) {
+            log.warn("推测写入重命名失败，回退为普通写入: {}", target, e);
+            pendingWrite.discard();
+            return false;
+        }
+    }
+
+    /**
+     * 丢弃应用所有未提交的推测写入（生成结束、出错或被取消时调用）
+     */
+    public void discard(Long appId) {
+        inFlight.values().removeIf(pendingWrite -> pendingWrite.appId.equals(appId) && pendingWrite.discard());
+        completed.values().removeIf(pendingWrite -> pendingWrite.appId.equals(appId) && pendingWrite.discard());
+    }
+
+    /**
+     * 解析工具参数中的文件路径，相对路径基于 appId 对应的项目目录
+     */
+    public Path resolveTarget(String relativeFilePath, Long appId) {
+        Path path = Paths.get(relativeFilePath);
+        if (!path.isAbsolute()) {
+            String projectDirName = contextManager.getContext(appId).getCodeGenType().getValue() + "_" + appId;
+            Path projectRoot = Paths.get(AppConstant.CODE_OUTPUT_ROOT_DIR, projectDirName);
+            path = projectRoot.resolve(relativeFilePath);
+        }
+        return path;
+    }
+
+    /**
+     * 单个工具调用的推测写入
+     */
+    private final class PendingWrite implements IncrementalJsonParser.Listener {
+
+        private final Long appId;
+        private final String toolCallId;
+        private final StringBuilder path = new StringBuilder();
+        /**
+         * 路径尚未解析出来之前到达的内容先缓存在内存中
+         */
+        private final StringBuilder earlyContent = new StringBuilder();
+        private final CRC32 checksum = new CRC32();
+        private CheckedOutputStream checkedStream;
+        private Writer writer;
+        private Path target;
+        private Path tempFile;
+        private boolean pathDone;
+        private boolean contentDone;
+        private boolean failed;
+
+        PendingWrite(Long appId, String toolCallId) {
+            this.appId = appId;
+            this.toolCallId = toolCallId;
+        }
+
+        synchronized boolean isReady() {
+            return !failed && pathDone && contentDone && writer == null && tempFile != null;
+        }
+
+        @Override
+        public synchronized void onStringChunk(String field, CharSequence chunk) {
+            if (failed) {
+                return;
+            }
+            if (FIELD_PATH.equals(field)) {
+                path.append(chunk);
+            } else if (FIELD_CONTENT.equals(field)) {
+                if (tempFile == null) {
+                    earlyContent.append(chunk);
+                } else {
+                    write(chunk);
+                }
+            }
+        }
+
+        @Override
+        public synchronized void onStringEnd(String field) {
+            if (failed) {
+                return;
+            }
+            if (FIELD_PATH.equals(field)) {
+                pathDone = true;
+                open();
+            } else if (FIELD_CONTENT.equals(field)) {
+                contentDone = true;
+            }
+            if (pathDone && contentDone) {
+                close();
+            }
+        }
+
+        @Override
+        public void onComplete() {
+            onArgumentsComplete(this);
+        }
+
+        private void open() {
+            try {
+                target = resolveTarget(path.toString(), appId).toAbsolutePath().normalize();
+                Files.createDirectories(target.getParent());
+                String safeId = toolCallId.replaceAll("[^A-Za-z0-9_-]", "");
+                tempFile = target.resolveSibling("." + target.getFileName() + "." + safeId + ".tmp");
+                checkedStream = new CheckedOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)), checksum);
+                writer = new OutputStreamWriter(checkedStream, StandardCharsets.UTF_8);
+                if (!earlyContent.isEmpty()) {
+                    write(earlyContent);
+                    earlyContent.setLength(0);
+                }
+            } catch (Exception e) {
+                fail(e);
+            }
+        }
+
+        private void write(CharSequence chunk) {
+            if (failed) {
+                return;
+            }
+            try {
+                writer.append(chunk);
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+
+        private void close() {
+            if (failed || writer == null) {
+                return;
+            }
+            try {
+                writer.close();
+                writer = null;
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+
+        synchronized boolean matches(String content) {
+            byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+            CRC32 expected = new CRC32();
+            expected.update(bytes);
+            try {
+                return expected.getValue() == checksum.getValue() && Files.size(tempFile) == bytes.length;
+            } catch (IOException e) {
+                return false;
+            }
+        }
+
+        /**
+         * 放弃本次推测写入并删除临时文件
+         *
+         * @return 始终为 true，便于在 removeIf 中使用
+         */
+        synchronized boolean discard() {
+            failed = true;
+            try {
+                if (writer != null) {
+                    writer.close();
+                    writer = null;
+                }
+                if (tempFile != null) {
+                    Files.deleteIfExists(tempFile);
+                }
+            } catch (IOException e) {
+                log.warn("删除推测写入的临时文件失败: {}", tempFile, e);
+            }
+            return true;
+        }
+
+        private void fail(Exception e) {
+            log.warn("推测写入失败，将回退为普通写入，toolCallId: {}", toolCallId, e);
+            discard();
+        }
+    }
+}
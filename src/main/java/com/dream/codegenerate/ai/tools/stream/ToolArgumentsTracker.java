@@ -0,0 +1,133 @@
+package com.dream.codegenerate.ai.tools.stream;
+
+import com.dream.codegenerate.ai.model.message.ToolRequestMessage;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 单次生成流内的工具参数进度跟踪
+ * 每个工具调用持有一个 {@link IncrementalJsonParser}，参数增量到达时只解析增量本身，
+ * 并把解析结果（已完成的字段、正在流式接收的字段及其新增内容）填充到 {@link ToolRequestMessage}。
+ * 非线程安全：同一生成流的工具参数回调是串行的。
+ */
+public class ToolArgumentsTracker {
+
+    /**
+     * 超过该长度的字符串字段只以增量形式下发，不放入 fields
+     */
+    private static final int MAX_FIELD_LENGTH = 512;
+
+    private final Map<String, ToolCallProgress> calls = new HashMap<>();
+
+    /**
+     * 按工具调用创建额外的解析监听器（例如 writeFile 的推测写入），返回 null 表示不需要
+     */
+    private final Function<ToolExecutionRequest, IncrementalJsonParser.Listener> extraListenerFactory;
+
+    public ToolArgumentsTracker(Function<ToolExecutionRequest, IncrementalJsonParser.Listener> extraListenerFactory) {
+        this.extraListenerFactory = extraListenerFactory;
+    }
+
+    /**
+     * 消费一次参数增量，并填充工具请求消息的结构化进度
+     *
+     * @param partial 工具调用请求（arguments 为本次增量）
+     * @param message 待发送的工具请求消息
+     */
+    public void track(ToolExecutionRequest partial, ToolRequestMessage message) {
+        if (partial.id() == null) {
+            return;
+        }
+        ToolCallProgress progress = calls.computeIfAbsent(partial.id(),
+                id -> new ToolCallProgress(extraListenerFactory.apply(partial)));
+        progress.streamingField = null;
+        progress.streamingDelta.setLength(0);
+        progress.parser.feed(partial.arguments());
+        message.setFields(Map.copyOf(progress.fields));
+        if (progress.streamingField != null) {
+            message.setStreamingField(progress.streamingField);
+            message.setStreamingDelta(progress.streamingDelta.toString());
+        }
+        if (progress.parser.isDone()) {
+            calls.remove(partial.id());
+        }
+    }
+
+    /**
+     * 单个工具调用的解析进度
+     */
+    private static final class ToolCallProgress implements IncrementalJsonParser.Listener {
+
+        private final IncrementalJsonParser parser = new IncrementalJsonParser(this);
+        private final IncrementalJsonParser.Listener extraListener;
+        private final Map<String, String> fields = new LinkedHashMap<>();
+        /**
+         * 当前字符串字段已接收的内容，超过长度上限后不再保留
+         */
+        private final StringBuilder currentValue = new StringBuilder();
+        private boolean currentTooLong;
+        private final StringBuilder streamingDelta = new StringBuilder();
+        private String streamingField;
+
+        private ToolCallProgress(IncrementalJsonParser.Listener extraListener) {
+            this.extraListener = extraListener;
+        }
+
+        @Override
+        public void onStringChunk(String path, CharSequence chunk) {
+            // 一次增量跨越多个字段时只保留最后一个字段的新增内容，已完成的短字段可从 fields 中获取
+            if (!path.equals(streamingField)) {
+                streamingField = path;
+                streamingDelta.setLength(0);
+            }
+            streamingDelta.append(chunk);
+            if (!currentTooLong) {
+                currentValue.append(chunk);
+                if (currentValue.length() > MAX_FIELD_LENGTH) {
+                    currentTooLong = true;
+                    currentValue.setLength(0);
+                }
+            }
+            if (extraListener != null) {
+                extraListener.onStringChunk(path, chunk);
+            }
+        }
+
+        @Override
+        public void onStringEnd(String path) {
+            if (!currentTooLong && isTopLevel(path)) {
+                fields.put(path, currentValue.toString());
+            }
+            currentValue.setLength(0);
+            currentTooLong = false;
+            if (extraListener != null) {
+                extraListener.onStringEnd(path);
+            }
+        }
+
+        @Override
+        public void onScalar(String path, String literal) {
+            if (isTopLevel(path)) {
+                fields.put(path, literal);
+            }
+            if (extraListener != null) {
+                extraListener.onScalar(path, literal);
+            }
+        }
+
+        @Override
+        public void onComplete() {
+            if (extraListener != null) {
+                extraListener.onComplete();
+            }
+        }
+
+        private static boolean isTopLevel(String path) {
+            return path.indexOf('.') < 0 && path.indexOf('[') < 0;
+        }
+    }
+}
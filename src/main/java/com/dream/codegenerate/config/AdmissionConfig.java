@@ -0,0 +1,58 @@
+package com.dream.codegenerate.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 代码生成准入控制配置
+ * 限制单个节点同时进行的生成任务数（模型流、工具执行、npm 构建都在生成流内），超出的请求按用户公平排队
+ */
+@Configuration
+@ConfigurationProperties(prefix = "code.admission")
+@Data
+public class AdmissionConfig {
+
+    /**
+     * 是否启用准入控制，关闭后所有生成请求直接执行
+     * 默认关闭：开启前应按节点的压测结果（模型流、工具执行与 npm 构建的资源占用）配置 maxConcurrent
+     */
+    private boolean enabled = false;
+
+    /**
+     * 单个节点同时运行的生成任务上限，仅在开启准入控制时生效，需按节点容量调整
+     */
+    private int maxConcurrent = 16;
+
+    /**
+     * 全局排队上限，队列已满时直接拒绝
+     */
+    private int maxQueueSize = 200;
+
+    /**
+     * 单个用户同时排队的请求上限
+     */
+    private int maxQueuedPerUser = 2;
+
+    /**
+     * 排队等待的 SLO，预计等待超过该值的请求直接拒绝，已排队超过该值的请求被移出队列
+     */
+    private Duration queueWaitSlo = Duration.ofSeconds(90);
+
+    /**
+     * 排队位置的推送间隔，位置没有变化时不推送
+     */
+    private Duration positionUpdateInterval = Duration.ofSeconds(2);
+
+    /**
+     * 各用户角色的调度权重，权重越大排队时获得的份额越多，未配置的角色按 1 处理
+     */
+    private Map<String, Integer> roleWeights = new HashMap<>(Map.of(
+            "user", 1,
+            "vip", 3,
+            "admin", 3));
+}
@@ -0,0 +1,32 @@
+package com.dream.codegenerate.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * AI 服务实例缓存配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "code.ai-service-cache")
+@Data
+public class AiServiceCacheConfig {
+
+    /**
+     * 缓存的内存预算，按每个实例对话记忆中的消息内容大小计算，超过后淘汰
+     */
+    private DataSize maxWeight = DataSize.ofMegabytes(512);
+
+    /**
+     * 写入后过期时间
+     */
+    private Duration expireAfterWrite = Duration.ofMinutes(30);
+
+    /**
+     * 访问后过期时间
+     */
+    private Duration expireAfterAccess = Duration.ofMinutes(10);
+}
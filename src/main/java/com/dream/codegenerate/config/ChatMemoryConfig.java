@@ -0,0 +1,81 @@
+package com.dream.codegenerate.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * 对话记忆历史加载与 token 预算配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "code.chat-memory")
+@Data
+public class ChatMemoryConfig {
+
+    /**
+     * 创建 AI 服务后先加载的最近消息条数
+     */
+    private int recentWindow = 50;
+
+    /**
+     * 首次读取记忆后，在后台向前翻页加载更早历史的每页条数
+     */
+    private int pageSize = 200;
+
+    /**
+     * 最多加载的历史条数
+     */
+    private int maxHistory = 1000;
+
+    /**
+     * 对话记忆的 token 预算，超出后在后台把最早的对话压缩为摘要；为 0 时关闭
+     */
+    private int tokenBudget = 64000;
+
+    /**
+     * 压缩后保留的最近消息占 token 预算的比例
+     */
+    private double compactionTarget = 0.5;
+
+    /**
+     * 生成摘要时模型最多输出的 token 数
+     */
+    private int summaryMaxTokens = 2048;
+
+    /**
+     * 估算 token 数使用的分词模型名称（按 OpenAI 分词器估算）
+     */
+    private String tokenizerModelName = "gpt-4o";
+
+    /**
+     * 是否在后台写入对话记忆存储，开启后追加消息不再同步等待存储写入
+     */
+    private boolean writeBehindEnabled = true;
+
+    /**
+     * 后台写入的攒批时间，记忆的第一条待写入操作入队后等待该时长再写入
+     */
+    private Duration writeBehindFlushDelay = Duration.ofMillis(50);
+
+    /**
+     * 后台写入单次合并的最大消息条数
+     */
+    private int writeBehindMaxBatch = 64;
+
+    /**
+     * 关闭时等待后台写入完成的最长时间
+     */
+    private Duration writeBehindDrainTimeout = Duration.ofSeconds(10);
+
+    /**
+     * 从 Redis 读取对话记忆时默认读取的最近消息条数
+     */
+    private int redisReadWindow = 200;
+
+    /**
+     * Redis 中每个对话记忆最多保留的消息条数，超出后裁剪最早的消息；为 0 时不裁剪
+     */
+    private int redisMaxMessages = 2000;
+}
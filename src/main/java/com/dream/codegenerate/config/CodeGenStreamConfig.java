@@ -0,0 +1,71 @@
+package com.dream.codegenerate.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * 代码生成流式管道配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "code.stream")
+@Data
+public class CodeGenStreamConfig {
+
+    /**
+     * AI 文本片段的合并时间窗口，窗口内的连续片段合并为一帧发送；为 0 时关闭合并
+     */
+    private Duration coalesceWindow = Duration.ofMillis(20);
+
+    /**
+     * 合并缓冲区的字节阈值（UTF-8），达到后立即发送，不再等待时间窗口
+     */
+    private int coalesceMaxBytes = 2048;
+
+    /**
+     * 桥接队列允许积压的最大消息条数，超过后阻塞生产者
+     */
+    private int bufferMaxMessages = 256;
+
+    /**
+     * 桥接队列允许积压的最大字符数，超过后阻塞生产者
+     */
+    private long bufferMaxChars = 1024 * 1024;
+
+    /**
+     * 队列已满时生产者的最长阻塞时间，超时后以错误结束该流
+     */
+    private Duration bufferOverflowTimeout = Duration.ofSeconds(60);
+
+    /**
+     * 每次生成在内存中保留的事件数，用于断线重连后回放
+     */
+    private int replayBufferSize = 1024;
+
+    /**
+     * 内存中放不下的事件是否溢出到 Redis；关闭时落后超过缓冲区容量的订阅者会收到 replay_gap 事件并结束
+     */
+    private boolean replaySpillEnabled = false;
+
+    /**
+     * 生成结束后事件缓冲区的保留时长，超过后客户端无法再断点续传
+     */
+    private Duration replayRetention = Duration.ofMinutes(5);
+
+    /**
+     * 生成任务没有任何订阅者后的等待时长，超过后取消生成（期间客户端可断线重连）
+     */
+    private Duration cancelGracePeriod = Duration.ofSeconds(30);
+
+    /**
+     * 是否在 writeFile 参数流式到达时推测写入临时文件，工具执行时只做原子重命名
+     */
+    private boolean speculativeWriteEnabled = true;
+
+    /**
+     * 是否对生成事件流（text/event-stream）启用 gzip 压缩，仅对请求头声明 Accept-Encoding: gzip 的客户端生效
+     */
+    private boolean compressionEnabled = false;
+}
@@ -0,0 +1,41 @@
+package com.dream.codegenerate.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * 文本向量缓存配置（本地 Caffeine + Redis 两级）
+ */
+@Configuration
+@ConfigurationProperties(prefix = "code.embedding-cache")
+@Data
+public class EmbeddingCacheConfig {
+
+    /**
+     * 是否开启向量缓存，关闭后每次都调用向量模型
+     */
+    private boolean enabled = true;
+
+    /**
+     * 本地缓存的最大条数
+     */
+    private long localMaxEntries = 20_000;
+
+    /**
+     * 是否使用 Redis 作为二级缓存，在多个节点之间共享向量
+     */
+    private boolean redisEnabled = true;
+
+    /**
+     * Redis 中向量的过期时间
+     */
+    private Duration redisTtl = Duration.ofDays(7);
+
+    /**
+     * Redis 中是否以 float16 存储向量（体积减半，精度损失对余弦相似度影响可忽略）；关闭时以 float32 存储
+     */
+    private boolean float16 = true;
+}
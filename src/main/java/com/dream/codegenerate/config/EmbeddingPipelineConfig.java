@@ -0,0 +1,76 @@
+package com.dream.codegenerate.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * 对话消息异步向量化配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "code.embedding-pipeline")
+@Data
+public class EmbeddingPipelineConfig {
+
+    /**
+     * 是否异步向量化；关闭时保存消息前同步向量化
+     */
+    private boolean enabled = true;
+
+    /**
+     * 单次 embedAll 请求最多包含的文本条数
+     */
+    private int batchSize = 32;
+
+    /**
+     * 第一条消息入队后最多等待多久凑批
+     */
+    private Duration batchDelay = Duration.ofMillis(200);
+
+    /**
+     * 待向量化队列的容量，队列满时消息留给补偿扫描处理
+     */
+    private int queueCapacity = 10000;
+
+    /**
+     * 单批向量化失败后的最大重试次数
+     */
+    private int maxRetries = 3;
+
+    /**
+     * 补偿扫描的间隔，扫描近期保存但缺少向量的消息；为 0 时关闭
+     */
+    private Duration backfillInterval = Duration.ofMinutes(5);
+
+    /**
+     * 补偿扫描只处理该时长内保存的消息
+     */
+    private Duration backfillLookback = Duration.ofDays(1);
+
+    /**
+     * 补偿扫描单次读取的消息条数
+     */
+    private int backfillPageSize = 200;
+
+    /**
+     * 用户消息和 AI 消息至少多少个字符才向量化
+     */
+    private int minTextLength = 4;
+
+    /**
+     * 是否向量化工具执行结果
+     */
+    private boolean embedToolResults = false;
+
+    /**
+     * 工具执行结果至少多少个字符才向量化，过滤“写入成功”之类的简单结果
+     */
+    private int minToolResultLength = 200;
+
+    /**
+     * 送去向量化的文本最大字符数，超出部分截断
+     */
+    private int maxTextLength = 2000;
+}
@@ -0,0 +1,91 @@
+package com.dream.codegenerate.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * 模型客户端注册表与共享 HTTP 连接池配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "code.model-client")
+@Data
+public class ModelClientConfig {
+
+    /**
+     * 缓存的模型客户端数量上限，超过后淘汰最久未使用的客户端
+     */
+    private long maxClients = 256;
+
+    /**
+     * 模型客户端的空闲淘汰时长
+     */
+    private Duration idleTimeout = Duration.ofMinutes(30);
+
+    /**
+     * 建立连接（含 TLS 握手）的超时时间
+     */
+    private Duration connectTimeout = Duration.ofSeconds(10);
+
+    /**
+     * 空闲连接在连接池中的保活时长（对应 JDK 的 jdk.httpclient.keepalive.timeout，仅在未显式设置该系统属性时生效）
+     */
+    private Duration keepAliveTimeout = Duration.ofMinutes(5);
+
+    /**
+     * 流式响应两行数据之间的最长等待时间（仅 JDK_ASYNC），超过后中止请求并按失败处理；为 0 时不限制。
+     * 模型长时间思考时服务端也会定期发送 ping 事件，正常的流不会触发该超时
+     */
+    private Duration streamIdleTimeout = Duration.ofMinutes(2);
+
+    /**
+     * 多端点模型的端点选择与对冲请求配置
+     */
+    private Hedging hedging = new Hedging();
+
+    @Data
+    public static class Hedging {
+
+        /**
+         * 是否开启对冲：首 token 在预算时间内未到达时，向另一个端点发起同样的请求，先出首 token 的一方胜出，另一方被取消
+         */
+        private boolean enabled = true;
+
+        /**
+         * 样本不足时使用的对冲等待时间
+         */
+        private Duration defaultDelay = Duration.ofSeconds(6);
+
+        /**
+         * 对冲等待时间的下限，避免端点很快时频繁对冲
+         */
+        private Duration minDelay = Duration.ofSeconds(2);
+
+        /**
+         * 对冲等待时间的上限
+         */
+        private Duration maxDelay = Duration.ofSeconds(10);
+
+        /**
+         * 使用 p95 作为等待时间所需的最少样本数
+         */
+        private int minSamples = 20;
+
+        /**
+         * 每个端点保留的首 token 延迟样本数
+         */
+        private int sampleWindow = 200;
+
+        /**
+         * 连续失败多少次后将端点标记为不健康
+         */
+        private int failureThreshold = 3;
+
+        /**
+         * 不健康端点的冷却时间，之后重新参与选择
+         */
+        private Duration unhealthyCooldown = Duration.ofSeconds(30);
+    }
+}
@@ -1,5 +1,6 @@
 package com.dream.codegenerate.config;
 
+import com.dream.codegenerate.ai.client.ModelTransport;
 import dev.langchain4j.http.client.spring.restclient.SpringRestClientBuilder;
 import dev.langchain4j.model.chat.ChatModel;
 import dev.langchain4j.model.openai.OpenAiChatModel;
@@ -30,4 +31,9 @@ public class RoutingAiModelConfig {
     private Boolean logRequests = false;
 
     private Boolean logResponses = false;
+
+    /**
+     * HTTP 传输方式，默认使用共享连接池的非阻塞客户端
+     */
+    private ModelTransport transport = ModelTransport.JDK_ASYNC;
 }
@@ -0,0 +1,34 @@
+package com.dream.codegenerate.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 代码生成类型路由缓存配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "code.routing-cache")
+@Data
+public class RoutingCacheConfig {
+
+    /**
+     * 是否开启路由缓存，关闭后每次都调用路由模型
+     */
+    private boolean enabled = true;
+
+    /**
+     * 精确匹配缓存（按规范化后的 prompt 哈希）的最大条数
+     */
+    private long maxEntries = 10_000;
+
+    /**
+     * 语义近邻索引保留的最大 prompt 数，超过后淘汰最早写入的
+     */
+    private int semanticMaxEntries = 5_000;
+
+    /**
+     * 语义命中所需的最小余弦相似度
+     */
+    private double similarityThreshold = 0.92;
+}
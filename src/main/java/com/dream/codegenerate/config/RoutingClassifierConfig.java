@@ -0,0 +1,29 @@
+package com.dream.codegenerate.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 本地路由分类器配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "code.routing-classifier")
+@Data
+public class RoutingClassifierConfig {
+
+    /**
+     * 是否启用本地分类器
+     */
+    private boolean enabled = true;
+
+    /**
+     * 模型文件路径（由 RoutingClassifierTool 训练导出），文件不存在时不使用本地分类器
+     */
+    private String modelPath = "tmp/routing/routing-classifier.json";
+
+    /**
+     * 本地分类器直接给出结果所需的最低置信度，低于该值时交给路由模型
+     */
+    private double confidenceThreshold = 0.9;
+}
@@ -0,0 +1,46 @@
+package com.dream.codegenerate.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.server.Compression;
+import org.springframework.boot.web.server.ConfigurableWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.boot.web.servlet.server.AbstractServletWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * 生成事件流的压缩传输
+ * 生成流以文本为主，且同一份源码会在工具参数增量和工具执行结果中各出现一次，压缩收益很大。
+ * 这里复用容器自带的 gzip 压缩：Tomcat 以 SYNC_FLUSH 方式压缩，每个 SSE 事件写出后的 flush 会立即产出完整的压缩块，
+ * 不会因为压缩而攒批；同一连接共享压缩字典，后续事件可以引用 32KB 窗口内已发送的内容。
+ * 客户端通过 Accept-Encoding: gzip 自行选择是否启用，浏览器的 EventSource 会透明解压。
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(prefix = "code.stream", name = "compression-enabled", havingValue = "true")
+public class StreamCompressionConfig {
+
+    @Bean
+    public WebServerFactoryCustomizer<ConfigurableWebServerFactory> eventStreamCompressionCustomizer() {
+        return factory -> {
+            // 在 server.compression 的基础上追加 text/event-stream，已有的压缩配置保持不变
+            Compression compression = factory instanceof AbstractServletWebServerFactory servletFactory
+                    && servletFactory.getCompression() != null ? servletFactory.getCompression() : new Compression();
+            Set<String> mimeTypes = new LinkedHashSet<>();
+            if (compression.getEnabled()) {
+                mimeTypes.addAll(Arrays.asList(compression.getMimeTypes()));
+            }
+            mimeTypes.add(MediaType.TEXT_EVENT_STREAM_VALUE);
+            compression.setEnabled(true);
+            compression.setMimeTypes(mimeTypes.toArray(String[]::new));
+            factory.setCompression(compression);
+            log.info("生成事件流已启用 gzip 压缩，压缩类型: {}", mimeTypes);
+        };
+    }
+}
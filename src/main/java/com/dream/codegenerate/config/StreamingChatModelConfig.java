@@ -1,5 +1,7 @@
 package com.dream.codegenerate.config;
 
+import com.dream.codegenerate.ai.client.ModelClientRegistry;
+import com.dream.codegenerate.ai.client.ModelTransport;
 import dev.langchain4j.http.client.spring.restclient.SpringRestClientBuilder;
 import dev.langchain4j.model.anthropic.AnthropicStreamingChatModel;
 import dev.langchain4j.model.chat.StreamingChatModel;
@@ -11,6 +13,8 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Scope;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * 流式对话模型配置
@@ -22,6 +26,11 @@ public class StreamingChatModelConfig {
 
     private String baseUrl;
 
+    /**
+     * 等价的备用端点，与 baseUrl 一起按首 token 延迟选择并对冲请求；为空时只使用 baseUrl
+     */
+    private List<String> baseUrls = new ArrayList<>();
+
     private String apiKey;
 
     private String modelName;
@@ -34,6 +43,18 @@ public class StreamingChatModelConfig {
 
     private boolean logResponses;
 
+    /**
+     * HTTP 传输方式，默认使用共享连接池的非阻塞客户端（对冲时可取消落败的请求）
+     */
+    private ModelTransport transport = ModelTransport.JDK_ASYNC;
+
+    /**
+     * 全部端点：baseUrl 在前，去重
+     */
+    public List<String> endpoints() {
+        return ModelClientRegistry.endpoints(baseUrl, baseUrls);
+    }
+
     /**
      * 流式模型
      */
@@ -58,17 +79,17 @@ public class StreamingChatModelConfig {
      */
     @Bean
     @Scope("prototype")
-    public StreamingChatModel streamingChatModelPrototype() {
-        return AnthropicStreamingChatModel.builder()
+    public StreamingChatModel streamingChatModelPrototype(ModelClientRegistry modelClientRegistry) {
+        return modelClientRegistry.streamingChatModel(endpoints(), endpoint -> AnthropicStreamingChatModel.builder()
                 .timeout(Duration.ofMinutes(5))
-                .httpClientBuilder(new SpringRestClientBuilder())
+                .httpClientBuilder(modelClientRegistry.httpClientBuilder(transport))
                 .apiKey(apiKey)
-                .baseUrl(baseUrl)
+                .baseUrl(endpoint)
                 .modelName(modelName)
                 .maxTokens(maxTokens)
                 .temperature(temperature)
                 .logRequests(logRequests)
                 .logResponses(logResponses)
-                .build();
+                .build());
     }
 }
@@ -1,6 +1,7 @@
 package com.dream.codegenerate.config;
 
-import dev.langchain4j.http.client.spring.restclient.SpringRestClientBuilder;
+import com.dream.codegenerate.ai.client.ModelClientRegistry;
+import com.dream.codegenerate.ai.client.ModelTransport;
 import dev.langchain4j.model.anthropic.AnthropicStreamingChatModel;
 import dev.langchain4j.model.chat.StreamingChatModel;
 import lombok.Data;
@@ -10,6 +11,8 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Scope;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 
 @Configuration
 @ConfigurationProperties(prefix = "langchain4j.anthropic.reasoning-streaming-chat-model")
@@ -18,6 +21,11 @@ public class TtdChatModelConfig {
 
     private String baseUrl;
 
+    /**
+     * 等价的备用端点，与 baseUrl 一起按首 token 延迟选择并对冲请求；为空时只使用 baseUrl
+     */
+    private List<String> baseUrls = new ArrayList<>();
+
     private String apiKey;
 
     private String modelName;
@@ -30,23 +38,41 @@ public class TtdChatModelConfig {
 
     private Boolean logResponses = false;
 
+    /**
+     * 请求超时：JDK_ASYNC 传输下为等待响应头的时间，SPRING_REST 传输下为两次读取之间的最长间隔；
+     * JDK_ASYNC 下流式响应体的空闲超时见 code.model-client.stream-idle-timeout
+     */
+    private Duration timeout = Duration.ofMinutes(2);
+
+    /**
+     * HTTP 传输方式，默认使用共享连接池的非阻塞客户端
+     */
+    private ModelTransport transport = ModelTransport.JDK_ASYNC;
+
+    /**
+     * 全部端点：baseUrl 在前，去重
+     */
+    public List<String> endpoints() {
+        return ModelClientRegistry.endpoints(baseUrl, baseUrls);
+    }
+
     /**
      * 推理流式模型（用于 Vue 项目生成，带工具调用）
      */
     @Bean
     @Scope("prototype")
-    public StreamingChatModel anthropicStreamingChatModelPrototype() {
-        return AnthropicStreamingChatModel.builder()
-                .timeout(Duration.ofMinutes(50))
-                .httpClientBuilder(new SpringRestClientBuilder())
+    public StreamingChatModel anthropicStreamingChatModelPrototype(ModelClientRegistry modelClientRegistry) {
+        return modelClientRegistry.streamingChatModel(endpoints(), endpoint -> AnthropicStreamingChatModel.builder()
+                .timeout(timeout)
+                .httpClientBuilder(modelClientRegistry.httpClientBuilder(transport))
                 .cacheSystemMessages( true)
                 .apiKey(apiKey)
-                .baseUrl(baseUrl)
+                .baseUrl(endpoint)
                 .modelName(modelName)
                 .maxTokens(maxTokens)
                 .temperature(temperature)
                 .logRequests(logRequests)
                 .logResponses(logResponses)
-                .build();
+                .build());
     }
 }
@@ -2,9 +2,10 @@ package com.dream.codegenerate.controller;
 
 import cn.hutool.core.bean.BeanUtil;
 import cn.hutool.core.util.StrUtil;
-import cn.hutool.json.JSONUtil;
-import com.dream.codegenerate.service.AccessKeyService;
-import com.dream.codegenerate.utils.ReactiveHeartbeatUtils;
+import com.dream.codegenerate.ai.model.message.StreamMessage;
+import com.dream.codegenerate.ai.model.message.StreamMessageTypeEnum;
+import com.dream.codegenerate.ai.routing.CodeGenTypeRouter;
+import com.dream.codegenerate.core.stream.GenerationEvent;
 import com.mybatisflex.core.paginate.Page;
 import com.mybatisflex.core.query.QueryWrapper;
 import com.dream.codegenerate.annotation.AuthCheck;
@@ -38,7 +39,6 @@ import reactor.core.publisher.Mono;
 import java.io.File;
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.Map;
 
 /**
  * 应用 控制层。
@@ -58,51 +58,89 @@ public class AppController {
     @Resource
     private ProjectDownloadService projectDownloadService;
 
+    @Resource
+    private CodeGenTypeRouter codeGenTypeRouter;
+
 
     @GetMapping(value = "/chat/gen/code", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-    @RateLimit(limitType = RateLimitType.USER, rate = 5, rateInterval = 60, message = "AI 对话请求过于频繁，请稍后再试")
-    public Flux<ServerSentEvent<String>> chatToGenCode(@RequestParam Long appId,
-                                                       @RequestParam String message,
-                                                       HttpServletRequest request) {
+    // 断线重连（携带 Last-Event-ID）只续传已有生成，不占用发起生成的限流额度
+    @RateLimit(limitType = RateLimitType.USER, rate = 5, rateInterval = 60, message = "AI 对话请求过于频繁，请稍后再试",
+            skipWhenHeader = "Last-Event-ID")
+    public Flux<ServerSentEvent<StreamMessage>> chatToGenCode(@RequestParam Long appId,
+                                                              @RequestParam String message,
+                                                              @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+                                                              HttpServletRequest request) {
         // 参数校验
         ThrowUtils.throwIf(appId == null || appId <= 0, ErrorCode.PARAMS_ERROR, "应用 id 错误");
         ThrowUtils.throwIf(StrUtil.isBlank(message), ErrorCode.PARAMS_ERROR, "提示词不能为空");
         // 获取当前登录用户
         User loginUser = userService.getLoginUser(request);
-        // 调用服务生成代码（SSE 流式返回）
-        Flux<ServerSentEvent<String>> contentFlux = appService.chatToGenCode(appId, message, loginUser);
-        // 步骤 1: 先对原始数据流进行 map 转换
-//        Flux<ServerSentEvent<String>> mappedFlux = contentFlux.map(event -> {
-//            Map<String, String> wrapper = Map.of(
-//                    "d"
-//                    , event.data());
-//            String jsonData = JSONUtil.toJsonStr(wrapper);
-//            return
-//                    ServerSentEvent.<String>builder()
-//                            .data(jsonData)
-//                            .build();
-//        });
-//
-//// 步骤 2: 对转换后的流应用心跳机制
-//        Flux<ServerSentEvent<String>> fluxWithHeartbeat = ReactiveHeartbeatUtils.withHeartbeat(mappedFlux);
+        // EventSource 断线重连时会携带 Last-Event-ID，此时续传原有的生成，不再发起新的模型调用
+        Flux<GenerationEvent> eventFlux = StrUtil.isNotBlank(lastEventId)
+                ? appService.watchGenCode(appId, lastEventId, loginUser)
+                : appService.chatToGenCode(appId, message, loginUser);
+        return toServerSentEvents(eventFlux);
+    }
+
+    /**
+     * 观察应用当前的生成过程（其他标签页、预览页、管理员），只订阅已有的生成任务，不发起模型调用
+     *
+     * @param appId       应用 ID
+     * @param lastEventId 断线重连时浏览器自动携带的最后一个事件 ID
+     * @param request     请求
+     * @return 生成事件流
+     */
+    @GetMapping(value = "/chat/gen/watch", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<StreamMessage>> watchGenCode(@RequestParam Long appId,
+                                                             @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+                                                             HttpServletRequest request) {
+        ThrowUtils.throwIf(appId == null || appId <= 0, ErrorCode.PARAMS_ERROR, "应用 id 错误");
+        User loginUser = userService.getLoginUser(request);
+        return toServerSentEvents(appService.watchGenCode(appId, lastEventId, loginUser));
+    }
+
+    /**
+     * 停止应用当前的生成
+     *
+     * @param appId   应用 ID
+     * @param request 请求
+     * @return 是否有生成被停止
+     */
+    @PostMapping("/chat/gen/cancel")
+    public BaseResponse<Boolean> cancelGenCode(@RequestParam Long appId, HttpServletRequest request) {
+        ThrowUtils.throwIf(appId == null || appId <= 0, ErrorCode.PARAMS_ERROR, "应用 id 错误");
+        User loginUser = userService.getLoginUser(request);
+        return ResultUtils.success(appService.cancelGenCode(appId, loginUser));
+    }
 
-// 步骤 3: 在流的末尾追加 "done" 事件
-        return contentFlux
-                .map(chunk -> {
-                    Map<String, String> wrapper = Map.of("d", chunk.data());
-                    String jsonData = JSONUtil.toJsonStr(wrapper);
-                    return ServerSentEvent.<String>builder()
-                            .data(jsonData)
-                            .build();
-                })
-                .concatWith(Mono.just(
-                        // 发送结束事件
-                        ServerSentEvent.<String>builder()
-                                .event("done")
-                                .data("")
-                                .build()
-                ));
+    /**
+     * 在 HTTP 出口处包装为 SSE 事件，消息对象仅由 Jackson 序列化一次，并在流的末尾追加 "done" 事件
+     *
+     * @param eventFlux 生成事件流
+     * @return SSE 事件流
+     */
+    private Flux<ServerSentEvent<StreamMessage>> toServerSentEvents(Flux<GenerationEvent> eventFlux) {
+        return eventFlux
+                .map(this::toServerSentEvent)
+                .concatWith(Mono.fromSupplier(() -> ServerSentEvent.<StreamMessage>builder()
+                        .event(StreamMessageTypeEnum.DONE.getValue())
+                        .data(new StreamMessage(StreamMessageTypeEnum.DONE.getValue()))
+                        .build()));
+    }
 
+    /**
+     * 将生成事件包装为 SSE 事件，事件名即消息类型，事件 ID 用于断线重连
+     *
+     * @param generationEvent 生成事件
+     * @return SSE 事件
+     */
+    private ServerSentEvent<StreamMessage> toServerSentEvent(GenerationEvent generationEvent) {
+        StreamMessage streamMessage = generationEvent.message();
+        return ServerSentEvent.<StreamMessage>builder()
+                .id(generationEvent.id())
+                .event(streamMessage.getType())
+                .data(streamMessage)
+                .build();
     }
 
     /**
@@ -389,4 +427,15 @@ public class AppController {
         // 获取封装类
         return ResultUtils.success(appService.getAppVO(app));
     }
+
+    /**
+     * 管理员重新加载本地路由分类器模型（替换模型文件后调用）
+     *
+     * @return 是否加载成功
+     */
+    @PostMapping("/admin/routing/classifier/reload")
+    @AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
+    public BaseResponse<Boolean> reloadRoutingClassifier() {
+        return ResultUtils.success(codeGenTypeRouter.reloadClassifier());
+    }
 }
@@ -6,27 +6,40 @@ import com.dream.codegenerate.ai.AiCodeGeneratorServiceFactory;
 import com.dream.codegenerate.ai.model.HtmlCodeResult;
 import com.dream.codegenerate.ai.model.MultiFileCodeResult;
 import com.dream.codegenerate.ai.model.message.*;
+import com.dream.codegenerate.config.CodeGenStreamConfig;
 import com.dream.codegenerate.constant.AppConstant;
 import com.dream.codegenerate.core.builder.BuildResult;
 import com.dream.codegenerate.core.builder.VueProjectBuilder;
 import com.dream.codegenerate.ai.tools.context.SessionContextManager;
+import com.dream.codegenerate.ai.tools.stream.SpeculativeFileWriter;
+import com.dream.codegenerate.ai.tools.stream.ToolArgumentsTracker;
 import com.dream.codegenerate.core.parser.CodeParserExecutor;
 import com.dream.codegenerate.core.saver.CodeFileSaverExecutor;
+import com.dream.codegenerate.core.stream.AiResponseCoalescer;
+import com.dream.codegenerate.core.stream.BoundedStreamBridge;
 import com.dream.codegenerate.exception.BusinessException;
 import com.dream.codegenerate.exception.ErrorCode;
 import com.dream.codegenerate.model.enums.CodeGenTypeEnum;
 import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.anthropic.AnthropicTokenUsage;
 import dev.langchain4j.model.chat.response.ChatResponse;
 import dev.langchain4j.service.TokenStream;
 import dev.langchain4j.service.tool.ToolExecution;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.http.codec.ServerSentEvent;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.scheduler.Schedulers;
 
 import java.io.File;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * AI 代码生成门面类，组合代码生成和保存功能
@@ -46,12 +59,42 @@ public class AiCodeGeneratorFacade {
     @Resource
     private SessionContextManager contextManager; // 注入管理器
 
+    @Resource
+    private CodeGenStreamConfig codeGenStreamConfig;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    @Resource
+    private SpeculativeFileWriter speculativeFileWriter;
+
     /**
-     * 需要进行前端流式“回放”的工具名称列表。
+     * 参数流式到达时即开始处理的工具名称列表（目前为 writeFile 的推测写入）。
      * 未来有新工具需要此功能时，只需在此处添加其名称即可，无需修改核心逻辑。
      */
     private static final Set<String> STREAMING_TOOLS = Set.of("writeFile");
 
+    /**
+     * 进行中的生成流桥接队列，积压指标按全部生成流汇总，不按应用打标签
+     */
+    private final Set<BoundedStreamBridge> activeBridges = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void registerQueueMetrics() {
+        Gauge.builder("codegen.stream.queue.depth", activeBridges,
+                        bridges -> bridges.stream().mapToInt(BoundedStreamBridge::size).sum())
+                .description("全部生成流桥接队列中积压的消息条数")
+                .register(meterRegistry);
+        Gauge.builder("codegen.stream.queue.depth.max", activeBridges,
+                        bridges -> bridges.stream().mapToInt(BoundedStreamBridge::size).max().orElse(0))
+                .description("积压最多的单个生成流桥接队列中的消息条数")
+                .register(meterRegistry);
+        Gauge.builder("codegen.stream.queue.chars", activeBridges,
+                        bridges -> bridges.stream().mapToLong(BoundedStreamBridge::queuedChars).sum())
+                .description("全部生成流桥接队列中积压的字符数")
+                .register(meterRegistry);
+    }
+
     /**
      * 统一入口：根据类型生成并保存代码
      *
@@ -125,9 +168,9 @@ public class AiCodeGeneratorFacade {
      * @param codeGenTypeEnum 生成类型
      * @param appId           应用 ID
      * @param apiKey
-     * @return 包含AI思考和工具调用过程的SSE事件流
+     * @return 包含AI思考和工具调用过程的类型化消息流
      */
-    public Flux<ServerSentEvent<String>> generateCodeStream(UserMessage userMessage, CodeGenTypeEnum codeGenTypeEnum, Long appId, String apiKey) {
+    public Flux<StreamMessage> generateCodeStream(UserMessage userMessage, CodeGenTypeEnum codeGenTypeEnum, Long appId, String apiKey) {
         // 1. 从工厂获取根据当前任务优化的 AI 服务实例
         AiCodeGeneratorService aiCodeGeneratorService = aiCodeGeneratorServiceFactory.getAiCodeGeneratorService(appId, userMessage,codeGenTypeEnum,apiKey);
 
@@ -137,67 +180,99 @@ public class AiCodeGeneratorFacade {
         // 3. 调用统一的流式生成方法
         TokenStream tokenStream = aiCodeGeneratorService.generateCodeByStream(appId, userMessage.singleText());
 
-        // 4. 将 TokenStream 转换为包含自定义事件的 SSE Flux
-        return processTokenStreamToSse(tokenStream, appId);
+        // 4. 将 TokenStream 转换为类型化的消息流
+        return processTokenStreamToMessages(tokenStream, appId);
     }
 
 
     /**
-     * 将 TokenStream 转换为包含自定义前端事件的 Flux<ServerSentEvent<String>>
+     * 将 TokenStream 转换为类型化的 Flux<StreamMessage>
+     * 消息对象在整条链路中原样传递，不做任何中间序列化，由 HTTP 出口统一序列化一次
      *
      * @param tokenStream TokenStream 对象
      * @param appId       应用 ID
-     * @return Flux<ServerSentEvent < String>> 流式响应
+     * @return Flux<StreamMessage> 流式消息
      */
-    private Flux<ServerSentEvent<String>> processTokenStreamToSse(TokenStream tokenStream, Long appId) {
-        return Flux.create(sink -> {
-            tokenStream.onPartialResponse(partialResponse -> {
-                        // 发送 AI 思考的文本流
-                        AiResponseMessage eventDto = new AiResponseMessage(partialResponse);
-                        sink.next(ServerSentEvent.<String>builder()
-                                .event(eventDto.getType())
-                                .data(JSONUtil.toJsonStr(eventDto))
-                                .build());
-                    })
+    private Flux<StreamMessage> processTokenStreamToMessages(TokenStream tokenStream, Long appId) {
+        return Flux.<StreamMessage>create(sink -> {
+            // 有界桥接：下游跟不上时合并积压内容，仍放不下则阻塞模型响应的读取线程
+            BoundedStreamBridge bridge = new BoundedStreamBridge(sink, codeGenStreamConfig.getBufferMaxMessages(),
+                    codeGenStreamConfig.getBufferMaxChars(), codeGenStreamConfig.getBufferOverflowTimeout());
+            // 合并连续的 AI 文本小片段，减少下游的帧数与 flush 次数；定时冲刷可能被桥接阻塞，使用 boundedElastic
+            AiResponseCoalescer coalescer = new AiResponseCoalescer(bridge::next, Schedulers.boundedElastic(),
+                    codeGenStreamConfig.getCoalesceWindow(), codeGenStreamConfig.getCoalesceMaxBytes());
+            activeBridges.add(bridge);
+            // 工具参数只解析一次：结构化进度填充到工具请求消息，writeFile 的参数同时交给推测写入
+            ToolArgumentsTracker argumentsTracker = new ToolArgumentsTracker(request ->
+                    STREAMING_TOOLS.contains(request.name()) ? speculativeFileWriter.open(appId, request) : null);
+            sink.onDispose(() -> {
+                coalescer.dispose();
+                activeBridges.remove(bridge);
+                // 下游取消时同步取消模型调用：中止进行中的 HTTP 请求、不再回调、跳过剩余的工具调用、不再发起后续请求；正常结束时无影响
+                tokenStream.cancel();
+                // 清理未被工具提交的推测写入
+                speculativeFileWriter.discard(appId);
+            });
+            tokenStream.onPartialResponse(coalescer::onPartialResponse)
                     .onPartialToolExecutionRequest((index, toolExecutionRequest) -> {
-                        String toolName = toolExecutionRequest.name();
-                            // 对于其他工具，发送常规的请求事件
-                            ToolRequestMessage eventDto = new ToolRequestMessage(toolExecutionRequest);
-                            sink.next(ServerSentEvent.<String>builder()
-                                    .event(eventDto.getType())
-                                    .data(JSONUtil.toJsonStr(eventDto))
-                                    .build());
+                        ToolRequestMessage toolRequestMessage = new ToolRequestMessage(toolExecutionRequest);
+                        argumentsTracker.track(toolExecutionRequest, toolRequestMessage);
+                        // 发送工具请求事件（发送前会先冲刷已缓冲的文本）
+                        coalescer.emit(toolRequestMessage);
                     })
                     .onToolExecuted(toolExecution -> {
                         // 发送工具执行完毕的确认事件
-                        ToolExecutedMessage eventDto = new ToolExecutedMessage(toolExecution);
-//                        eventDto.setArguments("");
-                            sink.next(ServerSentEvent.<String>builder()
-                                    .event(eventDto.getType())
-                                    .data(JSONUtil.toJsonStr(eventDto))
-                                    .build());
-
+                        coalescer.emit(new ToolExecutedMessage(toolExecution));
                     })
                     .onCompleteResponse(response -> {
+                        coalescer.flush();
+                        recordTokenUsage(response, appId);
                         // 对于Vue项目，在所有流程结束后执行构建
-                        BuildResult buildResult= null;
                         if (contextManager.getContext(appId).getCodeGenType() == CodeGenTypeEnum.VUE_PROJECT) {
                             String projectPath = AppConstant.CODE_OUTPUT_ROOT_DIR + "/vue_project_" + appId;
-                            buildResult = vueProjectBuilder.buildProject(projectPath);
-                        }
-                        if (buildResult != null && !buildResult.isSuccess()){
-
+                            BuildResult buildResult = vueProjectBuilder.buildProject(projectPath);
+                            if (buildResult != null && !buildResult.isSuccess()) {
+                                log.warn("Vue 项目构建失败，appId: {}", appId);
+                            }
                         }
-                        // 发送流程结束的信号
-                        sink.next(ServerSentEvent.<String>builder().event("done").data("").build());
-                        sink.complete();
+                        // 流程结束，结束事件由 HTTP 出口统一追加
+                        bridge.complete();
                     })
-                    .onError(error-> {
-                        error.printStackTrace();
-                        sink.error(error);
+                    .onError(error -> {
+                        log.error("AI 流式生成失败，appId: {}", appId, error);
+                        coalescer.flush();
+                        bridge.error(error);
                     })
                     .start();
-        });
+        }, FluxSink.OverflowStrategy.ERROR);
+    }
+
+    /**
+     * 记录一次生成（含全部工具调用迭代）的输入 token 及提示词缓存的读写 token 数
+     * 指标只按生成类型区分，应用 ID 数量无上限，单个应用的用量输出到日志
+     */
+    private void recordTokenUsage(ChatResponse response, Long appId) {
+        if (!(response.metadata().tokenUsage() instanceof AnthropicTokenUsage usage)) {
+            return;
+        }
+        CodeGenTypeEnum codeGenType = contextManager.getContext(appId).getCodeGenType();
+        String type = codeGenType == null ? "unknown" : codeGenType.getValue();
+        incrementTokens(type, "input", usage.inputTokenCount());
+        incrementTokens(type, "cache_read", usage.cacheReadInputTokens());
+        incrementTokens(type, "cache_write", usage.cacheCreationInputTokens());
+        log.info("生成请求输入 token 用量，appId: {}, 生成类型: {}, 未缓存输入: {}, 缓存读取: {}, 缓存写入: {}",
+                appId, type, usage.inputTokenCount(), usage.cacheReadInputTokens(), usage.cacheCreationInputTokens());
+    }
+
+    private void incrementTokens(String codeGenType, String type, Integer count) {
+        if (count == null || count == 0) {
+            return;
+        }
+        Counter.builder("codegen.ai.prompt.tokens")
+                .description("生成请求的输入 token 数，按未缓存输入、缓存读取、缓存写入区分")
+                .tags("codeGenType", codeGenType, "type", type)
+                .register(meterRegistry)
+                .increment(count);
     }
 
     /**
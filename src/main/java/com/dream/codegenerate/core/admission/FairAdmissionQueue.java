@@ -0,0 +1,264 @@
+package com.dream.codegenerate.core.admission;
+
+import com.dream.codegenerate.exception.BusinessException;
+import com.dream.codegenerate.exception.ErrorCode;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * 带全局并发预算的加权公平队列
+ * 有空闲名额且没有人排队时请求直接准入，否则进入队列。队列按起始时间公平排队（start-time fair queuing）排序：
+ * 每个用户的请求依次占用 1/权重 的虚拟时间，因此一个用户连续提交的请求不会挤占其他用户，
+ * 权重为 3 的用户在竞争时获得约 3 倍于普通用户的准入次数。
+ * 直接准入的请求同样占用虚拟时间，否则一个用户可以在无人排队时占满全部名额，之后排队时仍与其他用户并列。
+ * 所有请求都结束后清空各用户的进度，空闲前的用量不再影响之后的排队。
+ * 准入回调在锁外执行，可以在回调中直接开始生成。
+ */
+public class FairAdmissionQueue {
+
+    /**
+     * 平均执行时长的平滑系数
+     */
+    private static final double ALPHA = 0.2;
+
+    private final int maxConcurrent;
+
+    private final int maxQueueSize;
+
+    private final int maxQueuedPerUser;
+
+    private final TreeSet<Ticket> queue = new TreeSet<>(Comparator
+            .comparingDouble((Ticket ticket) -> ticket.startTag)
+            .thenComparingLong(ticket -> ticket.sequence));
+
+    private final Map<Long, UserState> users = new HashMap<>();
+
+    private int running;
+
+    private long sequence;
+
+    private double virtualTime;
+
+    private double averageServiceNanos;
+
+    private long serviceSamples;
+
+    public FairAdmissionQueue(int maxConcurrent, int maxQueueSize, int maxQueuedPerUser) {
+        if (maxConcurrent <= 0) {
+            throw new IllegalArgumentException("maxConcurrent must be positive");
+        }
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueueSize = maxQueueSize;
+        this.maxQueuedPerUser = maxQueuedPerUser;
+    }
+
+    /**
+     * 提交一个请求，有空闲名额且无人排队时立即准入（在当前线程执行回调），否则排队
+     *
+     * @param userId     用户 ID
+     * @param weight     调度权重，至少为 1
+     * @param onAdmitted 准入回调
+     * @return 排队凭证
+     * @throws BusinessException 队列已满或该用户排队请求过多时
+     */
+    public Ticket enqueue(Long userId, int weight, Runnable onAdmitted) {
+        Ticket ticket;
+        synchronized (this) {
+            if (running < maxConcurrent && queue.isEmpty()) {
+                double startTag = charge(users.computeIfAbsent(userId, key -> new UserState()), weight);
+                virtualTime = startTag;
+                ticket = new Ticket(userId, onAdmitted, startTag, sequence++);
+                ticket.admit();
+                running++;
+            } else {
+                if (queue.size() >= maxQueueSize) {
+                    throw new BusinessException(ErrorCode.TOO_MANY_REQUEST, "当前生成请求过多，请稍后再试");
+                }
+                UserState user = users.computeIfAbsent(userId, key -> new UserState());
+                if (user.queued >= maxQueuedPerUser) {
+                    throw new BusinessException(ErrorCode.TOO_MANY_REQUEST, "您已有生成请求在排队，请等待其完成");
+                }
+                ticket = new Ticket(userId, onAdmitted, charge(user, weight), sequence++);
+                user.queued++;
+                queue.add(ticket);
+                return ticket;
+            }
+        }
+        onAdmitted.run();
+        return ticket;
+    }
+
+    /**
+     * 归还凭证：排队中的请求移出队列，已准入的请求释放名额并准入下一个请求，重复调用无副作用
+     */
+    public void release(Ticket ticket) {
+        List<Ticket> admitted;
+        synchronized (this) {
+            switch (ticket.state) {
+                case QUEUED -> {
+                    queue.remove(ticket);
+                    ticket.state = State.RELEASED;
+                    leaveQueue(ticket);
+                    return;
+                }
+                case ADMITTED -> {
+                    ticket.state = State.RELEASED;
+                    running--;
+                    recordServiceTime(System.nanoTime() - ticket.admittedAt);
+                    admitted = dispatch();
+                    if (running == 0) {
+                        users.clear();
+                    }
+                }
+                default -> {
+                    return;
+                }
+            }
+        }
+        admitted.forEach(it -> it.onAdmitted.run());
+    }
+
+    /**
+     * 排队位置，从 1 开始；不在队列中时返回 0
+     */
+    public synchronized int position(Ticket ticket) {
+        if (ticket.state != State.QUEUED) {
+            return 0;
+        }
+        return queue.headSet(ticket).size() + 1;
+    }
+
+    /**
+     * 按平均执行时长估算排在第 position 位的请求还需等待多久，样本不足时返回 -1
+     */
+    public synchronized long estimatedWaitNanos(int position) {
+        if (serviceSamples < 5) {
+            return -1;
+        }
+        long rounds = (position + maxConcurrent - 1L) / maxConcurrent;
+        return (long) (rounds * averageServiceNanos);
+    }
+
+    /**
+     * 新请求进入队列后的预计等待时长，不需要排队时返回 0，样本不足时返回 -1
+     */
+    public synchronized long estimatedWaitNanosForNext() {
+        if (running < maxConcurrent && queue.isEmpty()) {
+            return 0;
+        }
+        return estimatedWaitNanos(queue.size() + 1);
+    }
+
+    public synchronized int runningCount() {
+        return running;
+    }
+
+    public synchronized int queuedCount() {
+        return queue.size();
+    }
+
+    private List<Ticket> dispatch() {
+        List<Ticket> admitted = new ArrayList<>();
+        while (running < maxConcurrent && !queue.isEmpty()) {
+            Ticket next = queue.pollFirst();
+            virtualTime = Math.max(virtualTime, next.startTag);
+            leaveQueue(next);
+            next.admit();
+            running++;
+            admitted.add(next);
+        }
+        return admitted;
+    }
+
+    /**
+     * 为用户的一个请求分配虚拟时间，返回起始时间
+     */
+    private double charge(UserState user, int weight) {
+        double startTag = Math.max(virtualTime, user.finishTag);
+        user.finishTag = startTag + 1.0 / Math.max(1, weight);
+        return startTag;
+    }
+
+    private void leaveQueue(Ticket ticket) {
+        UserState user = users.get(ticket.userId);
+        if (user == null) {
+            return;
+        }
+        user.queued--;
+        // 用户没有排队的请求且虚拟时间已追上时，不必再保留其进度
+        if (user.queued <= 0 && user.finishTag <= virtualTime) {
+            users.remove(ticket.userId);
+        }
+    }
+
+    private void recordServiceTime(long nanos) {
+        averageServiceNanos = serviceSamples == 0 ? nanos : ALPHA * nanos + (1 - ALPHA) * averageServiceNanos;
+        serviceSamples++;
+    }
+
+    private enum State {
+        QUEUED, ADMITTED, RELEASED
+    }
+
+    private static class UserState {
+
+        private double finishTag;
+
+        private int queued;
+    }
+
+    /**
+     * 排队凭证
+     */
+    public static final class Ticket {
+
+        private final Long userId;
+
+        private final Runnable onAdmitted;
+
+        private final double startTag;
+
+        private final long sequence;
+
+        private final long enqueuedAt = System.nanoTime();
+
+        private volatile State state = State.QUEUED;
+
+        private long admittedAt;
+
+        private Ticket(Long userId, Runnable onAdmitted, double startTag, long sequence) {
+            this.userId = userId;
+            this.onAdmitted = onAdmitted;
+            this.startTag = startTag;
+            this.sequence = sequence;
+        }
+
+        private void admit() {
+            admittedAt = System.nanoTime();
+            state = State.ADMITTED;
+        }
+
+        public Long getUserId() {
+            return userId;
+        }
+
+        /**
+         * 是否已获得执行名额
+         */
+        public boolean isAdmitted() {
+            return state == State.ADMITTED;
+        }
+
+        /**
+         * 已排队的时长
+         */
+        public long waitedNanos() {
+            return (state == State.QUEUED ? System.nanoTime() : admittedAt) - enqueuedAt;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.dream.codegenerate.core.admission;
+
+import com.dream.codegenerate.ai.model.message.QueueStatusMessage;
+import com.dream.codegenerate.ai.model.message.StreamMessage;
+import com.dream.codegenerate.config.AdmissionConfig;
+import com.dream.codegenerate.constant.UserConstant;
+import com.dream.codegenerate.exception.BusinessException;
+import com.dream.codegenerate.exception.ErrorCode;
+import com.dream.codegenerate.model.entity.User;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 生成请求准入管理器
+ * 以全局并发预算限制单个节点同时进行的生成任务，超出的请求按用户角色加权公平排队，
+ * 排队期间通过生成流推送排队位置；预计等待或实际等待超过 SLO 的请求被拒绝，避免流量高峰拖慢所有会话。
+ */
+@Slf4j
+@Component
+public class GenerationAdmissionManager {
+
+    private static final String VIP_ROLE = "vip";
+
+    @Resource
+    private AdmissionConfig admissionConfig;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private FairAdmissionQueue queue;
+
+    @PostConstruct
+    public void init() {
+        queue = new FairAdmissionQueue(admissionConfig.getMaxConcurrent(), admissionConfig.getMaxQueueSize(),
+                admissionConfig.getMaxQueuedPerUser());
+        Gauge.builder("codegen.admission.running", queue, FairAdmissionQueue::runningCount)
+                .description("正在执行的生成任务数")
+                .register(meterRegistry);
+        Gauge.builder("codegen.admission.queued", queue, FairAdmissionQueue::queuedCount)
+                .description("排队中的生成请求数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 申请执行名额：有空闲名额时立即准入，否则排队
+     *
+     * @param loginUser 发起生成的用户
+     * @return 准入凭证，未启用准入控制时返回 null
+     * @throws BusinessException 队列已满或预计等待超过 SLO 时
+     */
+    public Admission acquire(User loginUser) {
+        if (!admissionConfig.isEnabled()) {
+            return null;
+        }
+        long sloNanos = admissionConfig.getQueueWaitSlo().toNanos();
+        if (queue.estimatedWaitNanosForNext() > sloNanos) {
+            shed("estimated_wait");
+            throw new BusinessException(ErrorCode.TOO_MANY_REQUEST, "当前排队人数较多，请稍后再试");
+        }
+        CompletableFuture<Void> admitted = new CompletableFuture<>();
+        try {
+            FairAdmissionQueue.Ticket ticket = queue.enqueue(loginUser.getId(), weightOf(loginUser),
+                    () -> admitted.complete(null));
+            return new Admission(ticket, admitted);
+        } catch (BusinessException e) {
+            shed("queue_full");
+            throw e;
+        }
+    }
+
+    /**
+     * 在准入后才订阅生成流；排队期间推送排队位置，生成流结束或被取消时归还名额
+     *
+     * @param admission  准入凭证，为 null 时直接返回生成流
+     * @param generation 生成流
+     * @return 带排队状态的生成流
+     */
+    public Flux<StreamMessage> admit(Admission admission, Flux<StreamMessage> generation) {
+        if (admission == null) {
+            return generation;
+        }
+        return Flux.defer(() -> admission.ticket().isAdmitted()
+                        ? generation
+                        // 准入回调运行在释放名额的线程上，切换线程后再开始生成
+                        : Flux.concat(queueStatus(admission), generation.subscribeOn(Schedulers.boundedElastic())))
+                .doFinally(signal -> release(admission));
+    }
+
+    /**
+     * 归还名额（或移出队列），重复调用无副作用
+     */
+    public void release(Admission admission) {
+        if (admission != null) {
+            queue.release(admission.ticket());
+        }
+    }
+
+    private Flux<StreamMessage> queueStatus(Admission admission) {
+        FairAdmissionQueue.Ticket ticket = admission.ticket();
+        long sloNanos = admissionConfig.getQueueWaitSlo().toNanos();
+        return Flux.interval(Duration.ZERO, admissionConfig.getPositionUpdateInterval())
+                .<QueueStatusMessage>handle((tick, sink) -> {
+                    int position = queue.position(ticket);
+                    if (position == 0) {
+                        // 已准入，等待 takeUntilOther 结束排队
+                        return;
+                    }
+                    if (ticket.waitedNanos() > sloNanos) {
+                        shed("wait_timeout");
+                        log.info("用户 {} 的生成请求排队超过 {} 秒，移出队列", ticket.getUserId(),
+                                admissionConfig.getQueueWaitSlo().toSeconds());
+                        sink.error(new BusinessException(ErrorCode.TOO_MANY_REQUEST, "排队等待超时，请稍后再试"));
+                        return;
+                    }
+                    long estimate = queue.estimatedWaitNanos(position);
+                    sink.next(new QueueStatusMessage(position, estimate < 0 ? -1 : TimeUnit.NANOSECONDS.toSeconds(estimate)));
+                })
+                .distinctUntilChanged(QueueStatusMessage::getPosition)
+                .takeUntilOther(Mono.fromFuture(admission.admitted(), true))
+                .doOnComplete(() -> Timer.builder("codegen.admission.wait")
+                        .description("生成请求的排队时长")
+                        .register(meterRegistry)
+                        .record(ticket.waitedNanos(), TimeUnit.NANOSECONDS))
+                .cast(StreamMessage.class);
+    }
+
+    /**
+     * 用户的调度权重，会员过期后按普通用户处理
+     */
+    private int weightOf(User loginUser) {
+        String role = loginUser.getUserRole();
+        if (VIP_ROLE.equals(role) && loginUser.getVipExpireTime() != null
+                && loginUser.getVipExpireTime().before(new Date())) {
+            role = UserConstant.DEFAULT_ROLE;
+        }
+        Integer weight = role == null ? null : admissionConfig.getRoleWeights().get(role);
+        return weight == null ? 1 : Math.max(1, weight);
+    }
+
+    private void shed(String reason) {
+        Counter.builder("codegen.admission.shed")
+                .description("被拒绝的生成请求数")
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * 准入凭证
+     *
+     * @param ticket   排队凭证
+     * @param admitted 获得名额时完成
+     */
+    public record Admission(FairAdmissionQueue.Ticket ticket, CompletableFuture<Void> admitted) {
+    }
+}
@@ -1,10 +1,11 @@
 package com.dream.codegenerate.core.handler;
 
+import com.dream.codegenerate.ai.model.message.AiResponseMessage;
+import com.dream.codegenerate.ai.model.message.StreamMessage;
 import com.dream.codegenerate.model.entity.User;
 import com.dream.codegenerate.model.enums.ChatHistoryMessageTypeEnum;
 import com.dream.codegenerate.service.ChatHistoryService;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.http.codec.ServerSentEvent;
 import reactor.core.publisher.Flux;
 
 /**
@@ -25,15 +26,16 @@ public class SimpleTextStreamHandler {
      * @param loginUser          登录用户
      * @return 处理后的流
      */
-    public Flux<ServerSentEvent<String>> handle(Flux<ServerSentEvent<String>> originFlux,
-                                          ChatHistoryService chatHistoryService,
-                                          long appId, User loginUser) {
+    public Flux<StreamMessage> handle(Flux<StreamMessage> originFlux,
+                                      ChatHistoryService chatHistoryService,
+                                      long appId, User loginUser) {
         StringBuilder aiResponseBuilder = new StringBuilder();
         return originFlux
-                .map(event -> {
+                .doOnNext(message -> {
                     // 收集AI响应内容
-                    aiResponseBuilder.append(event.data());
-                    return event;
+                    if (message instanceof AiResponseMessage aiMessage) {
+                        aiResponseBuilder.append(aiMessage.getData());
+                    }
                 })
                 .doOnComplete(() -> {
                     // 流式响应完成后，添加AI消息到对话历史
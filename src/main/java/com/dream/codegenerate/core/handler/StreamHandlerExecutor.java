@@ -1,18 +1,18 @@
 package com.dream.codegenerate.core.handler;
 
+import com.dream.codegenerate.ai.model.message.StreamMessage;
 import com.dream.codegenerate.model.entity.User;
 import com.dream.codegenerate.model.enums.CodeGenTypeEnum;
 import com.dream.codegenerate.service.ChatHistoryService;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
-import org.springframework.http.codec.ServerSentEvent;
 import reactor.core.publisher.Flux;
 
 /**
  * 流处理器执行器
  * 根据代码生成类型创建合适的流处理器：
- * 1. Flux<ServerSentEvent<String>> 流（HTML、MULTI_FILE） -> SimpleTextStreamHandler
+ * 1. 纯文本消息流（HTML、MULTI_FILE） -> SimpleTextStreamHandler
  * 2. TokenStream 格式的复杂流（VUE_PROJECT） -> JsonMessageStreamHandler
  */
 @Slf4j
@@ -43,9 +43,9 @@ public class StreamHandlerExecutor {
 //        };
 //    }
 
-    public Flux<ServerSentEvent<String>> doExecute(Flux<ServerSentEvent<String>> originFlux,
-                                                   ChatHistoryService chatHistoryService,
-                                                   long appId, User loginUser, CodeGenTypeEnum codeGenType) {
+    public Flux<StreamMessage> doExecute(Flux<StreamMessage> originFlux,
+                                         ChatHistoryService chatHistoryService,
+                                         long appId, User loginUser, CodeGenTypeEnum codeGenType) {
         return jsonMessageStreamHandler.handle(originFlux, chatHistoryService, appId, loginUser);
 
     }
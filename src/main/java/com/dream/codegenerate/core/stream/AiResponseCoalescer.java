@@ -0,0 +1,136 @@
+package com.dream.codegenerate.core.stream;
+
+import com.dream.codegenerate.ai.model.message.AiResponseMessage;
+import com.dream.codegenerate.ai.model.message.StreamMessage;
+import reactor.core.Disposable;
+import reactor.core.scheduler.Scheduler;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * AI 文本片段合并器
+ * 位于 TokenStream 回调与下游 sink 之间，将连续的 AI_RESPONSE 小片段合并为一帧：
+ * 1. 时间窗口到期或累计字节数达到阈值时发送合并后的帧；
+ * 2. 任何工具事件发送前先冲刷已缓冲的文本，保证事件顺序不变；
+ * 3. 流结束或出错前由调用方显式冲刷。
+ * 回调线程与定时冲刷线程可能不同，所有状态变更都在同一把锁内完成。
+ */
+public class AiResponseCoalescer {
+
+    private final Consumer<StreamMessage> downstream;
+    private final Scheduler scheduler;
+    private final long windowNanos;
+    private final int maxBytes;
+
+    private final StringBuilder pending = new StringBuilder();
+    private int pendingBytes;
+    private Disposable scheduledFlush;
+    private boolean disposed;
+
+    /**
+     * @param downstream 合并后消息的接收方（通常是 FluxSink::next）
+     * @param scheduler  用于时间窗口到期冲刷的调度器
+     * @param window     合并时间窗口，为 0 或负数时不合并，片段直接透传
+     * @param maxBytes   字节阈值（UTF-8）
+     */
+    public AiResponseCoalescer(Consumer<StreamMessage> downstream, Scheduler scheduler, Duration window, int maxBytes) {
+        this.downstream = downstream;
+        this.scheduler = scheduler;
+        this.windowNanos = window == null ? 0 : window.toNanos();
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * 接收一个 AI 文本片段
+     */
+    public synchronized void onPartialResponse(String partialResponse) {
+        if (disposed || partialResponse == null || partialResponse.isEmpty()) {
+            return;
+        }
+        if (windowNanos <= 0) {
+            downstream.accept(new AiResponseMessage(partialResponse));
+            return;
+        }
+        pending.append(partialResponse);
+        pendingBytes += utf8Length(partialResponse);
+        if (pendingBytes >= maxBytes) {
+            flushPending();
+            return;
+        }
+        if (scheduledFlush == null) {
+            scheduledFlush = scheduler.schedule(this::flush, windowNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * 发送一个非文本事件（如工具请求、工具执行结果），发送前先冲刷已缓冲的文本
+     */
+    public synchronized void emit(StreamMessage message) {
+        if (disposed) {
+            return;
+        }
+        flushPending();
+        downstream.accept(message);
+    }
+
+    /**
+     * 立即冲刷已缓冲的文本
+     */
+    public synchronized void flush() {
+        if (disposed) {
+            return;
+        }
+        flushPending();
+    }
+
+    /**
+     * 释放合并器，取消尚未执行的定时冲刷并丢弃缓冲内容
+     */
+    public synchronized void dispose() {
+        disposed = true;
+        cancelScheduledFlush();
+        pending.setLength(0);
+        pendingBytes = 0;
+    }
+
+    private void flushPending() {
+        cancelScheduledFlush();
+        if (pending.isEmpty()) {
+            return;
+        }
+        String merged = pending.toString();
+        pending.setLength(0);
+        pendingBytes = 0;
+        downstream.accept(new AiResponseMessage(merged));
+    }
+
+    private void cancelScheduledFlush() {
+        if (scheduledFlush != null) {
+            scheduledFlush.dispose();
+            scheduledFlush = null;
+        }
+    }
+
+    /**
+     * 计算字符串的 UTF-8 字节长度，避免为计数而分配字节数组
+     */
+    private static int utf8Length(String text) {
+        int bytes = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                bytes += 1;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,254 @@
+package com.dream.codegenerate.core.stream;
+
+import com.dream.codegenerate.ai.model.message.AiResponseMessage;
+import com.dream.codegenerate.ai.model.message.StreamMessage;
+import com.dream.codegenerate.ai.model.message.StreamingToolMessage;
+import com.dream.codegenerate.ai.model.message.ToolExecutedMessage;
+import com.dream.codegenerate.ai.model.message.ToolRequestMessage;
+import com.dream.codegenerate.exception.BusinessException;
+import com.dream.codegenerate.exception.ErrorCode;
+import reactor.core.publisher.FluxSink;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 有界的 TokenStream -> Flux 桥接器
+ * 只在下游有需求时才向 sink 发送消息，下游跟不上时消息进入有界队列，溢出策略依次为：
+ * 1. 合并：与队尾同类的 AI 文本、同一工具调用同一字段的参数增量直接拼接到队尾消息，不新增队列元素；
+ * 2. 阻塞：队列条数或积压字符数达到上限时阻塞生产者线程（即模型响应的读取线程），把背压传回上游连接；
+ * 3. 失败：阻塞超过溢出超时仍无法写入时，以错误结束该流，释放积压内容。
+ * 需配合 {@link FluxSink.OverflowStrategy#ERROR} 创建的 sink 使用，保证 Reactor 内部不再有无界缓冲。
+ */
+public class BoundedStreamBridge {
+
+    private final FluxSink<StreamMessage> sink;
+    private final int maxMessages;
+    private final long maxChars;
+    private final long overflowTimeoutNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final ArrayDeque<StreamMessage> queue = new ArrayDeque<>();
+
+    private long queuedChars;
+    private boolean draining;
+    private boolean completeRequested;
+    private Throwable pendingError;
+    private boolean terminated;
+
+    /**
+     * @param sink            下游 sink
+     * @param maxMessages     队列允许积压的最大消息条数
+     * @param maxChars        队列允许积压的最大字符数
+     * @param overflowTimeout 队列已满时生产者的最长阻塞时间
+     */
+    public BoundedStreamBridge(FluxSink<StreamMessage> sink, int maxMessages, long maxChars, Duration overflowTimeout) {
+        this.sink = sink;
+        this.maxMessages = Math.max(1, maxMessages);
+        this.maxChars = Math.max(1, maxChars);
+        this.overflowTimeoutNanos = overflowTimeout.toNanos();
+        sink.onRequest(n -> drain());
+        sink.onCancel(this::cancel);
+    }
+
+    /**
+     * 发送一条消息，队列已满时阻塞调用线程
+     */
+    public void next(StreamMessage message) {
+        lock.lock();
+        try {
+            if (terminated || completeRequested || pendingError != null) {
+                return;
+            }
+            // 下游有需求且没有积压时直接发送
+            if (queue.isEmpty() && !draining && sink.requestedFromDownstream() > 0) {
+                sink.next(message);
+                return;
+            }
+            long remaining = overflowTimeoutNanos;
+            while (isFull()) {
+                if (remaining <= 0) {
+                    overflow();
+                    return;
+                }
+                remaining = notFull.awaitNanos(remaining);
+                if (terminated) {
+                    return;
+                }
+            }
+            if (!mergeIntoTail(message)) {
+                queue.addLast(message);
+            }
+            queuedChars += sizeOf(message);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            terminate(new BusinessException(ErrorCode.SYSTEM_ERROR, "生成流被中断"));
+        } finally {
+            lock.unlock();
+        }
+        drain();
+    }
+
+    /**
+     * 正常结束，已积压的消息发送完毕后再通知下游
+     */
+    public void complete() {
+        lock.lock();
+        try {
+            completeRequested = true;
+        } finally {
+            lock.unlock();
+        }
+        drain();
+    }
+
+    /**
+     * 异常结束，已积压的消息发送完毕后再通知下游
+     */
+    public void error(Throwable error) {
+        lock.lock();
+        try {
+            if (pendingError == null) {
+                pendingError = error;
+            }
+        } finally {
+            lock.unlock();
+        }
+        drain();
+    }
+
+    /**
+     * 当前积压的消息条数
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 当前积压的字符数
+     */
+    public long queuedChars() {
+        lock.lock();
+        try {
+            return queuedChars;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void drain() {
+        lock.lock();
+        try {
+            // sink.next 可能在同一线程内回调 onRequest，此处避免重入
+            if (draining || terminated) {
+                return;
+            }
+            draining = true;
+            try {
+                while (!queue.isEmpty() && !terminated && sink.requestedFromDownstream() > 0) {
+                    StreamMessage message = queue.pollFirst();
+                    queuedChars -= sizeOf(message);
+                    sink.next(message);
+                }
+                notFull.signalAll();
+                if (queue.isEmpty() && !terminated) {
+                    if (pendingError != null) {
+                        terminated = true;
+                        sink.error(pendingError);
+                    } else if (completeRequested) {
+                        terminated = true;
+                        sink.complete();
+                    }
+                }
+            } finally {
+                draining = false;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void cancel() {
+        lock.lock();
+        try {
+            terminated = true;
+            queue.clear();
+            queuedChars = 0;
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void overflow() {
+        terminate(new BusinessException(ErrorCode.SYSTEM_ERROR, "客户端接收过慢，生成已中止"));
+    }
+
+    private void terminate(Throwable error) {
+        terminated = true;
+        queue.clear();
+        queuedChars = 0;
+        notFull.signalAll();
+        sink.error(error);
+    }
+
+    private boolean isFull() {
+        return !queue.isEmpty() && (queue.size() >= maxMessages || queuedChars >= maxChars);
+    }
+
+    /**
+     * 尝试把消息合并到队尾尚未发送的同类消息中
+     */
+    private boolean mergeIntoTail(StreamMessage message) {
+        StreamMessage tail = queue.peekLast();
+        if (tail == null) {
+            return false;
+        }
+        if (tail instanceof AiResponseMessage tailAi && message instanceof AiResponseMessage ai) {
+            tailAi.setData(tailAi.getData() + ai.getData());
+            return true;
+        }
+        if (tail instanceof ToolRequestMessage tailTool && message instanceof ToolRequestMessage tool
+                && tailTool.getId() != null && Objects.equals(tailTool.getId(), tool.getId())
+                && (tailTool.getStreamingField() == null || tool.getStreamingField() == null
+                || tailTool.getStreamingField().equals(tool.getStreamingField()))) {
+            tailTool.setArguments(Objects.toString(tailTool.getArguments(), "") + Objects.toString(tool.getArguments(), ""));
+            if (tool.getFields() != null) {
+                tailTool.setFields(tool.getFields());
+            }
+            if (tool.getStreamingField() != null) {
+                tailTool.setStreamingField(tool.getStreamingField());
+                tailTool.setStreamingDelta(Objects.toString(tailTool.getStreamingDelta(), "")
+                        + Objects.toString(tool.getStreamingDelta(), ""));
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 估算消息占用的字符数，只统计随生成内容增长的字段
+     */
+    private static long sizeOf(StreamMessage message) {
+        return switch (message) {
+            case AiResponseMessage ai -> length(ai.getData());
+            case ToolRequestMessage tool -> length(tool.getArguments()) + length(tool.getStreamingDelta());
+            case ToolExecutedMessage tool -> length(tool.getArguments()) + length(tool.getResult());
+            case StreamingToolMessage tool -> length(tool.getArguments());
+            default -> 0;
+        };
+    }
+
+    private static int length(String text) {
+        return text == null ? 0 : text.length();
+    }
+}
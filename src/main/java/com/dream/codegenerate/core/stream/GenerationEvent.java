@@ -0,0 +1,46 @@
+package com.dream.codegenerate.core.stream;
+
+import com.dream.codegenerate.ai.model.message.StreamMessage;
+
+/**
+ * 带编号的生成事件
+ * 同一次生成内序号从 1 开始单调递增，对外的事件 ID 为 "生成ID-序号"，用作 SSE 的 id 字段
+ *
+ * @param generationId 生成 ID
+ * @param sequence     事件序号
+ * @param message      流式消息
+ */
+public record GenerationEvent(String generationId, long sequence, StreamMessage message) {
+
+    private static final char SEPARATOR = '-';
+
+    /**
+     * 对外的事件 ID
+     */
+    public String id() {
+        return generationId + SEPARATOR + sequence;
+    }
+
+    /**
+     * 解析事件 ID 中的生成 ID，格式不合法时返回 null
+     */
+    public static String parseGenerationId(String eventId) {
+        int index = eventId == null ? -1 : eventId.lastIndexOf(SEPARATOR);
+        return index <= 0 ? null : eventId.substring(0, index);
+    }
+
+    /**
+     * 解析事件 ID 中的序号，格式不合法时返回 -1
+     */
+    public static long parseSequence(String eventId) {
+        int index = eventId == null ? -1 : eventId.lastIndexOf(SEPARATOR);
+        if (index <= 0) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(eventId.substring(index + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
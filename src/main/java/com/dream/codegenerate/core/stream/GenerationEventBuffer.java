@@ -0,0 +1,212 @@
+package com.dream.codegenerate.core.stream;
+
+import com.dream.codegenerate.ai.model.message.ReplayGapMessage;
+import com.dream.codegenerate.ai.model.message.StreamMessage;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 单次生成的事件缓冲区
+ * 1. 为每个事件分配单调递增的序号，并保存在固定容量的内存环形缓冲区中；
+ * 2. 环形缓冲区淘汰的事件可选地溢出到 Redis；
+ * 3. 每个订阅者持有自己的读取游标，按需从缓冲区拉取事件，既支持断点续传，也使慢客户端不会占用额外内存；
+ * 4. 游标落后到所需事件已被淘汰（且无法从 Redis 补齐）时，发送 {@link ReplayGapMessage} 后结束该订阅，
+ *    客户端据此重新加载对话历史，而不是在缺失增量的情况下继续拼接内容。
+ */
+@Slf4j
+public class GenerationEventBuffer {
+
+    /**
+     * 每次从 Redis 读取的最大事件数
+     */
+    private static final int SPILL_BATCH_SIZE = 256;
+
+    @Getter
+    private final String generationId;
+    private final GenerationEvent[] ring;
+    private final RedisEventSpill spill;
+    private final List<Cursor> cursors = new CopyOnWriteArrayList<>();
+
+    private long lastSequence;
+    private boolean finished;
+    private Throwable error;
+
+    /**
+     * @param generationId 生成 ID
+     * @param capacity     内存中保留的事件数
+     * @param spill        溢出存储，为 null 时淘汰的事件直接丢弃
+     */
+    public GenerationEventBuffer(String generationId, int capacity, RedisEventSpill spill) {
+        this.generationId = generationId;
+        this.ring = new GenerationEvent[Math.max(1, capacity)];
+        this.spill = spill;
+    }
+
+    /**
+     * 追加一个事件并通知所有订阅者
+     */
+    public void append(StreamMessage message) {
+        synchronized (this) {
+            if (finished) {
+                return;
+            }
+            long sequence = ++lastSequence;
+            int index = (int) ((sequence - 1) % ring.length);
+            GenerationEvent evicted = ring[index];
+            // 在锁内完成溢出，保证读取方看到“已淘汰”时数据已经写入 Redis
+            if (evicted != null && spill != null) {
+                spill.append(evicted);
+            }
+            ring[index] = new GenerationEvent(generationId, sequence, message);
+        }
+        cursors.forEach(Cursor::drain);
+    }
+
+    /**
+     * 生成正常结束
+     */
+    public void complete() {
+        finish(null);
+    }
+
+    /**
+     * 生成异常结束
+     */
+    public void fail(Throwable throwable) {
+        finish(throwable);
+    }
+
+    /**
+     * 订阅序号大于 afterSequence 的事件，包括已产生的事件与之后的实时事件
+     *
+     * @param afterSequence 已收到的最后一个事件序号，0 表示从头开始
+     */
+    public Flux<GenerationEvent> subscribe(long afterSequence) {
+        return Flux.create(sink -> {
+            Cursor cursor = new Cursor(sink, afterSequence);
+            cursors.add(cursor);
+            sink.onDispose(() -> cursors.remove(cursor));
+            sink.onRequest(n -> cursor.drain());
+        }, FluxSink.OverflowStrategy.ERROR);
+    }
+
+    /**
+     * 释放缓冲区占用的外部资源
+     */
+    public void release() {
+        if (spill != null) {
+            spill.delete();
+        }
+    }
+
+    public synchronized boolean isFinished() {
+        return finished;
+    }
+
+    private void finish(Throwable throwable) {
+        synchronized (this) {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            error = throwable;
+        }
+        cursors.forEach(Cursor::drain);
+    }
+
+    /**
+     * 单个订阅者的读取游标
+     */
+    private final class Cursor {
+
+        private final FluxSink<GenerationEvent> sink;
+        private final AtomicInteger wip = new AtomicInteger();
+        private final ArrayDeque<GenerationEvent> spilled = new ArrayDeque<>();
+        private long position;
+        private boolean done;
+
+        Cursor(FluxSink<GenerationEvent> sink, long afterSequence) {
+            this.sink = sink;
+            this.position = Math.max(0, afterSequence);
+        }
+
+        void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            do {
+                while (!done && !sink.isCancelled() && sink.requestedFromDownstream() > 0) {
+                    GenerationEvent event = nextEvent();
+                    if (event == null) {
+                        break;
+                    }
+                    if (event.message() instanceof ReplayGapMessage) {
+                        // 缺口事件沿用最后一个已发送的序号，浏览器的 Last-Event-ID 不会越过缺失的事件
+                        done = true;
+                        sink.next(event);
+                        sink.complete();
+                        break;
+                    }
+                    position = event.sequence();
+                    sink.next(event);
+                }
+                checkTerminated();
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private GenerationEvent nextEvent() {
+            if (!spilled.isEmpty()) {
+                return spilled.poll();
+            }
+            long next = position + 1;
+            long oldestInMemory;
+            synchronized (GenerationEventBuffer.this) {
+                if (next > lastSequence) {
+                    return null;
+                }
+                oldestInMemory = Math.max(1, lastSequence - ring.length + 1);
+                if (next >= oldestInMemory) {
+                    return ring[(int) ((next - 1) % ring.length)];
+                }
+            }
+            // 游标落后于内存窗口，从 Redis 补齐
+            if (spill != null) {
+                long to = Math.min(oldestInMemory - 1, next + SPILL_BATCH_SIZE - 1);
+                spilled.addAll(spill.range(generationId, next, to));
+                if (!spilled.isEmpty()) {
+                    return spilled.poll();
+                }
+            }
+            log.warn("生成事件 {}-{} 至 {} 已过期，无法回放，结束订阅", generationId, next, oldestInMemory - 1);
+            return new GenerationEvent(generationId, position, new ReplayGapMessage(next, oldestInMemory - 1));
+        }
+
+        private void checkTerminated() {
+            if (done || sink.isCancelled() || !spilled.isEmpty()) {
+                return;
+            }
+            Throwable terminalError;
+            synchronized (GenerationEventBuffer.this) {
+                if (!finished || position < lastSequence) {
+                    return;
+                }
+                terminalError = error;
+            }
+            done = true;
+            if (terminalError != null) {
+                sink.error(terminalError);
+            } else {
+                sink.complete();
+            }
+        }
+    }
+}
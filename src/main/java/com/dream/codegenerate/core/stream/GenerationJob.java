@@ -0,0 +1,95 @@
+package com.dream.codegenerate.core.stream;
+
+import com.dream.codegenerate.ai.model.message.StreamMessage;
+import com.dream.codegenerate.exception.BusinessException;
+import com.dream.codegenerate.exception.ErrorCode;
+import lombok.Getter;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * 生成任务
+ * 一次 chatToGenCode 调用对应一个任务，任务在服务端独立订阅生成流，与发起它的 HTTP 请求解耦。
+ * 所有观察者（多个浏览器标签页、预览 iframe、管理员）都通过事件缓冲区订阅同一份事件，不会重复调用模型。
+ */
+public class GenerationJob {
+
+    @Getter
+    private final Long appId;
+
+    @Getter
+    private final Long userId;
+
+    @Getter
+    private final String generationId;
+
+    @Getter
+    private final LocalDateTime startTime = LocalDateTime.now();
+
+    @Getter
+    private final GenerationEventBuffer buffer;
+
+    private Disposable subscription;
+
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+
+    private final Consumer<GenerationJob> idleListener;
+
+    GenerationJob(Long appId, Long userId, String generationId, GenerationEventBuffer buffer,
+                  Consumer<GenerationJob> idleListener) {
+        this.appId = appId;
+        this.userId = userId;
+        this.generationId = generationId;
+        this.buffer = buffer;
+        this.idleListener = idleListener;
+    }
+
+    /**
+     * 在服务端订阅生成流，事件写入缓冲区
+     */
+    synchronized void start(Flux<StreamMessage> source) {
+        subscription = source.subscribe(buffer::append, buffer::fail, buffer::complete);
+    }
+
+    /**
+     * 取消任务：取消上游生成流（进而取消模型调用），并以错误结束所有订阅者
+     */
+    synchronized void cancel(String reason) {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+        buffer.fail(new BusinessException(ErrorCode.OPERATION_ERROR, reason));
+    }
+
+    /**
+     * 订阅序号大于 afterSequence 的事件（含之后的实时事件）
+     * 最后一个订阅者离开时通知管理器，由管理器决定是否取消任务
+     */
+    public Flux<GenerationEvent> subscribe(long afterSequence) {
+        return buffer.subscribe(afterSequence)
+                .doOnSubscribe(subscription -> subscriberCount.incrementAndGet())
+                .doFinally(signal -> {
+                    if (subscriberCount.decrementAndGet() == 0) {
+                        idleListener.accept(this);
+                    }
+                });
+    }
+
+    /**
+     * 当前订阅者数量
+     */
+    public int getSubscriberCount() {
+        return subscriberCount.get();
+    }
+
+    /**
+     * 任务是否仍在运行（已登记但尚未开始订阅的任务也视为运行中）
+     */
+    public boolean isRunning() {
+        return !buffer.isFinished();
+    }
+}
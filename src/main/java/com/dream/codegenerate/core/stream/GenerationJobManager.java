@@ -0,0 +1,153 @@
+package com.dream.codegenerate.core.stream;
+
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.StrUtil;
+import com.dream.codegenerate.ai.model.message.StreamMessage;
+import com.dream.codegenerate.config.CodeGenStreamConfig;
+import com.dream.codegenerate.exception.BusinessException;
+import com.dream.codegenerate.exception.ErrorCode;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RedissonClient;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 生成任务管理器
+ * 按 appId 登记当前（或刚结束的）生成任务。同一应用同一时间只允许一个运行中的任务，
+ * HTTP 请求只订阅任务的事件流，客户端断开不会中断生成，任务结束后照常持久化对话历史。
+ */
+@Slf4j
+@Component
+public class GenerationJobManager {
+
+    @Resource
+    private CodeGenStreamConfig codeGenStreamConfig;
+
+    @Resource
+    private RedissonClient redissonClient;
+
+    private final Map<Long, GenerationJob> jobs = new ConcurrentHashMap<>();
+
+    /**
+     * 为应用登记一个新任务，应用已有运行中的任务时拒绝
+     *
+     * @param appId  应用 ID
+     * @param userId 发起用户 ID
+     * @return 已登记、尚未开始的任务
+     */
+    public GenerationJob reserve(Long appId, Long userId) {
+        return jobs.compute(appId, (key, existing) -> {
+            if (existing != null && existing.isRunning()) {
+                throw new BusinessException(ErrorCode.OPERATION_ERROR, "该应用正在生成中，请等待当前生成结束");
+            }
+            if (existing != null) {
+                existing.getBuffer().release();
+            }
+            String generationId = IdUtil.getSnowflakeNextIdStr();
+            RedisEventSpill spill = codeGenStreamConfig.isReplaySpillEnabled()
+                    ? new RedisEventSpill(redissonClient, generationId, codeGenStreamConfig.getReplayRetention().plusMinutes(1))
+                    : null;
+            GenerationEventBuffer buffer = new GenerationEventBuffer(generationId, codeGenStreamConfig.getReplayBufferSize(), spill);
+            return new GenerationJob(appId, userId, generationId, buffer, this::scheduleIdleCheck);
+        });
+    }
+
+    /**
+     * 开始任务：在服务端订阅生成流，返回从第一个事件开始的订阅
+     *
+     * @param job    已登记的任务
+     * @param source 生成流
+     * @return 带编号的事件流
+     */
+    public Flux<GenerationEvent> start(GenerationJob job, Flux<StreamMessage> source) {
+        Flux<GenerationEvent> events = job.subscribe(0);
+        job.start(source.doFinally(signal -> scheduleRemoval(job)));
+        // 发起请求的客户端可能始终没有订阅，同样按空闲处理
+        scheduleIdleCheck(job);
+        return events;
+    }
+
+    /**
+     * 取消应用当前运行中的任务
+     *
+     * @param appId 应用 ID
+     * @return 是否有任务被取消
+     */
+    public boolean cancel(Long appId) {
+        GenerationJob job = jobs.get(appId);
+        if (job == null || !job.isRunning()) {
+            return false;
+        }
+        job.cancel("生成已取消");
+        return true;
+    }
+
+    /**
+     * 放弃一个尚未开始的任务（例如开始前的准备步骤失败）
+     */
+    public void abandon(GenerationJob job) {
+        job.getBuffer().fail(new BusinessException(ErrorCode.OPERATION_ERROR, "生成任务未能启动"));
+        jobs.remove(job.getAppId(), job);
+        job.getBuffer().release();
+    }
+
+    /**
+     * 观察应用当前的任务：回放 lastEventId 之后的事件并继续接收实时事件
+     * lastEventId 为空时从头回放；没有任务、任务已过期或已被新的任务替换时返回空流
+     *
+     * @param appId       应用 ID
+     * @param lastEventId 客户端收到的最后一个事件 ID，可为空
+     * @return 带编号的事件流
+     */
+    public Flux<GenerationEvent> watch(Long appId, String lastEventId) {
+        GenerationJob job = jobs.get(appId);
+        if (job == null) {
+            return Flux.empty();
+        }
+        if (StrUtil.isBlank(lastEventId)) {
+            return job.subscribe(0);
+        }
+        long sequence = GenerationEvent.parseSequence(lastEventId);
+        if (sequence < 0 || !job.getGenerationId().equals(GenerationEvent.parseGenerationId(lastEventId))) {
+            log.info("应用 {} 没有可续传的生成，lastEventId: {}", appId, lastEventId);
+            return Flux.empty();
+        }
+        return job.subscribe(sequence);
+    }
+
+    /**
+     * 获取应用当前（或刚结束的）任务
+     */
+    public GenerationJob getJob(Long appId) {
+        return jobs.get(appId);
+    }
+
+    /**
+     * 任务没有订阅者时，等待宽限期（允许断线重连），之后仍没有订阅者则取消任务，避免为无人接收的生成付费
+     */
+    private void scheduleIdleCheck(GenerationJob job) {
+        Duration gracePeriod = codeGenStreamConfig.getCancelGracePeriod();
+        Schedulers.parallel().schedule(() -> {
+            if (job.isRunning() && job.getSubscriberCount() == 0) {
+                log.info("应用 {} 的生成任务已无订阅者超过 {} 秒，取消生成", job.getAppId(), gracePeriod.toSeconds());
+                job.cancel("客户端已断开，生成已取消");
+            }
+        }, gracePeriod.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private void scheduleRemoval(GenerationJob job) {
+        Duration retention = codeGenStreamConfig.getReplayRetention();
+        Schedulers.parallel().schedule(() -> {
+            if (jobs.remove(job.getAppId(), job)) {
+                job.getBuffer().release();
+            }
+        }, retention.toMillis(), TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,95 @@
+package com.dream.codegenerate.core.stream;
+
+import cn.hutool.json.JSONUtil;
+import com.dream.codegenerate.ai.model.message.*;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RList;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 生成事件的 Redis 溢出存储
+ * 内存环形缓冲区淘汰的事件按序追加到 Redis 列表中，列表下标 = 序号 - 1
+ */
+@Slf4j
+public class RedisEventSpill {
+
+    private static final String KEY_PREFIX = "codegen:stream:events:";
+
+    private static final Map<String, Class<? extends StreamMessage>> MESSAGE_TYPES = Map.of(
+            StreamMessageTypeEnum.AI_RESPONSE.getValue(), AiResponseMessage.class,
+            StreamMessageTypeEnum.TOOL_REQUEST.getValue(), ToolRequestMessage.class,
+            StreamMessageTypeEnum.TOOL_EXECUTED.getValue(), ToolExecutedMessage.class,
+            StreamMessageTypeEnum.TOOL_STREAM.getValue(), StreamingToolMessage.class);
+
+    private final RList<String> list;
+    private final Duration ttl;
+    private volatile boolean broken;
+
+    public RedisEventSpill(RedissonClient redissonClient, String generationId, Duration ttl) {
+        this.list = redissonClient.getList(KEY_PREFIX + generationId, StringCodec.INSTANCE);
+        this.ttl = ttl;
+    }
+
+    /**
+     * 追加一个被淘汰的事件，调用方需保证按序号顺序调用
+     */
+    public void append(GenerationEvent event) {
+        if (broken) {
+            return;
+        }
+        try {
+            list.add(JSONUtil.toJsonStr(event.message()));
+            if (event.sequence() == 1) {
+                list.expire(ttl);
+            }
+        } catch (Exception e) {
+            // Redis 不可用时放弃溢出，之后的回放只能从内存中最早的事件开始
+            broken = true;
+            log.warn("生成事件溢出到 Redis 失败，generationId: {}", event.generationId(), e);
+        }
+    }
+
+    /**
+     * 读取序号区间 [fromSequence, toSequence] 内的事件
+     */
+    public List<GenerationEvent> range(String generationId, long fromSequence, long toSequence) {
+        if (broken) {
+            return List.of();
+        }
+        try {
+            List<String> values = list.range((int) (fromSequence - 1), (int) (toSequence - 1));
+            List<GenerationEvent> events = new ArrayList<>(values.size());
+            long sequence = fromSequence;
+            for (String value : values) {
+                events.add(new GenerationEvent(generationId, sequence++, toMessage(value)));
+            }
+            return events;
+        } catch (Exception e) {
+            log.warn("从 Redis 读取溢出的生成事件失败，generationId: {}", generationId, e);
+            return List.of();
+        }
+    }
+
+    /**
+     * 删除溢出数据
+     */
+    public void delete() {
+        try {
+            list.deleteAsync();
+        } catch (Exception e) {
+            log.warn("删除溢出的生成事件失败: {}", list.getName(), e);
+        }
+    }
+
+    private static StreamMessage toMessage(String json) {
+        String type = JSONUtil.parseObj(json).getStr("type");
+        Class<? extends StreamMessage> messageClass = MESSAGE_TYPES.getOrDefault(type, StreamMessage.class);
+        return JSONUtil.toBean(json, messageClass);
+    }
+}
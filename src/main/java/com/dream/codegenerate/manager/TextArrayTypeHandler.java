@@ -0,0 +1,48 @@
+package com.dream.codegenerate.manager;
+
+import org.apache.ibatis.type.BaseTypeHandler;
+import org.apache.ibatis.type.JdbcType;
+
+import java.sql.Array;
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * MyBatis-Flex 的自定义 TypeHandler，用于将 Java 的 List<String> 映射到 PostgreSQL 的 text[] 类型。
+ */
+public class TextArrayTypeHandler extends BaseTypeHandler<List<String>> {
+
+    @Override
+    public void setNonNullParameter(PreparedStatement ps, int i, List<String> parameter, JdbcType jdbcType) throws SQLException {
+        ps.setArray(i, ps.getConnection().createArrayOf("text", parameter.toArray()));
+    }
+
+    @Override
+    public List<String> getNullableResult(ResultSet rs, String columnName) throws SQLException {
+        return toList(rs.getArray(columnName));
+    }
+
+    @Override
+    public List<String> getNullableResult(ResultSet rs, int columnIndex) throws SQLException {
+        return toList(rs.getArray(columnIndex));
+    }
+
+    @Override
+    public List<String> getNullableResult(CallableStatement cs, int columnIndex) throws SQLException {
+        return toList(cs.getArray(columnIndex));
+    }
+
+    private static List<String> toList(Array array) throws SQLException {
+        if (array == null) {
+            return null;
+        }
+        try {
+            return List.of((String[]) array.getArray());
+        } finally {
+            array.free();
+        }
+    }
+}
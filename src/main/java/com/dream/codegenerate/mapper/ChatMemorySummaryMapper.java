@@ -0,0 +1,13 @@
+package com.dream.codegenerate.mapper;
+
+import com.dream.codegenerate.model.entity.ChatMemorySummary;
+import com.mybatisflex.annotation.UseDataSource;
+import com.mybatisflex.core.BaseMapper;
+
+/**
+ * 对话记忆摘要 映射层。
+ */
+@UseDataSource("mysql")
+public interface ChatMemorySummaryMapper extends BaseMapper<ChatMemorySummary> {
+
+}
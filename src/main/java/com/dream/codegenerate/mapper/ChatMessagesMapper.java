@@ -7,6 +7,8 @@ import com.pgvector.PGvector;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 
+import java.time.OffsetDateTime;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -26,7 +28,7 @@ public interface ChatMessagesMapper extends BaseMapper<ChatMessagesEntity> {
      */
     // 使用 @Select 注解直接编写 SQL，这是处理特殊函数最方便的方式
     @Select("SELECT * FROM chat_messages " +
-            "WHERE memory_id = #{memoryId} " +
+            "WHERE memory_id = #{memoryId} AND embedding IS NOT NULL " +
             "ORDER BY embedding <=> #{queryVector} " + // 核心：使用余弦距离进行排序
             "LIMIT #{maxResults}")
     List<ChatMessagesEntity> findSimilar(
@@ -49,4 +51,45 @@ public interface ChatMessagesMapper extends BaseMapper<ChatMessagesEntity> {
             @Param("memoryId") String memoryId,
             @Param("toolCallId") String toolCallId
     );
+
+    /**
+     * 根据一组 tool_call_id 批量查找工具执行结果消息，一次查询补全所有工具调用链。
+     *
+     * @param memoryId    会话ID
+     * @param toolCallIds 工具调用的唯一ID集合，不能为空
+     * @return 匹配的工具执行结果实体列表，按创建时间升序
+     */
+    @Select("<script>" +
+            "SELECT * FROM chat_messages " +
+            "WHERE memory_id = #{memoryId} AND tool_call_id IN " +
+            "<foreach collection='toolCallIds' item='toolCallId' open='(' separator=',' close=')'>" +
+            "#{toolCallId}" +
+            "</foreach> " +
+            "ORDER BY created_at" +
+            "</script>")
+    List<ChatMessagesEntity> findByToolCallIds(
+            @Param("memoryId") String memoryId,
+            @Param("toolCallIds") Collection<String> toolCallIds
+    );
+
+    /**
+     * 按 ID 顺序查找指定时间范围内保存、但还没有向量的非系统消息，用于补偿向量化。
+     *
+     * @param afterId 只查找 ID 大于该值的消息
+     * @param since   保存时间下限（含）
+     * @param before  保存时间上限（不含）
+     * @param limit   返回的最大结果数量
+     * @return 缺少向量的消息实体列表
+     */
+    @Select("SELECT * FROM chat_messages " +
+            "WHERE id > #{afterId} AND embedding IS NULL AND message_type <> 'SYSTEM' " +
+            "AND created_at >= #{since} AND created_at < #{before} " +
+            "ORDER BY id " +
+            "LIMIT #{limit}")
+    List<ChatMessagesEntity> findMissingEmbeddings(
+            @Param("afterId") long afterId,
+            @Param("since") OffsetDateTime since,
+            @Param("before") OffsetDateTime before,
+            @Param("limit") int limit
+    );
 }
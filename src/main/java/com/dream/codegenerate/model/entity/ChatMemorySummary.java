@@ -0,0 +1,71 @@
+package com.dream.codegenerate.model.entity;
+
+import com.mybatisflex.annotation.Column;
+import com.mybatisflex.annotation.Id;
+import com.mybatisflex.annotation.KeyType;
+import com.mybatisflex.annotation.Table;
+import com.mybatisflex.core.keygen.KeyGenerators;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 对话记忆摘要 实体类。
+ * 每个应用一条，记录被压缩的早期对话的摘要，以及摘要之后保留的第一条对话历史 id
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(dataSource = "mysql", value = "chat_memory_summary")
+public class ChatMemorySummary implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * id
+     */
+    @Id(keyType = KeyType.Generator, value = KeyGenerators.snowFlakeId)
+    private Long id;
+
+    /**
+     * 应用id
+     */
+    @Column("appId")
+    private Long appId;
+
+    /**
+     * 更早对话的摘要
+     */
+    private String summary;
+
+    /**
+     * 摘要之后保留的第一条对话历史 id
+     */
+    @Column("fromHistoryId")
+    private Long fromHistoryId;
+
+    /**
+     * 创建时间
+     */
+    @Column("createTime")
+    private LocalDateTime createTime;
+
+    /**
+     * 更新时间
+     */
+    @Column("updateTime")
+    private LocalDateTime updateTime;
+
+    /**
+     * 是否删除
+     */
+    @Column(value = "isDelete", isLogicDelete = true)
+    private Integer isDelete;
+}
@@ -3,6 +3,7 @@ package com.dream.codegenerate.model.entity;
 import com.dream.codegenerate.manager.VectorTypeHandler;
 import com.dream.codegenerate.model.enums.MessageTypeEnum;
 import com.dream.codegenerate.manager.JsonbStringTypeHandler;
+import com.dream.codegenerate.manager.TextArrayTypeHandler;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -14,6 +15,7 @@ import java.io.Serializable;
 import java.time.OffsetDateTime;
 import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 
 import java.io.Serial;
 
@@ -57,6 +59,12 @@ public class ChatMessagesEntity implements Serializable {
     @Column(typeHandler = JsonbStringTypeHandler.class)
     private String toolExecutionRequests;
 
+    /**
+     * AI 消息发起的工具调用 ID（text[]），补全工具调用链时无需反序列化 toolExecutionRequests
+     */
+    @Column(typeHandler = TextArrayTypeHandler.class)
+    private List<String> toolCallIds;
+
     private String toolCallId;
 
     private String toolName;
@@ -85,6 +93,10 @@ public class ChatMessagesEntity implements Serializable {
                     builder.text(aiMessage.text());
                     if (aiMessage.hasToolExecutionRequests()) {
                         builder.toolExecutionRequests(objectMapper.writeValueAsString(aiMessage.toolExecutionRequests()));
+                        builder.toolCallIds(aiMessage.toolExecutionRequests().stream()
+                                .map(ToolExecutionRequest::id)
+                                .filter(Objects::nonNull)
+                                .toList());
                     }
                 }
                 case ToolExecutionResultMessage toolMessage -> {
@@ -137,4 +149,27 @@ public class ChatMessagesEntity implements Serializable {
             throw new RuntimeException("从实体反序列化 ChatMessage 时出错", e);
         }
     }
+
+    /**
+     * 返回 AI 消息发起的工具调用 ID。
+     * 优先读取 toolCallIds 列，该列为空的历史数据再从 toolExecutionRequests 反序列化。
+     */
+    public List<String> toolCallIdList(ObjectMapper objectMapper) {
+        if (this.getMessageType() != MessageTypeEnum.AI) {
+            return Collections.emptyList();
+        }
+        if (this.getToolCallIds() != null && !this.getToolCallIds().isEmpty()) {
+            return this.getToolCallIds();
+        }
+        if (this.getToolExecutionRequests() == null || this.getToolExecutionRequests().isEmpty()) {
+            return Collections.emptyList();
+        }
+        try {
+            List<ToolExecutionRequest> requests = objectMapper.readValue(this.getToolExecutionRequests(),
+                    new TypeReference<>() {});
+            return requests.stream().map(ToolExecutionRequest::id).filter(Objects::nonNull).toList();
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("从实体反序列化工具调用请求时出错", e);
+        }
+    }
 }
@@ -35,4 +35,9 @@ public @interface RateLimit {
      * 限流提示信息
      */
     String message() default "请求过于频繁，请稍后再试";
+
+    /**
+     * 请求携带该请求头时不计入限流，为空时不跳过（如断线重连携带的 Last-Event-ID，只续传已有生成，不发起新的模型调用）
+     */
+    String skipWhenHeader() default "";
 }
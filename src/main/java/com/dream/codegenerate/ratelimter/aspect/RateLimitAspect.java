@@ -39,6 +39,9 @@ public class RateLimitAspect {
 
     @Before("@annotation(rateLimit)")
     public void doBefore(JoinPoint point, RateLimit rateLimit) {
+        if (shouldSkip(rateLimit)) {
+            return;
+        }
         String key = generateRateLimitKey(point, rateLimit);
         // 使用 Redisson 的分布式限流器
         RRateLimiter rateLimiter = redissonClient.getRateLimiter(key);
@@ -101,6 +104,21 @@ public class RateLimitAspect {
         return keyBuilder.toString();
     }
 
+    /**
+     * 请求携带 skipWhenHeader 指定的请求头时跳过限流
+     */
+    private boolean shouldSkip(RateLimit rateLimit) {
+        if (rateLimit.skipWhenHeader().isEmpty()) {
+            return false;
+        }
+        ServletRequestAttributes attributes = (ServletRequestAttributes) RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return false;
+        }
+        String value = attributes.getRequest().getHeader(rateLimit.skipWhenHeader());
+        return value != null && !value.isBlank();
+    }
+
     /**
      * 获取客户端IP
      *
@@ -1,5 +1,6 @@
 package com.dream.codegenerate.service;
 
+import com.dream.codegenerate.core.stream.GenerationEvent;
 import com.mybatisflex.core.query.QueryWrapper;
 import com.mybatisflex.core.service.IService;
 import com.dream.codegenerate.model.dto.app.AppAddRequest;
@@ -7,7 +8,6 @@ import com.dream.codegenerate.model.dto.app.AppQueryRequest;
 import com.dream.codegenerate.model.entity.App;
 import com.dream.codegenerate.model.entity.User;
 import com.dream.codegenerate.model.vo.AppVO;
-import org.springframework.http.codec.ServerSentEvent;
 import reactor.core.publisher.Flux;
 
 import java.util.List;
@@ -25,9 +25,29 @@ public interface AppService extends IService<App> {
      * @param appId     应用 ID
      * @param message   提示词
      * @param loginUser 登录用户
-     * @return
+     * @return 带编号的生成事件流
+     */
+    Flux<GenerationEvent> chatToGenCode(Long appId, String message, User loginUser);
+
+    /**
+     * 观察应用当前的生成任务，不会发起新的模型调用
+     * 用于断线重连（携带 Last-Event-ID）以及其他页面、管理员旁观同一次生成
+     *
+     * @param appId       应用 ID
+     * @param lastEventId 客户端收到的最后一个事件 ID，为空时从头回放
+     * @param loginUser   登录用户
+     * @return 错过的事件及之后的实时事件；没有可观察的生成时为空流
+     */
+    Flux<GenerationEvent> watchGenCode(Long appId, String lastEventId, User loginUser);
+
+    /**
+     * 停止应用当前的生成任务
+     *
+     * @param appId     应用 ID
+     * @param loginUser 登录用户
+     * @return 是否有任务被停止
      */
-    Flux<ServerSentEvent<String>> chatToGenCode(Long appId, String message, User loginUser);
+    boolean cancelGenCode(Long appId, User loginUser);
 
     /**
      * 创建应用
@@ -3,6 +3,7 @@ package com.dream.codegenerate.service;
 import com.mybatisflex.core.paginate.Page;
 import com.mybatisflex.core.query.QueryWrapper;
 import com.mybatisflex.core.service.IService;
+import com.dream.codegenerate.ai.memory.ChatHistoryPage;
 import com.dream.codegenerate.model.dto.chathistory.ChatHistoryQueryRequest;
 import com.dream.codegenerate.model.entity.ChatHistory;
 import com.dream.codegenerate.model.entity.User;
@@ -60,6 +61,27 @@ public interface ChatHistoryService extends IService<ChatHistory> {
      */
     int loadChatHistoryToMemory(Long appId, ChatMemory chatMemory, int maxCount);
 
+    /**
+     * 按 id 游标分页加载对话历史（只读，不写入任何记忆存储）
+     * 加载最新一页时会跳过最新的一条记录，即已先行入库的本轮用户消息
+     *
+     * @param appId    应用ID
+     * @param beforeId 只加载 id 小于该值的记录；为 null 时加载最新的一页
+     * @param fromId   只加载 id 大于等于该值的记录（更早的对话已被摘要）；为 null 时不限制
+     * @param limit    最多加载多少条
+     * @return 按时间正序排列的一页历史
+     */
+    ChatHistoryPage loadChatHistoryPage(Long appId, Long beforeId, Long fromId, int limit);
+
+    /**
+     * 获取应用最近第 n 条用户消息的 id
+     *
+     * @param appId 应用ID
+     * @param n     从最新一条开始数，从 1 开始
+     * @return 对话历史 id，不足 n 条时返回 null
+     */
+    Long getLatestUserMessageId(Long appId, int n);
+
     /**
      * 构造查询条件
      *
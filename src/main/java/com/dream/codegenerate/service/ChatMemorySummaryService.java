@@ -0,0 +1,34 @@
+package com.dream.codegenerate.service;
+
+import com.dream.codegenerate.model.entity.ChatMemorySummary;
+import com.mybatisflex.core.service.IService;
+
+/**
+ * 对话记忆摘要 服务层。
+ */
+public interface ChatMemorySummaryService extends IService<ChatMemorySummary> {
+
+    /**
+     * 获取应用的对话记忆摘要
+     *
+     * @param appId 应用ID
+     * @return 摘要，没有时返回 null
+     */
+    ChatMemorySummary getByAppId(Long appId);
+
+    /**
+     * 保存应用的对话记忆摘要（覆盖旧摘要）
+     *
+     * @param appId         应用ID
+     * @param summary       摘要内容
+     * @param fromHistoryId 摘要之后保留的第一条对话历史 id，重建记忆时从这里开始加载历史
+     */
+    void saveSummary(Long appId, String summary, Long fromHistoryId);
+
+    /**
+     * 删除应用的对话记忆摘要
+     *
+     * @param appId 应用ID
+     */
+    void deleteByAppId(Long appId);
+}
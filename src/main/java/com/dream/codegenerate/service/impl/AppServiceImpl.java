@@ -5,16 +5,21 @@ import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.util.RandomUtil;
 import cn.hutool.core.util.StrUtil;
+import com.dream.codegenerate.ai.model.message.StreamMessage;
 import com.dream.codegenerate.core.builder.BuildResult;
 import com.dream.codegenerate.service.*;
 import com.mybatisflex.core.query.QueryWrapper;
 import com.mybatisflex.spring.service.impl.ServiceImpl;
-import com.dream.codegenerate.ai.AiCodeGenTypeRoutingService;
-import com.dream.codegenerate.ai.AiCodeGenTypeRoutingServiceFactory;
+import com.dream.codegenerate.ai.routing.CodeGenTypeRouter;
 import com.dream.codegenerate.constant.AppConstant;
+import com.dream.codegenerate.constant.UserConstant;
 import com.dream.codegenerate.core.AiCodeGeneratorFacade;
+import com.dream.codegenerate.core.admission.GenerationAdmissionManager;
 import com.dream.codegenerate.core.builder.VueProjectBuilder;
 import com.dream.codegenerate.core.handler.StreamHandlerExecutor;
+import com.dream.codegenerate.core.stream.GenerationEvent;
+import com.dream.codegenerate.core.stream.GenerationJob;
+import com.dream.codegenerate.core.stream.GenerationJobManager;
 import com.dream.codegenerate.exception.BusinessException;
 import com.dream.codegenerate.exception.ErrorCode;
 import com.dream.codegenerate.exception.ThrowUtils;
@@ -32,7 +37,6 @@ import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.http.codec.ServerSentEvent;
 import reactor.core.publisher.Flux;
 
 import java.io.File;
@@ -42,6 +46,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -75,13 +80,22 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
     private ScreenshotService screenshotService;
 
     @Resource
-    private AiCodeGenTypeRoutingServiceFactory aiCodeGenTypeRoutingServiceFactory;
+    private CodeGenTypeRouter codeGenTypeRouter;
 
     @Resource
     private AccessKeyService accessKeyService;
 
+    @Resource
+    private GenerationJobManager generationJobManager;
+
+    @Resource
+    private GenerationAdmissionManager generationAdmissionManager;
+
+    @Resource
+    private ChatMemorySummaryService chatMemorySummaryService;
+
     @Override
-    public Flux<ServerSentEvent<String>> chatToGenCode(Long appId, String message, User loginUser) {
+    public Flux<GenerationEvent> chatToGenCode(Long appId, String message, User loginUser) {
         // 1. 参数校验
         ThrowUtils.throwIf(appId == null || appId <= 0, ErrorCode.PARAMS_ERROR, "应用 ID 错误");
         ThrowUtils.throwIf(StrUtil.isBlank(message), ErrorCode.PARAMS_ERROR, "提示词不能为空");
@@ -102,14 +116,55 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
 //                TextContent.from(message),
 //                ImageContent.from("https://upload.wikimedia.org/wikipedia/commons/4/47/PNG_transparency_demonstration_1.png")
 //        );
-        // 5. 在调用 AI 前，先保存用户消息到数据库中
-        chatHistoryService.addChatMessage(appId, message, ChatHistoryMessageTypeEnum.USER.getValue(), loginUser.getId());
-        // 6. 调用 AI 生成代码（流式）
-        UserMessage userMessage = new UserMessage( message);
-        String apiKey = accessKeyService.getApiKey(loginUser.getId());
-        Flux<ServerSentEvent<String>> codeStream = aiCodeGeneratorFacade.generateCodeStream(userMessage, codeGenTypeEnum, appId,apiKey);
-        // 7. 收集 AI 响应的内容，并且在完成后保存记录到对话历史
-        return streamHandlerExecutor.doExecute(codeStream, chatHistoryService, appId, loginUser, codeGenTypeEnum);
+        // 5. 登记生成任务，同一应用同一时间只允许一个任务，其他页面通过 watch 观察
+        GenerationJob job = generationJobManager.reserve(appId, loginUser.getId());
+        GenerationAdmissionManager.Admission admission = null;
+        try {
+            // 6. 申请执行名额，节点繁忙时排队，队列已满或预计等待过长时直接拒绝
+            admission = generationAdmissionManager.acquire(loginUser);
+            String apiKey = accessKeyService.getApiKey(loginUser.getId());
+            Supplier<Flux<StreamMessage>> generation = () -> {
+                // 7. 在调用 AI 前，先保存用户消息到数据库中
+                chatHistoryService.addChatMessage(appId, message, ChatHistoryMessageTypeEnum.USER.getValue(), loginUser.getId());
+                // 8. 调用 AI 生成代码（流式）
+                UserMessage userMessage = new UserMessage(message);
+                Flux<StreamMessage> codeStream = aiCodeGeneratorFacade.generateCodeStream(userMessage, codeGenTypeEnum, appId, apiKey);
+                // 9. 收集 AI 响应的内容，并且在完成后保存记录到对话历史
+                return streamHandlerExecutor.doExecute(codeStream, chatHistoryService, appId, loginUser, codeGenTypeEnum);
+            };
+            // 需要排队时，7~9 推迟到获得执行名额后才执行：排队期间不保存用户消息，也不构建 AI 服务和对话记忆
+            boolean queued = admission != null && !admission.ticket().isAdmitted();
+            Flux<StreamMessage> handledStream = queued ? Flux.defer(generation) : generation.get();
+            // 10. 由任务在服务端订阅，客户端断开不影响生成与持久化；获得名额后才开始生成，排队期间推送排队位置
+            return generationJobManager.start(job, generationAdmissionManager.admit(admission, handledStream));
+        } catch (RuntimeException e) {
+            generationAdmissionManager.release(admission);
+            generationJobManager.abandon(job);
+            throw e;
+        }
+    }
+
+    @Override
+    public Flux<GenerationEvent> watchGenCode(Long appId, String lastEventId, User loginUser) {
+        ThrowUtils.throwIf(appId == null || appId <= 0, ErrorCode.PARAMS_ERROR, "应用 ID 错误");
+        App app = this.getById(appId);
+        ThrowUtils.throwIf(app == null, ErrorCode.NOT_FOUND_ERROR, "应用不存在");
+        // 仅应用创建者和管理员可以观察生成过程
+        boolean isAdmin = UserConstant.ADMIN_ROLE.equals(loginUser.getUserRole());
+        boolean isCreator = app.getUserId().equals(loginUser.getId());
+        ThrowUtils.throwIf(!isAdmin && !isCreator, ErrorCode.NO_AUTH_ERROR, "无权限访问该应用");
+        return generationJobManager.watch(appId, lastEventId);
+    }
+
+    @Override
+    public boolean cancelGenCode(Long appId, User loginUser) {
+        ThrowUtils.throwIf(appId == null || appId <= 0, ErrorCode.PARAMS_ERROR, "应用 ID 错误");
+        App app = this.getById(appId);
+        ThrowUtils.throwIf(app == null, ErrorCode.NOT_FOUND_ERROR, "应用不存在");
+        if (!app.getUserId().equals(loginUser.getId())) {
+            throw new BusinessException(ErrorCode.NO_AUTH_ERROR, "无权限访问该应用");
+        }
+        return generationJobManager.cancel(appId);
     }
 
     @Override
@@ -125,9 +180,8 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
         app.setAppName(initPrompt.substring(0, Math.min(initPrompt.length(), 8)));
         //获取apikey
         String apiKey = accessKeyService.getApiKey(loginUser.getId());
-        // 使用 AI 智能选择代码生成类型（多例模式）
-        AiCodeGenTypeRoutingService aiCodeGenTypeRoutingService = aiCodeGenTypeRoutingServiceFactory.createAiCodeGenTypeRoutingService(apiKey);
-        CodeGenTypeEnum selectedCodeGenType = aiCodeGenTypeRoutingService.routeCodeGenType(initPrompt);
+        // 使用 AI 智能选择代码生成类型，近似重复的 prompt 直接复用缓存的路由结果
+        CodeGenTypeEnum selectedCodeGenType = codeGenTypeRouter.route(initPrompt, apiKey);
         app.setCodeGenType(selectedCodeGenType.getValue());
         // 插入数据库
         boolean result = this.save(app);
@@ -297,6 +351,7 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
         // 先删除关联的对话历史
         try {
             chatHistoryService.deleteByAppId(appId);
+            chatMemorySummaryService.deleteByAppId(appId);
         } catch (Exception e) {
             log.error("删除应用关联的对话历史失败：{}", e.getMessage());
         }
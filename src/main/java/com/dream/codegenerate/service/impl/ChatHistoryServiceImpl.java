@@ -3,8 +3,10 @@ package com.dream.codegenerate.service.impl;
 import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.util.StrUtil;
 import com.mybatisflex.core.paginate.Page;
+import com.mybatisflex.core.query.QueryMethods;
 import com.mybatisflex.core.query.QueryWrapper;
 import com.mybatisflex.spring.service.impl.ServiceImpl;
+import com.dream.codegenerate.ai.memory.ChatHistoryPage;
 import com.dream.codegenerate.constant.UserConstant;
 import com.dream.codegenerate.exception.ErrorCode;
 import com.dream.codegenerate.exception.ThrowUtils;
@@ -17,6 +19,7 @@ import com.dream.codegenerate.model.enums.ChatHistoryMessageTypeEnum;
 import com.dream.codegenerate.service.AppService;
 import com.dream.codegenerate.service.ChatHistoryService;
 import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
 import dev.langchain4j.data.message.UserMessage;
 import dev.langchain4j.memory.ChatMemory;
 import dev.langchain4j.memory.chat.MessageWindowChatMemory;
@@ -26,6 +29,7 @@ import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -127,6 +131,53 @@ public class ChatHistoryServiceImpl extends ServiceImpl<ChatHistoryMapper, ChatH
         }
     }
 
+    @Override
+    public ChatHistoryPage loadChatHistoryPage(Long appId, Long beforeId, Long fromId, int limit) {
+        if (limit <= 0) {
+            return ChatHistoryPage.empty();
+        }
+        // id 由雪花算法生成，与创建时间同序，用作游标可以避免深分页的 offset 扫描
+        QueryWrapper queryWrapper = QueryWrapper.create()
+                .eq(ChatHistory::getAppId, appId)
+                .ge(ChatHistory::getId, fromId, fromId != null)
+                .orderBy(ChatHistory::getId, false);
+        if (beforeId == null) {
+            // 跳过最新一条，即本轮已入库的用户消息，它会由 AiServices 自行加入记忆
+            queryWrapper.limit(1, limit);
+        } else {
+            queryWrapper.lt(ChatHistory::getId, beforeId).limit(limit);
+        }
+        List<ChatHistory> historyList = this.list(queryWrapper);
+        if (CollUtil.isEmpty(historyList)) {
+            return ChatHistoryPage.empty();
+        }
+        List<ChatMessage> messages = new ArrayList<>(historyList.size());
+        // 倒序遍历，保证按照时间正序（老的在前，新的在后）
+        for (ChatHistory history : historyList.reversed()) {
+            if (ChatHistoryMessageTypeEnum.USER.getValue().equals(history.getMessageType())) {
+                messages.add(UserMessage.from(history.getMessage()));
+            } else if (ChatHistoryMessageTypeEnum.AI.getValue().equals(history.getMessageType())) {
+                messages.add(AiMessage.from(history.getMessage()));
+            }
+        }
+        return new ChatHistoryPage(messages, historyList.getLast().getId(), historyList.size());
+    }
+
+    @Override
+    public Long getLatestUserMessageId(Long appId, int n) {
+        if (n <= 0) {
+            return null;
+        }
+        QueryWrapper queryWrapper = QueryWrapper.create()
+                .select(QueryMethods.column(ChatHistory::getId))
+                .eq(ChatHistory::getAppId, appId)
+                .eq(ChatHistory::getMessageType, ChatHistoryMessageTypeEnum.USER.getValue())
+                .orderBy(ChatHistory::getId, false)
+                .limit(n - 1, 1);
+        ChatHistory chatHistory = this.getOne(queryWrapper);
+        return chatHistory == null ? null : chatHistory.getId();
+    }
+
     /**
      * 获取查询包装类
      *
@@ -0,0 +1,40 @@
+package com.dream.codegenerate.service.impl;
+
+import com.dream.codegenerate.mapper.ChatMemorySummaryMapper;
+import com.dream.codegenerate.model.entity.ChatMemorySummary;
+import com.dream.codegenerate.service.ChatMemorySummaryService;
+import com.mybatisflex.core.query.QueryWrapper;
+import com.mybatisflex.spring.service.impl.ServiceImpl;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+/**
+ * 对话记忆摘要 服务层实现。
+ */
+@Service
+@Slf4j
+public class ChatMemorySummaryServiceImpl extends ServiceImpl<ChatMemorySummaryMapper, ChatMemorySummary>
+        implements ChatMemorySummaryService {
+
+    @Override
+    public ChatMemorySummary getByAppId(Long appId) {
+        return this.getOne(QueryWrapper.create().eq(ChatMemorySummary::getAppId, appId));
+    }
+
+    @Override
+    public void saveSummary(Long appId, String summary, Long fromHistoryId) {
+        ChatMemorySummary existing = getByAppId(appId);
+        ChatMemorySummary chatMemorySummary = ChatMemorySummary.builder()
+                .id(existing == null ? null : existing.getId())
+                .appId(appId)
+                .summary(summary)
+                .fromHistoryId(fromHistoryId)
+                .build();
+        this.saveOrUpdate(chatMemorySummary);
+    }
+
+    @Override
+    public void deleteByAppId(Long appId) {
+        this.remove(QueryWrapper.create().eq(ChatMemorySummary::getAppId, appId));
+    }
+}
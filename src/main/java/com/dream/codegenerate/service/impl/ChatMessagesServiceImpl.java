@@ -1,9 +1,9 @@
 package com.dream.codegenerate.service.impl;
 
+import com.dream.codegenerate.ai.memory.ChatMessageEmbeddingPipeline;
 import com.dream.codegenerate.model.entity.table.ChatMessagesTableDef;
 import com.dream.codegenerate.model.enums.MessageTypeEnum;
 import com.dream.codegenerate.utils.EmbeddingUtils;
-import com.dream.codegenerate.utils.JsonProcessorUtil;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mybatisflex.core.query.QueryWrapper;
 import com.mybatisflex.spring.service.impl.ServiceImpl;
@@ -11,12 +11,9 @@ import com.dream.codegenerate.model.entity.ChatMessagesEntity;
 import com.dream.codegenerate.mapper.ChatMessagesMapper;
 import com.dream.codegenerate.service.ChatMessagesService;
 import com.pgvector.PGvector;
-import dev.langchain4j.agent.tool.ToolExecutionRequest;
 import dev.langchain4j.data.embedding.Embedding;
-import dev.langchain4j.data.message.AiMessage;
 import dev.langchain4j.data.message.ChatMessage;
 import dev.langchain4j.data.message.UserMessage;
-import io.micrometer.common.util.StringUtils;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -43,6 +40,9 @@ public class ChatMessagesServiceImpl extends ServiceImpl<ChatMessagesMapper, Cha
     @Resource
     private EmbeddingUtils embeddingUtils;
 
+    @Resource
+    private ChatMessageEmbeddingPipeline chatMessageEmbeddingPipeline;
+
 
 
     /**
@@ -105,27 +105,27 @@ public class ChatMessagesServiceImpl extends ServiceImpl<ChatMessagesMapper, Cha
             }
 
             // --- 步骤 3: 保证工具调用的完整性 ---
-            List<ChatMessagesEntity> toolResultsToLoad = new ArrayList<>();
-            // 创建一个副本进行遍历，避免在遍历时修改Map
-            for (ChatMessagesEntity entity : new ArrayList<>(messagesToLoadMap.values())) {
-                // 只关心AI消息
-                if (entity.getMessageType() == MessageTypeEnum.AI) {
-                    ChatMessage chatMessage = entity.toChatMessage(langchain4jObjectMapper);
-                    if (chatMessage instanceof AiMessage aiMessage && aiMessage.hasToolExecutionRequests()) {
-                        for (ToolExecutionRequest request : aiMessage.toolExecutionRequests()) {
-                            // 调用 Mapper 根据 toolCallId 查询对应的工具执行结果
-                            ChatMessagesEntity toolResultEntity = this.mapper.findByToolCallId(memoryId, request.id());
-
-                            if (toolResultEntity != null && !messagesToLoadMap.containsKey(toolResultEntity.getId())) {
-                                // 如果找到了结果，并且这个结果不在我们已经选出的消息列表里，就把它加进来
-                                toolResultsToLoad.add(toolResultEntity);
-                                log.info("补全工具调用链：找到并添加 toolCallId: {} 的结果", request.id());
-                            }
-                        }
+            // 收集已选 AI 消息发起的工具调用，去掉结果已在列表中的，再一次批量查询缺失的工具执行结果
+            Set<String> missingToolCallIds = new LinkedHashSet<>();
+            for (ChatMessagesEntity entity : messagesToLoadMap.values()) {
+                missingToolCallIds.addAll(entity.toolCallIdList(langchain4jObjectMapper));
+            }
+            for (ChatMessagesEntity entity : messagesToLoadMap.values()) {
+                if (entity.getMessageType() == MessageTypeEnum.TOOL_EXECUTION_RESULT) {
+                    missingToolCallIds.remove(entity.getToolCallId());
+                }
+            }
+            if (!missingToolCallIds.isEmpty()) {
+                int added = 0;
+                for (ChatMessagesEntity toolResultEntity : this.mapper.findByToolCallIds(memoryId, missingToolCallIds)) {
+                    // 同一个 toolCallId 只取最早的一条结果
+                    if (missingToolCallIds.remove(toolResultEntity.getToolCallId())) {
+                        messagesToLoadMap.putIfAbsent(toolResultEntity.getId(), toolResultEntity);
+                        added++;
                     }
                 }
+                log.info("补全工具调用链：为 memoryId: {} 添加了 {} 条工具执行结果", memoryId, added);
             }
-            toolResultsToLoad.forEach(entity -> messagesToLoadMap.put(entity.getId(), entity));
 
             // --- 步骤 4: 最终整理并返回 ---
             if (messagesToLoadMap.isEmpty()) return new ArrayList<>();
@@ -147,22 +147,31 @@ public class ChatMessagesServiceImpl extends ServiceImpl<ChatMessagesMapper, Cha
 
 
     /**
-     * 更新一个会话的所有消息，并调用实体类的静态方法进行转换。
+     * 追加一个会话的新消息，并调用实体类的静态方法进行转换。
+     * 开启异步向量化时消息先以 embedding = null 保存，再交给向量化流水线批量回填，不阻塞生成流程。
      */
     @Override
     public void updateMessages(Object memoryId, List<ChatMessage> messages) {
-        ChatMessagesEntity lastMessage = ChatMessagesEntity.from(memoryId.toString(), messages.getLast(), langchain4jObjectMapper);
-        //获取要向量化的数据
-        String text = getTextForEmbedding(lastMessage);
-        Embedding embeddingResult = embeddingUtils.embeddingShortText(text);
-        if (embeddingResult != null) {
-            // 只有在成功获取到嵌入结果时，才创建PGvector并设置
-            lastMessage.setEmbedding(new PGvector(embeddingResult.vector()));
-        } else {
-            // 如果没有有效的嵌入结果，将字段设置为null
-            lastMessage.setEmbedding(null);
+        // 传入的是需要追加的新消息，写入后台合并后可能一次传入多条
+        List<ChatMessagesEntity> entities = new ArrayList<>(messages.size());
+        for (ChatMessage message : messages) {
+            entities.add(ChatMessagesEntity.from(memoryId.toString(), message, langchain4jObjectMapper));
         }
-        this.save(lastMessage);
+        if (chatMessageEmbeddingPipeline.isEnabled()) {
+            this.saveBatch(entities);
+            chatMessageEmbeddingPipeline.submit(entities);
+            return;
+        }
+        for (ChatMessagesEntity entity : entities) {
+            //获取要向量化的数据
+            String text = chatMessageEmbeddingPipeline.policy().textFor(entity);
+            Embedding embeddingResult = embeddingUtils.embeddingShortText(text);
+            if (embeddingResult != null) {
+                // 只有在成功获取到嵌入结果时，才创建PGvector并设置
+                entity.setEmbedding(new PGvector(embeddingResult.vector()));
+            }
+        }
+        this.saveBatch(entities);
     }
 
     /**
@@ -179,15 +188,4 @@ public class ChatMessagesServiceImpl extends ServiceImpl<ChatMessagesMapper, Cha
         });
     }
 
-
-    //辅助方法，返回对应消息所需向量化的文本
-    private String getTextForEmbedding(ChatMessagesEntity message) {
-        return switch (message.getMessageType()) {
-            case USER -> JsonProcessorUtil.findFirstFieldValue(message.getContents(), "text");
-            case AI -> StringUtils.isNotBlank(message.getText())
-                    ? message.getText()
-                    : JsonProcessorUtil.findActionDescriptionInArguments(message.getToolExecutionRequests());
-            default -> null;
-        };
-    }
 }
@@ -1,31 +1,86 @@
 package com.dream.codegenerate.utils;
 
+import cn.hutool.crypto.digest.DigestUtil;
+import com.dream.codegenerate.config.EmbeddingCacheConfig;
+import com.dream.codegenerate.config.EmbeddingConfig;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import dev.langchain4j.data.document.DocumentSplitter;
 import dev.langchain4j.data.document.splitter.DocumentSplitters;
 import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
 import dev.langchain4j.model.embedding.EmbeddingModel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
 import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RBatch;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.ByteArrayCodec;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * Classname EmbeddingUtil
  * Description 向量化工具类
  * 封装了文本的切分和向量化逻辑，使其易于在应用中复用。
+ * 向量按“模型名称 + 规范化文本”的哈希缓存在本地 Caffeine 和 Redis 两级缓存中（送去向量化的仍是原文），
+ * 跨会话、跨重试重复出现的 prompt、工具动作描述和检索查询不再重复调用向量模型。
  * Date 2025/10/4 14:56
  * Created by womon
  */
+@Slf4j
 @Component
 public class EmbeddingUtils {
 
+    private static final String REDIS_KEY_PREFIX = "codegen:embedding:";
 
     @Resource
     @Qualifier("openAiEmbeddingModels")
     private EmbeddingModel openAiEmbeddingModels;
 
+    @Resource
+    private EmbeddingConfig embeddingConfig;
+
+    @Resource
+    private EmbeddingCacheConfig embeddingCacheConfig;
+
+    @Resource
+    private RedissonClient redissonClient;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
     private final DocumentSplitter documentSplitter =DocumentSplitters.recursive(500, 100);;
 
+    private Cache<String, float[]> localCache;
+
+    private Counter localHitCounter;
+
+    private Counter redisHitCounter;
+
+    private Counter missCounter;
+
+    @PostConstruct
+    public void init() {
+        localCache = Caffeine.newBuilder()
+                .maximumSize(embeddingCacheConfig.getLocalMaxEntries())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, localCache, "embedding");
+        localHitCounter = cacheCounter("local");
+        redisHitCounter = cacheCounter("redis");
+        missCounter = cacheCounter("miss");
+    }
 
     /**
      * 将单个短文本字符串转换为向量。
@@ -38,7 +93,142 @@ public class EmbeddingUtils {
         if (!StringUtils.hasText(text)) {
             return null;
         }
-        return openAiEmbeddingModels.embed(text).content();
+        return embeddingShortTexts(List.of(text)).getFirst();
     }
 
+    /**
+     * 批量将短文本转换为向量，缓存未命中的文本合并为一次 embedAll 请求。
+     *
+     * @param texts 需要向量化的文本
+     * @return 与 texts 一一对应的向量，空白文本对应 null
+     */
+    public List<Embedding> embeddingShortTexts(List<String> texts) {
+        Embedding[] embeddings = new Embedding[texts.size()];
+        // 同一批次中相同的文本只查询、向量化一次
+        Map<String, List<Integer>> missingPositions = new LinkedHashMap<>();
+        Map<String, String> missingTexts = new LinkedHashMap<>();
+        for (int i = 0; i < texts.size(); i++) {
+            String text = texts.get(i);
+            if (!StringUtils.hasText(text)) {
+                continue;
+            }
+            // 规范化文本只用于计算缓存 key，送去向量化的仍是原文
+            String key = cacheKey(normalize(text));
+            float[] cached = embeddingCacheConfig.isEnabled() ? localCache.getIfPresent(key) : null;
+            if (cached != null) {
+                localHitCounter.increment();
+                embeddings[i] = Embedding.from(cached);
+                continue;
+            }
+            missingPositions.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
+            missingTexts.putIfAbsent(key, text);
+        }
+        if (missingPositions.isEmpty()) {
+            return Arrays.asList(embeddings);
+        }
+        if (embeddingCacheConfig.isEnabled() && embeddingCacheConfig.isRedisEnabled()) {
+            Map<String, float[]> found = loadFromRedis(missingPositions.keySet());
+            found.forEach((key, vector) -> {
+                localCache.put(key, vector);
+                List<Integer> positions = missingPositions.remove(key);
+                missingTexts.remove(key);
+                redisHitCounter.increment(positions.size());
+                for (int position : positions) {
+                    embeddings[position] = Embedding.from(vector);
+                }
+            });
+        }
+        if (missingPositions.isEmpty()) {
+            return Arrays.asList(embeddings);
+        }
+        List<String> keys = new ArrayList<>(missingTexts.keySet());
+        List<TextSegment> segments = missingTexts.values().stream().map(TextSegment::from).toList();
+        List<Embedding> computed = openAiEmbeddingModels.embedAll(segments).content();
+        Map<String, byte[]> toStore = new LinkedHashMap<>();
+        for (int i = 0; i < keys.size(); i++) {
+            String key = keys.get(i);
+            Embedding embedding = computed.get(i);
+            if (embeddingCacheConfig.isEnabled()) {
+                // 本地缓存与 Redis 保存同样精度的向量，保证同一文本在各节点上得到相同的向量
+                byte[] encoded = EmbeddingVectorCodec.encode(embedding.vector(), embeddingCacheConfig.isFloat16());
+                float[] cachedVector = EmbeddingVectorCodec.decode(encoded);
+                localCache.put(key, cachedVector);
+                toStore.put(key, encoded);
+                embedding = Embedding.from(cachedVector);
+            }
+            List<Integer> positions = missingPositions.get(key);
+            missCounter.increment(positions.size());
+            for (int position : positions) {
+                embeddings[position] = embedding;
+            }
+        }
+        if (embeddingCacheConfig.isEnabled() && embeddingCacheConfig.isRedisEnabled()) {
+            saveToRedis(toStore);
+        }
+        return Arrays.asList(embeddings);
+    }
+
+    /**
+     * 从 Redis 批量读取向量，Redis 不可用时视为未命中
+     */
+    private Map<String, float[]> loadFromRedis(Iterable<String> keys) {
+        List<String> redisKeys = new ArrayList<>();
+        keys.forEach(key -> redisKeys.add(REDIS_KEY_PREFIX + key));
+        Map<String, float[]> found = new LinkedHashMap<>();
+        try {
+            Map<String, byte[]> values = redissonClient.getBuckets(ByteArrayCodec.INSTANCE)
+                    .get(redisKeys.toArray(String[]::new));
+            values.forEach((redisKey, bytes) -> {
+                float[] vector = EmbeddingVectorCodec.decode(bytes);
+                if (vector != null) {
+                    found.put(redisKey.substring(REDIS_KEY_PREFIX.length()), vector);
+                }
+            });
+        } catch (Exception e) {
+            log.warn("读取向量缓存失败: {}", e.getMessage());
+        }
+        return found;
+    }
+
+    /**
+     * 异步写入 Redis，不等待写入完成
+     */
+    private void saveToRedis(Map<String, byte[]> encodedVectors) {
+        if (encodedVectors.isEmpty()) {
+            return;
+        }
+        try {
+            RBatch batch = redissonClient.createBatch();
+            encodedVectors.forEach((key, encoded) -> batch.<byte[]>getBucket(REDIS_KEY_PREFIX + key, ByteArrayCodec.INSTANCE)
+                    .setAsync(encoded, embeddingCacheConfig.getRedisTtl()));
+            batch.executeAsync().whenComplete((result, e) -> {
+                if (e != null) {
+                    log.warn("写入向量缓存失败: {}", e.getMessage());
+                }
+            });
+        } catch (Exception e) {
+            log.warn("写入向量缓存失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 缓存 key：模型名称和规范化文本的 SHA-256
+     */
+    private String cacheKey(String normalizedText) {
+        return DigestUtil.sha256Hex(embeddingConfig.getModelName() + "\n" + normalizedText);
+    }
+
+    /**
+     * 规范化文本：去除首尾空白、合并连续空白，只用于计算缓存 key
+     */
+    static String normalize(String text) {
+        return text.strip().replaceAll("\\s+", " ");
+    }
+
+    private Counter cacheCounter(String result) {
+        return Counter.builder("codegen.embedding.cache")
+                .description("文本向量缓存的命中情况")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
 }
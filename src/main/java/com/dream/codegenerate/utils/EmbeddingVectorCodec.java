@@ -0,0 +1,71 @@
+package com.dream.codegenerate.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * 向量的紧凑二进制编码
+ * 第一个字节标记格式（float16 或 float32），之后是小端序的分量；float16 编码体积为 float32 的一半。
+ */
+public class EmbeddingVectorCodec {
+
+    private static final byte FLOAT16 = 1;
+
+    private static final byte FLOAT32 = 2;
+
+    private EmbeddingVectorCodec() {
+    }
+
+    /**
+     * 编码向量
+     *
+     * @param vector  向量
+     * @param float16 是否以 float16 编码
+     * @return 编码后的字节
+     */
+    public static byte[] encode(float[] vector, boolean float16) {
+        ByteBuffer buffer = ByteBuffer.allocate(1 + vector.length * (float16 ? Short.BYTES : Float.BYTES))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(float16 ? FLOAT16 : FLOAT32);
+        for (float value : vector) {
+            if (float16) {
+                buffer.putShort(Float.floatToFloat16(value));
+            } else {
+                buffer.putFloat(value);
+            }
+        }
+        return buffer.array();
+    }
+
+    /**
+     * 解码向量
+     *
+     * @param bytes 编码后的字节
+     * @return 向量，格式无法识别时返回 null
+     */
+    public static float[] decode(byte[] bytes) {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, 1, bytes.length - 1).order(ByteOrder.LITTLE_ENDIAN);
+        switch (bytes[0]) {
+            case FLOAT16 -> {
+                float[] vector = new float[(bytes.length - 1) / Short.BYTES];
+                for (int i = 0; i < vector.length; i++) {
+                    vector[i] = Float.float16ToFloat(buffer.getShort());
+                }
+                return vector;
+            }
+            case FLOAT32 -> {
+                float[] vector = new float[(bytes.length - 1) / Float.BYTES];
+                for (int i = 0; i < vector.length; i++) {
+                    vector[i] = buffer.getFloat();
+                }
+                return vector;
+            }
+            default -> {
+                return null;
+            }
+        }
+    }
+}
@@ -11,40 +11,46 @@ import dev.langchain4j.model.openai.internal.shared.Usage;
 import dev.langchain4j.model.output.FinishReason;
 import dev.langchain4j.model.output.TokenUsage;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicReference;
 
 import static dev.langchain4j.internal.Utils.isNullOrBlank;
 import static dev.langchain4j.internal.Utils.isNullOrEmpty;
 import static dev.langchain4j.model.openai.internal.OpenAiUtils.finishReasonFrom;
 import static dev.langchain4j.model.openai.internal.OpenAiUtils.tokenUsageFrom;
 import static java.util.Collections.singletonList;
-import static java.util.stream.Collectors.toList;
 
 /**
- * This class needs to be thread safe because it is called when a streaming result comes back
- * and there is no guarantee that this thread will be the same as the one that initiated the request,
- * in fact it almost certainly won't be.
+ * Accumulates the partial responses of one streaming call into the final {@link ChatResponse}.
+ * <p>
+ * Single-writer: all partial responses of a call are delivered one after another by the HTTP client
+ * (never concurrently), and {@link #build()} is invoked from the completion callback of the same call,
+ * after the last {@code append}. The builder therefore uses plain fields and keeps text as a list of
+ * the received chunks, which are joined exactly once in {@link #build()}; the resulting {@link ChatResponse}
+ * is immutable and safe to hand over to other threads.
+ * Do not share an instance between calls or append from several threads.
  */
 @Internal
 public class OpenAiStreamingResponseBuilder {
 
-    private final StringBuffer contentBuilder = new StringBuffer();
+    private final TextAccumulator contentBuilder = new TextAccumulator();
 
-    private final StringBuffer toolNameBuilder = new StringBuffer();
-    private final StringBuffer toolArgumentsBuilder = new StringBuffer();
+    private final TextAccumulator toolNameBuilder = new TextAccumulator();
+    private final TextAccumulator toolArgumentsBuilder = new TextAccumulator();
 
-    private final Map<Integer, ToolExecutionRequestBuilder> indexToToolExecutionRequestBuilder = new ConcurrentHashMap<>();
+    /**
+     * Tool calls in the order of their index; slots of indices that never arrived stay null.
+     */
+    private final List<ToolExecutionRequestBuilder> toolExecutionRequestBuilders = new ArrayList<>(2);
 
-    private final AtomicReference<String> id = new AtomicReference<>();
-    private final AtomicReference<Long> created = new AtomicReference<>();
-    private final AtomicReference<String> model = new AtomicReference<>();
-    private final AtomicReference<String> serviceTier = new AtomicReference<>();
-    private final AtomicReference<String> systemFingerprint = new AtomicReference<>();
-    private final AtomicReference<TokenUsage> tokenUsage = new AtomicReference<>();
-    private final AtomicReference<FinishReason> finishReason = new AtomicReference<>();
+    private String id;
+    private Long created;
+    private String model;
+    private String serviceTier;
+    private String systemFingerprint;
+    private TokenUsage tokenUsage;
+    private FinishReason finishReason;
 
     public void append(ChatCompletionResponse partialResponse) {
         if (partialResponse == null) {
@@ -52,24 +58,24 @@ public class OpenAiStreamingResponseBuilder {
         }
 
         if (!isNullOrBlank(partialResponse.id())) {
-            this.id.set(partialResponse.id());
+            this.id = partialResponse.id();
         }
         if (partialResponse.created() != null) {
-            this.created.set(partialResponse.created());
+            this.created = partialResponse.created();
         }
         if (!isNullOrBlank(partialResponse.model())) {
-            this.model.set(partialResponse.model());
+            this.model = partialResponse.model();
         }
         if (!isNullOrBlank(partialResponse.serviceTier())) {
-            this.serviceTier.set(partialResponse.serviceTier());
+            this.serviceTier = partialResponse.serviceTier();
         }
         if (!isNullOrBlank(partialResponse.systemFingerprint())) {
-            this.systemFingerprint.set(partialResponse.systemFingerprint());
+            this.systemFingerprint = partialResponse.systemFingerprint();
         }
 
         Usage usage = partialResponse.usage();
         if (usage != null) {
-            this.tokenUsage.set(tokenUsageFrom(usage));
+            this.tokenUsage = tokenUsageFrom(usage);
         }
 
         List<ChatCompletionChoice> choices = partialResponse.choices();
@@ -84,7 +90,7 @@ public class OpenAiStreamingResponseBuilder {
 
         String finishReason = chatCompletionChoice.finishReason();
         if (finishReason != null) {
-            this.finishReason.set(finishReasonFrom(finishReason));
+            this.finishReason = finishReasonFrom(finishReason);
         }
 
         Delta delta = chatCompletionChoice.delta();
@@ -110,20 +116,18 @@ public class OpenAiStreamingResponseBuilder {
         }
 
         if (delta.toolCalls() != null) {
-            System.out.println("OLOLO " + delta.toolCalls()); // TODO
-
             for (ToolCall toolCall : delta.toolCalls()) {
 
-                ToolExecutionRequestBuilder builder = this.indexToToolExecutionRequestBuilder.computeIfAbsent(
-                        toolCall.index(),
-                        idx -> new ToolExecutionRequestBuilder()
-                );
+                ToolExecutionRequestBuilder builder = toolExecutionRequestBuilder(toolCall.index());
 
                 if (toolCall.id() != null) {
                     builder.idBuilder.append(toolCall.id());
                 }
 
                 FunctionCall functionCall = toolCall.function();
+                if (functionCall == null) {
+                    continue;
+                }
                 if (functionCall.name() != null) {
                     builder.nameBuilder.append(functionCall.name());
                 }
@@ -142,7 +146,7 @@ public class OpenAiStreamingResponseBuilder {
 
         Usage usage = partialResponse.usage();
         if (usage != null) {
-            this.tokenUsage.set(tokenUsageFrom(usage));
+            this.tokenUsage = tokenUsageFrom(usage);
         }
 
         List<CompletionChoice> choices = partialResponse.choices();
@@ -157,7 +161,7 @@ public class OpenAiStreamingResponseBuilder {
 
         String finishReason = completionChoice.finishReason();
         if (finishReason != null) {
-            this.finishReason.set(finishReasonFrom(finishReason));
+            this.finishReason = finishReasonFrom(finishReason);
         }
 
         String token = completionChoice.text();
@@ -169,13 +173,13 @@ public class OpenAiStreamingResponseBuilder {
     public ChatResponse build() {
 
         OpenAiChatResponseMetadata chatResponseMetadata = OpenAiChatResponseMetadata.builder()
-                .id(id.get())
-                .modelName(model.get())
-                .tokenUsage(tokenUsage.get())
-                .finishReason(finishReason.get())
-                .created(created.get())
-                .serviceTier(serviceTier.get())
-                .systemFingerprint(systemFingerprint.get())
+                .id(id)
+                .modelName(model)
+                .tokenUsage(tokenUsage)
+                .finishReason(finishReason)
+                .created(created)
+                .serviceTier(serviceTier)
+                .systemFingerprint(systemFingerprint)
                 .build();
 
         String text = contentBuilder.toString();
@@ -197,14 +201,18 @@ public class OpenAiStreamingResponseBuilder {
                     .build();
         }
 
-        if (!indexToToolExecutionRequestBuilder.isEmpty()) {
-            List<ToolExecutionRequest> toolExecutionRequests = indexToToolExecutionRequestBuilder.values().stream()
-                    .map(it -> ToolExecutionRequest.builder()
-                            .id(it.idBuilder.toString())
-                            .name(it.nameBuilder.toString())
-                            .arguments(it.argumentsBuilder.toString())
-                            .build())
-                    .collect(toList());
+        if (!toolExecutionRequestBuilders.isEmpty()) {
+            List<ToolExecutionRequest> toolExecutionRequests = new ArrayList<>(toolExecutionRequestBuilders.size());
+            for (ToolExecutionRequestBuilder it : toolExecutionRequestBuilders) {
+                if (it == null) {
+                    continue;
+                }
+                toolExecutionRequests.add(ToolExecutionRequest.builder()
+                        .id(it.idBuilder.toString())
+                        .name(it.nameBuilder.toString())
+                        .arguments(it.argumentsBuilder.toString())
+                        .build());
+            }
 
             AiMessage aiMessage = isNullOrBlank(text) ?
                     AiMessage.from(toolExecutionRequests) :
@@ -227,10 +235,62 @@ public class OpenAiStreamingResponseBuilder {
         return null;
     }
 
+    private ToolExecutionRequestBuilder toolExecutionRequestBuilder(Integer index) {
+        int i = index == null ? 0 : index;
+        while (toolExecutionRequestBuilders.size() <= i) {
+            toolExecutionRequestBuilders.add(null);
+        }
+        ToolExecutionRequestBuilder builder = toolExecutionRequestBuilders.get(i);
+        if (builder == null) {
+            builder = new ToolExecutionRequestBuilder();
+            toolExecutionRequestBuilders.set(i, builder);
+        }
+        return builder;
+    }
+
     private static class ToolExecutionRequestBuilder {
 
-        private final StringBuffer idBuilder = new StringBuffer();
-        private final StringBuffer nameBuilder = new StringBuffer();
-        private final StringBuffer argumentsBuilder = new StringBuffer();
+        private final TextAccumulator idBuilder = new TextAccumulator();
+        private final TextAccumulator nameBuilder = new TextAccumulator();
+        private final TextAccumulator argumentsBuilder = new TextAccumulator();
+    }
+
+    /**
+     * Keeps references to the received chunks instead of copying them on every append.
+     * The chunks are joined into a single string once, when the response is built.
+     */
+    static final class TextAccumulator {
+
+        private static final String[] EMPTY = new String[0];
+
+        private String[] chunks = EMPTY;
+        private int count;
+        private int length;
+
+        void append(String chunk) {
+            if (chunk.isEmpty()) {
+                return;
+            }
+            if (count == chunks.length) {
+                chunks = Arrays.copyOf(chunks, Math.max(16, count << 1));
+            }
+            chunks[count++] = chunk;
+            length += chunk.length();
+        }
+
+        @Override
+        public String toString() {
+            if (count == 0) {
+                return "";
+            }
+            if (count == 1) {
+                return chunks[0];
+            }
+            StringBuilder builder = new StringBuilder(length);
+            for (int i = 0; i < count; i++) {
+                builder.append(chunks[i]);
+            }
+            return builder.toString();
+        }
     }
 }
@@ -1,5 +1,6 @@
 package dev.langchain4j.service;
 
+import com.dream.codegenerate.ai.client.StreamCancellation;
 import dev.langchain4j.Internal;
 import dev.langchain4j.agent.tool.ToolExecutionRequest;
 import dev.langchain4j.agent.tool.ToolSpecification;
@@ -35,6 +36,7 @@ import static dev.langchain4j.internal.ValidationUtils.ensureNotNull;
 @Internal
 class AiServiceStreamingResponseHandler implements StreamingChatResponseHandler {
     private static final Logger LOG = LoggerFactory.getLogger(AiServiceStreamingResponseHandler.class);
+    private static final String CANCELLED_TOOL_RESULT = "Tool execution was cancelled";
 
     private final ChatExecutor chatExecutor;
     private final AiServiceContext context;
@@ -57,6 +59,7 @@ class AiServiceStreamingResponseHandler implements StreamingChatResponseHandler
     private final Map<String, ToolExecutor> toolExecutors;
     private final List<String> responseBuffer = new ArrayList<>();
     private final boolean hasOutputGuardrails;
+    private final StreamCancellation cancellation;
 
     AiServiceStreamingResponseHandler(
             ChatExecutor chatExecutor,
@@ -73,7 +76,8 @@ class AiServiceStreamingResponseHandler implements StreamingChatResponseHandler
             List<ToolSpecification> toolSpecifications,
             Map<String, ToolExecutor> toolExecutors,
             GuardrailRequestParams commonGuardrailParams,
-            Object methodKey) {
+            Object methodKey,
+            StreamCancellation cancellation) {
         this.chatExecutor = ensureNotNull(chatExecutor, "chatExecutor");
         this.context = ensureNotNull(context, "context");
         this.memoryId = ensureNotNull(memoryId, "memoryId");
@@ -93,10 +97,14 @@ class AiServiceStreamingResponseHandler implements StreamingChatResponseHandler
         this.toolSpecifications = copy(toolSpecifications);
         this.toolExecutors = copy(toolExecutors);
         this.hasOutputGuardrails = context.guardrailService().hasOutputGuardrails(methodKey);
+        this.cancellation = ensureNotNull(cancellation, "cancellation");
     }
 
     @Override
     public void onPartialResponse(String partialResponse) {
+        if (cancellation.isCancelled()) {
+            return;
+        }
         // If we're using output guardrails, then buffer the partial response until the guardrails have completed
         if (hasOutputGuardrails) {
             responseBuffer.add(partialResponse);
@@ -107,17 +115,30 @@ class AiServiceStreamingResponseHandler implements StreamingChatResponseHandler
 
     @Override
     public void onPartialToolExecutionRequest(int index, ToolExecutionRequest partialToolExecutionRequest) {
+        if (cancellation.isCancelled()) {
+            return;
+        }
         // If we're using output guardrails, then buffer the partial response until the guardrails have completed
         partialToolExecutionRequestHandler.accept(index, partialToolExecutionRequest);
     }
 
     @Override
     public void onCompleteResponse(ChatResponse completeResponse) {
+        if (cancellation.isCancelled()) {
+            // The response was not delivered to anyone, so it is not added to the memory either
+            LOG.debug("Stream was cancelled, ignoring the complete response");
+            return;
+        }
         AiMessage aiMessage = completeResponse.aiMessage();
         addToMemory(aiMessage);
 
         if (aiMessage.hasToolExecutionRequests()) {
             for (ToolExecutionRequest toolExecutionRequest : aiMessage.toolExecutionRequests()) {
+                if (cancellation.isCancelled()) {
+                    // Every tool execution request must be answered to keep the memory consistent
+                    addToMemory(ToolExecutionResultMessage.from(toolExecutionRequest, CANCELLED_TOOL_RESULT));
+                    continue;
+                }
                 String toolName = toolExecutionRequest.name();
                 ToolExecutor toolExecutor = toolExecutors.get(toolName);
                 String toolExecutionResult = toolExecutor.execute(toolExecutionRequest, memoryId);
@@ -134,6 +155,11 @@ class AiServiceStreamingResponseHandler implements StreamingChatResponseHandler
                 }
             }
 
+            if (cancellation.isCancelled()) {
+                LOG.debug("Stream was cancelled, skipping the follow-up request to the model");
+                return;
+            }
+
             ChatRequest chatRequest = ChatRequest.builder()
                     .messages(messagesToSend(memoryId))
                     .toolSpecifications(toolSpecifications)
@@ -150,20 +176,24 @@ class AiServiceStreamingResponseHandler implements StreamingChatResponseHandler
                     completeResponseHandler,
                     errorHandler,
                     temporaryMemory,
-                    TokenUsage.sum(tokenUsage, completeResponse.metadata().tokenUsage()),
+                    // the latest usage goes first so that provider-specific subclasses
+                    // (e.g. cache token counts of AnthropicTokenUsage) survive the summation
+                    TokenUsage.sum(completeResponse.metadata().tokenUsage(), tokenUsage),
                     toolSpecifications,
                     toolExecutors,
                     commonGuardrailParams,
-                    methodKey);
+                    methodKey,
+                    cancellation);
 
-            context.streamingChatModel.chat(chatRequest, handler);
+            // This runs on the HTTP client thread, so the token has to be bound again for the follow-up request
+            StreamCancellation.runWith(cancellation, () -> context.streamingChatModel.chat(chatRequest, handler));
         } else {
             if (completeResponseHandler != null) {
                 ChatResponse finalChatResponse = ChatResponse.builder()
                         .aiMessage(aiMessage)
                         .metadata(completeResponse.metadata().toBuilder()
-                                .tokenUsage(tokenUsage.add(
-                                        completeResponse.metadata().tokenUsage()))
+                                .tokenUsage(TokenUsage.sum(
+                                        completeResponse.metadata().tokenUsage(), tokenUsage))
                                 .build())
                         .build();
 
@@ -217,6 +247,10 @@ class AiServiceStreamingResponseHandler implements StreamingChatResponseHandler
 
     @Override
     public void onError(Throwable error) {
+        if (cancellation.isCancelled()) {
+            LOG.debug("Stream was cancelled, ignoring error", error);
+            return;
+        }
         if (errorHandler != null) {
             try {
                 errorHandler.accept(error);
@@ -1,5 +1,6 @@
 package dev.langchain4j.service;
 
+import com.dream.codegenerate.ai.client.StreamCancellation;
 import dev.langchain4j.Internal;
 import dev.langchain4j.agent.tool.ToolExecutionRequest;
 import dev.langchain4j.agent.tool.ToolSpecification;
@@ -44,6 +45,11 @@ public class AiServiceTokenStream implements TokenStream {
     private BiConsumer<Integer, ToolExecutionRequest> partialToolExecutionRequestHandler;
     private BiConsumer<Integer, ToolExecutionRequest> completeToolExecutionRequestHandler;
 
+    /**
+     * Shared by every request of the tool loop, so that cancelling also aborts the in-flight HTTP request.
+     */
+    private final StreamCancellation cancellation = new StreamCancellation();
+
     private int onPartialResponseInvoked;
     private int onCompleteResponseInvoked;
     private int onRetrievedInvoked;
@@ -152,13 +158,19 @@ public class AiServiceTokenStream implements TokenStream {
                 toolSpecifications,
                 toolExecutors,
                 commonGuardrailParams,
-                methodKey);
+                methodKey,
+                cancellation);
 
         if (contentsHandler != null && retrievedContents != null) {
             contentsHandler.accept(retrievedContents);
         }
 
-        context.streamingChatModel.chat(chatRequest, handler);
+        StreamCancellation.runWith(cancellation, () -> context.streamingChatModel.chat(chatRequest, handler));
+    }
+
+    @Override
+    public void cancel() {
+        cancellation.cancel();
     }
 
     private void validateConfiguration() {
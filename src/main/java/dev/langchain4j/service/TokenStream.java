@@ -80,4 +80,16 @@ public interface TokenStream {
      * Will send a request to LLM and start response streaming.
      */
     void start();
+
+    /**
+     * Cancels the stream. After cancellation no more handlers are invoked, pending tool executions are skipped
+     * and no follow-up request is sent to the language model. The in-flight request is aborted when the
+     * HTTP client supports it.
+     * <p>
+     * Cancelling a stream that has not been started or has already completed has no effect.
+     * Implementations that cannot cancel may ignore this call.
+     */
+    default void cancel() {
+    }
+
 }
@@ -0,0 +1,177 @@
+package com.dream.codegenerate.ai.client;
+
+import com.dream.codegenerate.config.ModelClientConfig;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * HedgedStreamingChatModel 测试类
+ */
+class HedgedStreamingChatModelTest {
+
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2);
+
+    @AfterEach
+    void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    void hedgesSlowEndpointAndCancelsLoser() throws Exception {
+        FakeModel slow = new FakeModel("slow", Duration.ofMillis(800), false);
+        FakeModel fast = new FakeModel("fast", Duration.ofMillis(10), false);
+        HedgedStreamingChatModel model = model(slow, fast);
+
+        Result result = chat(model);
+
+        assertEquals("fast", result.complete.get(2, TimeUnit.SECONDS).aiMessage().text());
+        assertEquals(List.of("fast"), result.partials);
+        assertEquals(1, slow.calls.get());
+        assertEquals(1, fast.calls.get());
+        assertTrue(slow.lastCancellation.isCancelled());
+        assertFalse(fast.lastCancellation.isCancelled());
+    }
+
+    @Test
+    void doesNotHedgeWhenFirstTokenArrivesInTime() throws Exception {
+        FakeModel primary = new FakeModel("primary", Duration.ofMillis(10), false);
+        FakeModel secondary = new FakeModel("secondary", Duration.ofMillis(10), false);
+        HedgedStreamingChatModel model = model(primary, secondary);
+
+        Result result = chat(model);
+
+        assertEquals("primary", result.complete.get(2, TimeUnit.SECONDS).aiMessage().text());
+        Thread.sleep(150);
+        assertEquals(0, secondary.calls.get());
+    }
+
+    @Test
+    void failsOverWhenEndpointFailsBeforeFirstToken() throws Exception {
+        FakeModel broken = new FakeModel("broken", Duration.ofMillis(10), true);
+        FakeModel healthy = new FakeModel("healthy", Duration.ofMillis(10), false);
+        HedgedStreamingChatModel model = model(broken, healthy);
+
+        Result result = chat(model);
+
+        assertEquals("healthy", result.complete.get(2, TimeUnit.SECONDS).aiMessage().text());
+        assertEquals(List.of("healthy"), result.partials);
+    }
+
+    @Test
+    void reportsErrorWhenAllEndpointsFail() {
+        HedgedStreamingChatModel model = model(new FakeModel("a", Duration.ofMillis(10), true),
+                new FakeModel("b", Duration.ofMillis(10), true));
+
+        Result result = chat(model);
+
+        Exception error = assertThrows(Exception.class, () -> result.complete.get(2, TimeUnit.SECONDS));
+        assertTrue(error.getCause().getMessage().contains("b"));
+    }
+
+    @Test
+    void callerCancellationCancelsAllAttempts() throws Exception {
+        FakeModel slow = new FakeModel("slow", Duration.ofMillis(800), false);
+        FakeModel slower = new FakeModel("slower", Duration.ofMillis(800), false);
+        HedgedStreamingChatModel model = model(slow, slower);
+        StreamCancellation caller = new StreamCancellation();
+
+        StreamCancellation.runWith(caller, () -> chat(model));
+        Thread.sleep(150);
+        caller.cancel();
+
+        assertEquals(1, slower.calls.get());
+        assertTrue(slow.lastCancellation.isCancelled());
+        assertTrue(slower.lastCancellation.isCancelled());
+    }
+
+    private HedgedStreamingChatModel model(FakeModel... models) {
+        ModelClientConfig.Hedging hedging = new ModelClientConfig.Hedging();
+        hedging.setDefaultDelay(Duration.ofMillis(50));
+        hedging.setMinDelay(Duration.ofMillis(50));
+        hedging.setMaxDelay(Duration.ofMillis(50));
+        List<HedgedStreamingChatModel.Endpoint> endpoints = new java.util.ArrayList<>();
+        for (FakeModel fake : models) {
+            endpoints.add(new HedgedStreamingChatModel.Endpoint(fake, new EndpointStats(fake.name, 10)));
+        }
+        return new HedgedStreamingChatModel(endpoints, hedging, scheduler);
+    }
+
+    private static Result chat(HedgedStreamingChatModel model) {
+        Result result = new Result();
+        model.chat(ChatRequest.builder().messages(UserMessage.from("hi")).build(), new StreamingChatResponseHandler() {
+            @Override
+            public void onPartialResponse(String partialResponse) {
+                result.partials.add(partialResponse);
+            }
+
+            @Override
+            public void onCompleteResponse(ChatResponse completeResponse) {
+                result.complete.complete(completeResponse);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                result.complete.completeExceptionally(error);
+            }
+        });
+        return result;
+    }
+
+    private static class Result {
+        final List<String> partials = new CopyOnWriteArrayList<>();
+        final CompletableFuture<ChatResponse> complete = new CompletableFuture<>();
+    }
+
+    /**
+     * 延迟一段时间后输出自己的名字；取消后不再回调，模拟 PooledHttpClient 的行为
+     */
+    private class FakeModel implements StreamingChatModel {
+
+        final String name;
+        final Duration firstTokenDelay;
+        final boolean fail;
+        final AtomicInteger calls = new AtomicInteger();
+        volatile StreamCancellation lastCancellation;
+
+        FakeModel(String name, Duration firstTokenDelay, boolean fail) {
+            this.name = name;
+            this.firstTokenDelay = firstTokenDelay;
+            this.fail = fail;
+        }
+
+        @Override
+        public void chat(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+            calls.incrementAndGet();
+            StreamCancellation cancellation = StreamCancellation.current();
+            lastCancellation = cancellation;
+            scheduler.schedule(() -> {
+                if (cancellation.isCancelled()) {
+                    return;
+                }
+                if (fail) {
+                    handler.onError(new IllegalStateException(name + " failed"));
+                    return;
+                }
+                handler.onPartialResponse(name);
+                handler.onCompleteResponse(ChatResponse.builder().aiMessage(AiMessage.from(name)).build());
+            }, firstTokenDelay.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.dream.codegenerate.ai.client;
+
+import com.sun.net.httpserver.HttpServer;
+import dev.langchain4j.http.client.HttpMethod;
+import dev.langchain4j.http.client.HttpRequest;
+import dev.langchain4j.http.client.SuccessfulHttpResponse;
+import dev.langchain4j.http.client.sse.ServerSentEvent;
+import dev.langchain4j.http.client.sse.ServerSentEventListener;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * PooledHttpClient 测试类
+ */
+class PooledHttpClientTest {
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    /**
+     * 释放停滞的响应和阻塞的监听方
+     */
+    private final CountDownLatch release = new CountDownLatch(1);
+    /**
+     * 只有一个线程的 HttpClient，监听回调占用它时其他流都会停滞
+     */
+    private final java.net.http.HttpClient jdkClient = java.net.http.HttpClient.newBuilder()
+            .executor(Executors.newSingleThreadExecutor())
+            .build();
+    private HttpServer server;
+
+    @BeforeEach
+    void startServer() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        // 发送一个事件后停止输出，模拟响应头之后停滞的流
+        server.createContext("/stall", exchange -> {
+            exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write("data: first\n\n".getBytes(StandardCharsets.UTF_8));
+                body.flush();
+                release.await();
+            } catch (Exception ignored) {
+                // 客户端中止连接
+            }
+        });
+        server.createContext("/events", exchange -> {
+            exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write("data: a\n\ndata: b\n\n".getBytes(StandardCharsets.UTF_8));
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        release.countDown();
+        server.stop(0);
+        jdkClient.close();
+        scheduler.shutdownNow();
+    }
+
+    private final PooledHttpClient client = new PooledHttpClient(jdkClient, Duration.ofSeconds(5),
+            Executors.newVirtualThreadPerTaskExecutor(), scheduler, Duration.ofMillis(300));
+
+    @Test
+    void abortsStreamThatStallsAfterHeaders() throws Exception {
+        RecordingListener listener = new RecordingListener(null);
+
+        client.execute(request("/stall"), listener);
+
+        assertInstanceOf(HttpTimeoutException.class, listener.result.get(3, TimeUnit.SECONDS));
+        assertEquals(List.of("first"), listener.events);
+    }
+
+    @Test
+    void blockedListenerDoesNotStallOtherStreams() throws Exception {
+        RecordingListener blocked = new RecordingListener(release);
+        RecordingListener other = new RecordingListener(null);
+
+        client.execute(request("/events"), blocked);
+        assertTrue(blocked.entered.await(3, TimeUnit.SECONDS));
+        client.execute(request("/events"), other);
+
+        // 阻塞的监听方处理时间超过空闲超时也不应被中止
+        assertNull(other.result.get(3, TimeUnit.SECONDS));
+        assertEquals(List.of("a", "b"), other.events);
+        Thread.sleep(500);
+        release.countDown();
+        assertNull(blocked.result.get(3, TimeUnit.SECONDS));
+        assertEquals(List.of("a", "b"), blocked.events);
+    }
+
+    private HttpRequest request(String path) {
+        return HttpRequest.builder()
+                .method(HttpMethod.GET)
+                .url("http://127.0.0.1:" + server.getAddress().getPort() + path)
+                .build();
+    }
+
+    /**
+     * 记录事件；result 在 onClose 时为 null，在 onError 时为异常
+     */
+    private static class RecordingListener implements ServerSentEventListener {
+
+        final List<String> events = new CopyOnWriteArrayList<>();
+        final CompletableFuture<Throwable> result = new CompletableFuture<>();
+        final CountDownLatch entered = new CountDownLatch(1);
+        private final CountDownLatch block;
+
+        RecordingListener(CountDownLatch block) {
+            this.block = block;
+        }
+
+        @Override
+        public void onOpen(SuccessfulHttpResponse response) {
+        }
+
+        @Override
+        public void onEvent(ServerSentEvent event) {
+            events.add(event.data());
+            entered.countDown();
+            if (block != null) {
+                try {
+                    block.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            result.complete(throwable);
+        }
+
+        @Override
+        public void onClose() {
+            result.complete(null);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.dream.codegenerate.ai.client;
+
+import dev.langchain4j.model.anthropic.internal.api.AnthropicCacheType;
+import dev.langchain4j.model.anthropic.internal.api.AnthropicCreateMessageRequest;
+import dev.langchain4j.model.anthropic.internal.api.AnthropicMessage;
+import dev.langchain4j.model.anthropic.internal.api.AnthropicMessageContent;
+import dev.langchain4j.model.anthropic.internal.api.AnthropicRole;
+import dev.langchain4j.model.anthropic.internal.api.AnthropicTextContent;
+import dev.langchain4j.model.anthropic.internal.api.AnthropicToolResultContent;
+import dev.langchain4j.model.anthropic.internal.api.AnthropicToolUseContent;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * PromptCachingAnthropicClient 缓存断点测试类
+ */
+class PromptCachingAnthropicClientTest {
+
+    @Test
+    void marksLastTwoUserMessages() {
+        AnthropicToolResultContent firstResult = new AnthropicToolResultContent("t1", "ok", false);
+        AnthropicToolResultContent secondResult = new AnthropicToolResultContent("t2", "ok", false);
+        AnthropicTextContent question = new AnthropicTextContent("生成一个页面");
+        AnthropicCreateMessageRequest request = request(true,
+                message(AnthropicRole.USER, question),
+                message(AnthropicRole.ASSISTANT, toolUse("t1")),
+                message(AnthropicRole.USER, firstResult),
+                message(AnthropicRole.ASSISTANT, toolUse("t2")),
+                message(AnthropicRole.USER, secondResult));
+
+        assertEquals(2, PromptCachingAnthropicClient.addHistoryBreakpoints(request));
+        assertNull(question.cacheControl);
+        assertNotNull(firstResult.cacheControl);
+        assertNotNull(secondResult.cacheControl);
+    }
+
+    @Test
+    void skipsBlankTrailingText() {
+        AnthropicToolResultContent result = new AnthropicToolResultContent("t1", "ok", false);
+        AnthropicTextContent blank = new AnthropicTextContent(" ");
+        AnthropicCreateMessageRequest request = request(true, message(AnthropicRole.USER, result, blank));
+
+        assertEquals(1, PromptCachingAnthropicClient.addHistoryBreakpoints(request));
+        assertNotNull(result.cacheControl);
+        assertNull(blank.cacheControl);
+    }
+
+    @Test
+    void doesNothingWhenPromptCachingIsDisabled() {
+        AnthropicTextContent question = new AnthropicTextContent("生成一个页面");
+        AnthropicCreateMessageRequest request = request(false, message(AnthropicRole.USER, question));
+
+        assertEquals(0, PromptCachingAnthropicClient.addHistoryBreakpoints(request));
+        assertNull(question.cacheControl);
+    }
+
+    @Test
+    void staysWithinBreakpointLimit() {
+        List<AnthropicTextContent> system = new ArrayList<>();
+        for (int i = 0; i < PromptCachingAnthropicClient.MAX_BREAKPOINTS - 1; i++) {
+            system.add(new AnthropicTextContent("system " + i, AnthropicCacheType.EPHEMERAL.cacheControl()));
+        }
+        AnthropicCreateMessageRequest request = AnthropicCreateMessageRequest.builder()
+                .system(system)
+                .messages(List.of(
+                        message(AnthropicRole.USER, new AnthropicTextContent("a")),
+                        message(AnthropicRole.ASSISTANT, new AnthropicTextContent("b")),
+                        message(AnthropicRole.USER, new AnthropicTextContent("c"))))
+                .build();
+
+        assertEquals(1, PromptCachingAnthropicClient.addHistoryBreakpoints(request));
+    }
+
+    private static AnthropicCreateMessageRequest request(boolean cacheSystem, AnthropicMessage... messages) {
+        AnthropicTextContent system = cacheSystem
+                ? new AnthropicTextContent("system", AnthropicCacheType.EPHEMERAL.cacheControl())
+                : new AnthropicTextContent("system");
+        return AnthropicCreateMessageRequest.builder()
+                .system(List.of(system))
+                .messages(List.of(messages))
+                .build();
+    }
+
+    private static AnthropicMessage message(AnthropicRole role, AnthropicMessageContent... contents) {
+        return new AnthropicMessage(role, List.of(contents));
+    }
+
+    private static AnthropicToolUseContent toolUse(String id) {
+        return new AnthropicToolUseContent(id, "writeFile", Map.of());
+    }
+}
@@ -0,0 +1,84 @@
+package com.dream.codegenerate.ai.client;
+
+import dev.langchain4j.agent.tool.Tool;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import dev.langchain4j.service.AiServices;
+import dev.langchain4j.service.TokenStream;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * StreamCancellation 测试类
+ */
+class StreamCancellationTest {
+
+    @Test
+    void tokenStreamCancelAbortsInFlightRequest() throws Exception {
+        FakeModel model = new FakeModel();
+        Assistant assistant = AiServices.builder(Assistant.class)
+                .streamingChatModel(model)
+                .tools(new Tools())
+                .build();
+        TokenStream tokenStream = assistant.chat("hi");
+        tokenStream.onPartialResponse(partial -> {
+                })
+                .ignoreErrors()
+                .start();
+
+        // 工具调用后的第二次请求在 HTTP 回调线程上发起，同样需要绑定令牌
+        StreamCancellation followUp = model.followUp.get(2, TimeUnit.SECONDS);
+        assertSame(model.cancellations.getFirst(), followUp);
+        AtomicBoolean aborted = new AtomicBoolean();
+        followUp.onCancel(() -> aborted.set(true));
+
+        tokenStream.cancel();
+
+        assertTrue(followUp.isCancelled());
+        assertTrue(aborted.get());
+    }
+
+    interface Assistant {
+        TokenStream chat(String message);
+    }
+
+    static class Tools {
+        @Tool
+        String ping() {
+            return "pong";
+        }
+    }
+
+    /**
+     * 第一次请求返回工具调用，第二次请求一直不返回，模拟进行中的请求
+     */
+    private static class FakeModel implements StreamingChatModel {
+
+        final List<StreamCancellation> cancellations = new CopyOnWriteArrayList<>();
+        final CompletableFuture<StreamCancellation> followUp = new CompletableFuture<>();
+
+        @Override
+        public void chat(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+            cancellations.add(StreamCancellation.current());
+            if (cancellations.size() > 1) {
+                followUp.complete(StreamCancellation.current());
+                return;
+            }
+            ToolExecutionRequest request = ToolExecutionRequest.builder().id("1").name("ping").arguments("{}").build();
+            Thread.ofVirtual().start(() -> handler.onCompleteResponse(ChatResponse.builder()
+                    .aiMessage(AiMessage.from(List.of(request)))
+                    .build()));
+        }
+    }
+}
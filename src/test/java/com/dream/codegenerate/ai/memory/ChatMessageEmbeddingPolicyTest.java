@@ -0,0 +1,61 @@
+package com.dream.codegenerate.ai.memory;
+
+import com.dream.codegenerate.config.EmbeddingPipelineConfig;
+import com.dream.codegenerate.model.entity.ChatMessagesEntity;
+import com.dream.codegenerate.model.enums.MessageTypeEnum;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ChatMessageEmbeddingPolicy 测试类
+ */
+class ChatMessageEmbeddingPolicyTest {
+
+    @Test
+    void embedsUserAndAiTextButSkipsTrivialMessages() {
+        ChatMessageEmbeddingPolicy policy = new ChatMessageEmbeddingPolicy(new EmbeddingPipelineConfig());
+
+        ChatMessagesEntity user = ChatMessagesEntity.builder()
+                .messageType(MessageTypeEnum.USER)
+                .contents("[{\"type\":\"TEXT\",\"text\":\"帮我做一个待办事项网站\"}]")
+                .build();
+        ChatMessagesEntity ai = ChatMessagesEntity.builder()
+                .messageType(MessageTypeEnum.AI)
+                .text("  好的，我来生成页面  ")
+                .build();
+        ChatMessagesEntity shortUser = ChatMessagesEntity.builder()
+                .messageType(MessageTypeEnum.USER)
+                .contents("[{\"type\":\"TEXT\",\"text\":\"好\"}]")
+                .build();
+        ChatMessagesEntity system = ChatMessagesEntity.builder()
+                .messageType(MessageTypeEnum.SYSTEM)
+                .text("你是一个前端开发专家")
+                .build();
+
+        assertEquals("帮我做一个待办事项网站", policy.textFor(user));
+        assertEquals("好的，我来生成页面", policy.textFor(ai));
+        assertNull(policy.textFor(shortUser));
+        assertNull(policy.textFor(system));
+    }
+
+    @Test
+    void embedsOnlyLongToolResultsWhenEnabled() {
+        EmbeddingPipelineConfig config = new EmbeddingPipelineConfig();
+        ChatMessagesEntity trivial = ChatMessagesEntity.builder()
+                .messageType(MessageTypeEnum.TOOL_EXECUTION_RESULT)
+                .text("文件写入成功: index.html")
+                .build();
+        ChatMessagesEntity detailed = ChatMessagesEntity.builder()
+                .messageType(MessageTypeEnum.TOOL_EXECUTION_RESULT)
+                .text("x".repeat(3000))
+                .build();
+
+        assertNull(new ChatMessageEmbeddingPolicy(config).textFor(detailed));
+
+        config.setEmbedToolResults(true);
+        ChatMessageEmbeddingPolicy policy = new ChatMessageEmbeddingPolicy(config);
+        assertNull(policy.textFor(trivial));
+        assertEquals(config.getMaxTextLength(), policy.textFor(detailed).length());
+    }
+}
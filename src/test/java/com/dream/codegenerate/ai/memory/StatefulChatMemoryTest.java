@@ -0,0 +1,239 @@
+package com.dream.codegenerate.ai.memory;
+
+import com.dream.codegenerate.utils.SpringContextUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.TokenCountEstimator;
+import dev.langchain4j.store.memory.chat.InMemoryChatMemoryStore;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.StaticApplicationContext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * StatefulChatMemory 测试类
+ */
+class StatefulChatMemoryTest {
+
+    /**
+     * 每条消息按 10 个 token 计算，摘要按 5 个 token 计算
+     */
+    private static final TokenCountEstimator ESTIMATOR = new TokenCountEstimator() {
+        @Override
+        public int estimateTokenCountInText(String text) {
+            return 5;
+        }
+
+        @Override
+        public int estimateTokenCountInMessage(ChatMessage message) {
+            return 10;
+        }
+
+        @Override
+        public int estimateTokenCountInMessages(Iterable<ChatMessage> messages) {
+            int count = 0;
+            for (ChatMessage message : messages) {
+                count += estimateTokenCountInMessage(message);
+            }
+            return count;
+        }
+    };
+
+    private final List<List<ChatMessage>> summarized = new ArrayList<>();
+
+    private final RecordingSummaryStore summaryStore = new RecordingSummaryStore();
+
+    @BeforeAll
+    static void registerObjectMapper() {
+        StaticApplicationContext context = new StaticApplicationContext();
+        context.getBeanFactory().registerSingleton("langchain4jObjectMapper", new ObjectMapper());
+        new SpringContextUtil().setApplicationContext(context);
+    }
+
+    @Test
+    void keepsOnlyLatestSystemMessage() {
+        StatefulChatMemory memory = memory(0, null);
+
+        memory.add(SystemMessage.from("v1"));
+        memory.add(UserMessage.from("hi"));
+        memory.add(SystemMessage.from("v2"));
+        memory.add(AiMessage.from("hello"));
+
+        List<ChatMessage> messages = memory.messages();
+        assertEquals(3, messages.size());
+        assertEquals(SystemMessage.from("v2"), messages.get(0));
+    }
+
+    @Test
+    void compactsOldestTurnsAtUserMessageBoundary() {
+        StatefulChatMemory memory = memory(60, null);
+        memory.add(SystemMessage.from("system"));
+        ToolExecutionRequest request = ToolExecutionRequest.builder().id("1").name("writeFile").arguments("{}").build();
+        memory.add(UserMessage.from("turn 1"));
+        memory.add(AiMessage.from(List.of(request)));
+        memory.add(ToolExecutionResultMessage.from(request, "ok"));
+        memory.add(AiMessage.from("done 1"));
+        memory.add(UserMessage.from("turn 2"));
+        memory.add(AiMessage.from("done 2"));
+        assertTrue(summarized.isEmpty());
+
+        memory.add(UserMessage.from("turn 3"));
+
+        assertEquals(1, summarized.size());
+        assertEquals(4, summarized.getFirst().size());
+        assertInstanceOf(ToolExecutionResultMessage.class, summarized.getFirst().get(2));
+        List<ChatMessage> messages = memory.messages();
+        assertEquals(SystemMessage.from("system"), messages.get(0));
+        assertEquals(StatefulChatMemory.summaryMessage("summary of 4"), messages.get(1));
+        assertEquals(UserMessage.from("turn 2"), messages.get(2));
+        assertEquals(5, messages.size());
+        assertEquals(35, memory.tokenCount());
+        assertEquals("summary of 4", summaryStore.savedSummary);
+        assertEquals(List.of(2), summaryStore.boundaryLookups);
+        assertEquals(2L, summaryStore.savedFromHistoryId);
+    }
+
+    @Test
+    void resolvesSummaryBoundaryWhenCutIsChosen() {
+        List<Runnable> background = new ArrayList<>();
+        StatefulChatMemory memory = StatefulChatMemory.builder()
+                .id(1L)
+                .chatMemoryStore(new InMemoryChatMemoryStore())
+                .recentWindow(10)
+                .tokenBudget(60)
+                .compactionTarget(0.5)
+                .tokenCountEstimator(ESTIMATOR)
+                .summarizer((previousSummary, messages) -> "summary of " + messages.size())
+                .summaryStore(summaryStore)
+                .compactionExecutor(background::add)
+                .build();
+        for (int turn = 1; turn <= 3; turn++) {
+            memory.add(UserMessage.from("turn " + turn));
+            memory.add(AiMessage.from("done " + turn));
+        }
+        memory.add(UserMessage.from("turn 4"));
+        assertEquals(1, background.size());
+        assertEquals(List.of(2), summaryStore.boundaryLookups);
+
+        // 摘要完成前保存了新的用户消息，边界不能再按摘要完成时的条数重新计算
+        memory.add(AiMessage.from("done 4"));
+        memory.add(UserMessage.from("turn 5"));
+        background.getFirst().run();
+
+        assertEquals(List.of(2), summaryStore.boundaryLookups);
+        assertEquals("summary of 4", summaryStore.savedSummary);
+        assertEquals(2L, summaryStore.savedFromHistoryId);
+    }
+
+    @Test
+    void rebuildsFromPersistedSummaryAndLaterHistory() {
+        summaryStore.persisted = new ChatSummary("persisted", 42L);
+        List<Long> fromIds = new ArrayList<>();
+        StatefulChatMemory memory = memory(1000, (beforeId, fromId, limit) -> {
+            fromIds.add(fromId);
+            return new ChatHistoryPage(List.of(UserMessage.from("recent"), AiMessage.from("reply")), 50L, 2);
+        });
+
+        memory.hydrate();
+        List<ChatMessage> messages = memory.messages();
+
+        assertEquals(List.of(42L), fromIds);
+        assertEquals(StatefulChatMemory.summaryMessage("persisted"), messages.get(0));
+        assertEquals(UserMessage.from("recent"), messages.get(1));
+        assertEquals(25, memory.tokenCount());
+    }
+
+    @Test
+    void firstReadLoadsOnlyRecentWindowAndPagesOlderHistoryInBackground() {
+        List<Long> beforeIds = new ArrayList<>();
+        ChatHistoryLoader loader = (beforeId, fromId, limit) -> {
+            beforeIds.add(beforeId);
+            long oldestId = beforeId == null ? 100 : beforeId - limit;
+            return new ChatHistoryPage(List.of(UserMessage.from("before " + oldestId)), oldestId, limit);
+        };
+        List<Runnable> background = new ArrayList<>();
+        StatefulChatMemory memory = StatefulChatMemory.builder()
+                .id(1L)
+                .chatMemoryStore(new InMemoryChatMemoryStore())
+                .historyLoader(loader)
+                .recentWindow(10)
+                .pageSize(10)
+                .maxHistory(30)
+                .historyExecutor(background::add)
+                .build();
+
+        List<ChatMessage> first = memory.messages();
+
+        assertEquals(1, beforeIds.size());
+        assertEquals(List.of(UserMessage.from("before 100")), first);
+        assertEquals(1, background.size());
+
+        background.getFirst().run();
+
+        assertEquals(Arrays.asList(null, 100L, 90L), beforeIds);
+        assertEquals(3, memory.messages().size());
+        assertEquals(UserMessage.from("before 80"), memory.messages().getFirst());
+        assertEquals(1, background.size());
+    }
+
+    private StatefulChatMemory memory(int tokenBudget, ChatHistoryLoader historyLoader) {
+        return StatefulChatMemory.builder()
+                .id(1L)
+                .chatMemoryStore(new InMemoryChatMemoryStore())
+                .historyLoader(historyLoader)
+                .recentWindow(10)
+                .tokenBudget(tokenBudget)
+                .compactionTarget(0.5)
+                .tokenCountEstimator(ESTIMATOR)
+                .summarizer((previousSummary, messages) -> {
+                    summarized.add(messages);
+                    return "summary of " + messages.size();
+                })
+                .summaryStore(summaryStore)
+                .compactionExecutor(Runnable::run)
+                .build();
+    }
+
+    private static class RecordingSummaryStore implements ChatSummaryStore {
+
+        private ChatSummary persisted;
+
+        private String savedSummary;
+
+        private Long savedFromHistoryId;
+
+        private final List<Integer> boundaryLookups = new ArrayList<>();
+
+        @Override
+        public ChatSummary load(Object memoryId) {
+            return persisted;
+        }
+
+        @Override
+        public Long findBoundary(Object memoryId, int keptUserTurns) {
+            boundaryLookups.add(keptUserTurns);
+            return (long) keptUserTurns;
+        }
+
+        @Override
+        public void save(Object memoryId, String summary, Long fromHistoryId) {
+            savedSummary = summary;
+            savedFromHistoryId = fromHistoryId;
+        }
+
+        @Override
+        public void delete(Object memoryId) {
+            persisted = null;
+        }
+    }
+}
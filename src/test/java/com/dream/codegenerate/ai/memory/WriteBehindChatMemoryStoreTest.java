@@ -0,0 +1,156 @@
+package com.dream.codegenerate.ai.memory;
+
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.UserMessage;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * WriteBehindChatMemoryStore 测试类
+ */
+class WriteBehindChatMemoryStoreTest {
+
+    @Test
+    void batchesAppendsInOrderForAppendOnlyStore() {
+        RecordingStore delegate = new RecordingStore();
+        WriteBehindChatMemoryStore store = new WriteBehindChatMemoryStore(delegate, Duration.ofMillis(50), 64, Duration.ofSeconds(5));
+
+        for (int i = 0; i < 10; i++) {
+            store.updateMessages(1L, List.of(UserMessage.from("m" + i)));
+        }
+        assertTrue(delegate.calls.isEmpty());
+
+        List<ChatMessage> messages = store.getMessages(1L);
+
+        assertEquals(10, messages.size());
+        assertEquals(UserMessage.from("m0"), messages.getFirst());
+        assertEquals(UserMessage.from("m9"), messages.getLast());
+        assertEquals(1, delegate.calls.size());
+        assertEquals(0, store.pendingCount());
+    }
+
+    @Test
+    void deleteDiscardsPendingAppends() {
+        RecordingStore delegate = new RecordingStore();
+        WriteBehindChatMemoryStore store = new WriteBehindChatMemoryStore(delegate, Duration.ofSeconds(1), 64, Duration.ofSeconds(5));
+
+        store.updateMessages(1L, List.of(UserMessage.from("old")));
+        store.deleteMessages(1L);
+        store.updateMessages(1L, List.of(UserMessage.from("new")));
+
+        assertEquals(List.of(UserMessage.from("new")), store.getMessages(1L));
+        assertEquals(List.of("delete", "append:1"), delegate.calls);
+    }
+
+    @Test
+    void closeDrainsPendingWrites() throws Exception {
+        RecordingStore delegate = new RecordingStore();
+        WriteBehindChatMemoryStore store = new WriteBehindChatMemoryStore(delegate, Duration.ofMillis(20), 2, Duration.ofSeconds(5));
+        CountDownLatch written = new CountDownLatch(1);
+        delegate.onWrite = written::countDown;
+
+        for (int i = 0; i < 5; i++) {
+            store.updateMessages(2L, List.of(UserMessage.from("m" + i)));
+        }
+        assertTrue(written.await(2, TimeUnit.SECONDS));
+        store.close();
+
+        assertEquals(5, delegate.messages.size());
+        assertEquals(List.of("append:2", "append:2", "append:1"), delegate.calls);
+        store.updateMessages(2L, List.of(UserMessage.from("after close")));
+        assertEquals(6, delegate.messages.size());
+    }
+
+    @Test
+    void doesNotRetryNonIdempotentAppend() {
+        RecordingStore delegate = new RecordingStore();
+        delegate.failuresLeft = 1;
+        WriteBehindChatMemoryStore store = new WriteBehindChatMemoryStore(delegate, Duration.ZERO, 64, Duration.ofSeconds(5));
+
+        store.updateMessages(3L, List.of(UserMessage.from("m")));
+        store.getMessages(3L);
+
+        // 超时后存储可能已经写入，重试会重复追加
+        assertEquals(List.of("append:1"), delegate.calls);
+        assertEquals(1, store.failedCount());
+    }
+
+    @Test
+    void retriesIdempotentAppendWithSameBatchId() {
+        RecordingStore delegate = new RecordingStore();
+        delegate.idempotent = true;
+        delegate.failuresLeft = 1;
+        WriteBehindChatMemoryStore store = new WriteBehindChatMemoryStore(delegate, Duration.ZERO, 64, Duration.ofSeconds(5));
+
+        store.updateMessages(4L, List.of(UserMessage.from("m")));
+
+        assertEquals(List.of(UserMessage.from("m")), store.getMessages(4L));
+        assertEquals(2, delegate.calls.size());
+        assertEquals(1, delegate.batchIds.size());
+        assertEquals(0, store.failedCount());
+    }
+
+    private static class RecordingStore implements AppendOnlyChatMemoryStore {
+
+        private final List<ChatMessage> messages = Collections.synchronizedList(new ArrayList<>());
+
+        private final List<String> calls = Collections.synchronizedList(new ArrayList<>());
+
+        private volatile Runnable onWrite = () -> { };
+
+        private final Set<String> batchIds = ConcurrentHashMap.newKeySet();
+
+        private volatile boolean idempotent;
+
+        /**
+         * 接下来多少次追加在写入后抛出异常，模拟已写入但响应超时
+         */
+        private volatile int failuresLeft;
+
+        @Override
+        public void appendMessages(Object memoryId, List<ChatMessage> newMessages, String batchId) {
+            calls.add("append:" + newMessages.size());
+            if (!idempotent || batchIds.add(batchId)) {
+                messages.addAll(newMessages);
+            }
+            onWrite.run();
+            if (failuresLeft > 0) {
+                failuresLeft--;
+                throw new IllegalStateException("timeout");
+            }
+        }
+
+        @Override
+        public boolean supportsIdempotentAppend() {
+            return idempotent;
+        }
+
+        @Override
+        public List<ChatMessage> getMessages(Object memoryId) {
+            return new ArrayList<>(messages);
+        }
+
+        @Override
+        public void updateMessages(Object memoryId, List<ChatMessage> newMessages) {
+            calls.add("append:" + newMessages.size());
+            messages.addAll(newMessages);
+            onWrite.run();
+        }
+
+        @Override
+        public void deleteMessages(Object memoryId) {
+            calls.add("delete");
+            messages.clear();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.dream.codegenerate.ai.routing;
+
+import com.dream.codegenerate.model.enums.CodeGenTypeEnum;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * LinearRoutingClassifier 测试类
+ */
+class LinearRoutingClassifierTest {
+
+    private static final List<LinearRoutingClassifier.LabeledPrompt> SAMPLES = List.of(
+            sample("做一个个人简历展示页面", CodeGenTypeEnum.HTML),
+            sample("简单的产品介绍落地页", CodeGenTypeEnum.HTML),
+            sample("一个页面展示我的作品", CodeGenTypeEnum.HTML),
+            sample("静态的活动宣传页", CodeGenTypeEnum.HTML),
+            sample("公司官网，首页、关于我们、联系方式三个页面，css 和 js 分离", CodeGenTypeEnum.MULTI_FILE),
+            sample("多页面的博客静态站点，样式和脚本分开", CodeGenTypeEnum.MULTI_FILE),
+            sample("餐厅网站，包含菜单页和预约页，分离 css js", CodeGenTypeEnum.MULTI_FILE),
+            sample("带登录注册和权限控制的后台管理系统", CodeGenTypeEnum.VUE_PROJECT),
+            sample("电商商城，购物车、订单、商品管理，使用 vue 组件和路由", CodeGenTypeEnum.VUE_PROJECT),
+            sample("数据仪表盘，多种图表和复杂交互，状态管理", CodeGenTypeEnum.VUE_PROJECT));
+
+    @Test
+    void learnsTrainingSamples() {
+        LinearRoutingClassifier classifier = LinearRoutingClassifier.train(SAMPLES,
+                LinearRoutingClassifier.TrainingOptions.defaults());
+
+        for (LinearRoutingClassifier.LabeledPrompt sample : SAMPLES) {
+            assertEquals(sample.type(), classifier.predict(sample.prompt()).type(), sample.prompt());
+        }
+        LinearRoutingClassifier.Prediction prediction = classifier.predict("带登录的后台管理系统，需要 vue 路由");
+        assertEquals(CodeGenTypeEnum.VUE_PROJECT, prediction.type());
+        assertTrue(prediction.confidence() > 1.0 / CodeGenTypeEnum.values().length);
+    }
+
+    @Test
+    void exportedModelPredictsTheSame(@TempDir Path dir) throws Exception {
+        LinearRoutingClassifier classifier = LinearRoutingClassifier.train(SAMPLES,
+                LinearRoutingClassifier.TrainingOptions.defaults());
+        Path path = dir.resolve("model.json");
+        classifier.save(path);
+
+        LinearRoutingClassifier loaded = LinearRoutingClassifier.load(path);
+        for (LinearRoutingClassifier.LabeledPrompt sample : SAMPLES) {
+            assertEquals(classifier.predict(sample.prompt()), loaded.predict(sample.prompt()));
+        }
+    }
+
+    private static LinearRoutingClassifier.LabeledPrompt sample(String prompt, CodeGenTypeEnum type) {
+        return new LinearRoutingClassifier.LabeledPrompt(prompt, type);
+    }
+}
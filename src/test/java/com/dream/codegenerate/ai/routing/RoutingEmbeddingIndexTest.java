@@ -0,0 +1,47 @@
+package com.dream.codegenerate.ai.routing;
+
+import com.dream.codegenerate.model.enums.CodeGenTypeEnum;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * RoutingEmbeddingIndex 测试类
+ */
+class RoutingEmbeddingIndexTest {
+
+    @Test
+    void returnsNearestAboveThreshold() {
+        RoutingEmbeddingIndex index = new RoutingEmbeddingIndex(4);
+        index.add(new float[]{1, 0, 0}, CodeGenTypeEnum.HTML);
+        index.add(new float[]{0, 1, 0}, CodeGenTypeEnum.VUE_PROJECT);
+
+        // 与 (0,1,0) 的余弦相似度约为 0.995，长度不同不影响
+        assertEquals(CodeGenTypeEnum.VUE_PROJECT, index.nearest(new float[]{0.1f, 1, 0}, 0.9));
+        assertEquals(CodeGenTypeEnum.VUE_PROJECT, index.nearest(new float[]{0.2f, 2, 0}, 0.9));
+        // 与两者都不够相似
+        assertNull(index.nearest(new float[]{1, 1, 0}, 0.9));
+        assertNull(index.nearest(new float[]{0, 0, 1}, 0.5));
+    }
+
+    @Test
+    void overwritesOldestWhenFull() {
+        RoutingEmbeddingIndex index = new RoutingEmbeddingIndex(2);
+        index.add(new float[]{1, 0, 0}, CodeGenTypeEnum.HTML);
+        index.add(new float[]{0, 1, 0}, CodeGenTypeEnum.MULTI_FILE);
+        index.add(new float[]{0, 0, 1}, CodeGenTypeEnum.VUE_PROJECT);
+
+        assertEquals(2, index.size());
+        assertNull(index.nearest(new float[]{1, 0, 0}, 0.9));
+        assertEquals(CodeGenTypeEnum.VUE_PROJECT, index.nearest(new float[]{0, 0, 1}, 0.9));
+    }
+
+    @Test
+    void ignoresZeroVectors() {
+        RoutingEmbeddingIndex index = new RoutingEmbeddingIndex(2);
+        index.add(new float[]{0, 0}, CodeGenTypeEnum.HTML);
+
+        assertEquals(0, index.size());
+        assertNull(index.nearest(new float[]{0, 0}, 0));
+    }
+}
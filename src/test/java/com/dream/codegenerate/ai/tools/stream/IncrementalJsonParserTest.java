@@ -0,0 +1,74 @@
+package com.dream.codegenerate.ai.tools.stream;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * IncrementalJsonParser 测试类
+ */
+class IncrementalJsonParserTest {
+
+    private final Map<String, StringBuilder> strings = new LinkedHashMap<>();
+    private final Map<String, String> scalars = new LinkedHashMap<>();
+    private final Map<String, Boolean> ended = new LinkedHashMap<>();
+
+    private final IncrementalJsonParser parser = new IncrementalJsonParser(new IncrementalJsonParser.Listener() {
+        @Override
+        public void onStringChunk(String path, CharSequence chunk) {
+            strings.computeIfAbsent(path, k -> new StringBuilder()).append(chunk);
+        }
+
+        @Override
+        public void onStringEnd(String path) {
+            ended.put(path, true);
+        }
+
+        @Override
+        public void onScalar(String path, String literal) {
+            scalars.put(path, literal);
+        }
+    });
+
+    @Test
+    void parseDeltasSplitAtArbitraryBoundaries() {
+        String json = "{\"relativeFilePath\": \"src/App.vue\", \"options\": {\"items\": [1, \"}\", true]}, \"count\": 3,"
+                + " \"content\": \"<template>\\n  <div class=\\\"app\\\">\\u4f60\\u597d</div>\\n</template>\"}";
+        // 每次只喂一个字符，覆盖转义与 \\uXXXX 被截断的情况
+        for (int i = 0; i < json.length(); i++) {
+            parser.feed(json.substring(i, i + 1));
+        }
+        assertTrue(parser.isDone());
+        assertEquals("src/App.vue", strings.get("relativeFilePath").toString());
+        assertEquals("<template>\n  <div class=\"app\">你好</div>\n</template>", strings.get("content").toString());
+        assertEquals("}", strings.get("options.items[1]").toString());
+        assertEquals(Map.of("options.items[0]", "1", "options.items[2]", "true", "count", "3"), scalars);
+        assertTrue(ended.containsKey("content"));
+    }
+
+    @Test
+    void notDoneUntilObjectCloses() {
+        parser.feed("{\"content\": \"abc");
+        assertFalse(parser.isDone());
+        assertEquals("abc", strings.get("content").toString());
+        assertFalse(ended.containsKey("content"));
+        parser.feed("\"}");
+        assertTrue(parser.isDone());
+    }
+
+    @Test
+    void malformedInputDoesNotThrow() {
+        assertDoesNotThrow(() -> parser.feed("]"));
+        assertFalse(parser.isDone());
+
+        IncrementalJsonParser other = new IncrementalJsonParser(new IncrementalJsonParser.Listener() {
+        });
+        assertDoesNotThrow(() -> other.feed("{\"a\":]"));
+        assertDoesNotThrow(() -> other.feed("]]}"));
+        assertDoesNotThrow(() -> new IncrementalJsonParser(new IncrementalJsonParser.Listener() {
+        }).feed("[,]]"));
+    }
+}
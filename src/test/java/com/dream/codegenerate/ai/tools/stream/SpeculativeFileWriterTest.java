@@ -0,0 +1,116 @@
+package com.dream.codegenerate.ai.tools.stream;
+
+import com.dream.codegenerate.config.CodeGenStreamConfig;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SpeculativeFileWriter 测试类
+ */
+class SpeculativeFileWriterTest {
+
+    private static final String CONTENT = "<div class=\"app\">\n  你好\n</div>";
+
+    private static final String CONTENT_JSON = "<div class=\\\"app\\\">\\n  \\u4f60\\u597d\\n</div>";
+
+    private final SpeculativeFileWriter writer = new SpeculativeFileWriter();
+
+    @TempDir
+    Path dir;
+
+    private Path target;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(writer, "codeGenStreamConfig", new CodeGenStreamConfig());
+        target = dir.resolve("src/App.vue").toAbsolutePath();
+    }
+
+    @Test
+    void commitRenamesTempFileWhenContentMatches() throws IOException {
+        stream(1L, "{\"relativeFilePath\": \"" + target + "\", \"content\": \"" + CONTENT_JSON + "\"}");
+        assertEquals(1, tempFiles().size());
+
+        assertTrue(writer.commit(1L, target, CONTENT));
+
+        assertEquals(CONTENT, Files.readString(target));
+        assertTrue(tempFiles().isEmpty());
+    }
+
+    @Test
+    void commitFallsBackWhenContentDiffers() throws IOException {
+        stream(1L, "{\"relativeFilePath\": \"" + target + "\", \"content\": \"" + CONTENT_JSON + "\"}");
+
+        // 长度相同但内容不同，由 CRC32 识别
+        assertFalse(writer.commit(1L, target, CONTENT.replace("app", "App")));
+        assertFalse(Files.exists(target));
+        assertTrue(tempFiles().isEmpty());
+
+        stream(1L, "{\"relativeFilePath\": \"" + target + "\", \"content\": \"" + CONTENT_JSON + "\"}");
+        assertFalse(writer.commit(1L, target, CONTENT + "\n"));
+        assertFalse(Files.exists(target));
+        assertTrue(tempFiles().isEmpty());
+    }
+
+    @Test
+    void commitWritesContentThatArrivedBeforePath() throws IOException {
+        stream(1L, "{\"content\": \"" + CONTENT_JSON + "\", \"relativeFilePath\": \"" + target + "\"}");
+
+        assertTrue(writer.commit(1L, target, CONTENT));
+
+        assertEquals(CONTENT, Files.readString(target));
+    }
+
+    @Test
+    void discardDeletesTempFiles() throws IOException {
+        IncrementalJsonParser inFlight = stream(1L, "{\"relativeFilePath\": \"" + target + "\", \"content\": \"<div>");
+        assertFalse(inFlight.isDone());
+        assertEquals(1, tempFiles().size());
+
+        writer.discard(1L);
+
+        assertTrue(tempFiles().isEmpty());
+
+        stream(1L, "{\"relativeFilePath\": \"" + target + "\", \"content\": \"" + CONTENT_JSON + "\"}");
+        // 其他应用的丢弃不影响本应用的推测写入
+        writer.discard(2L);
+        assertEquals(1, tempFiles().size());
+
+        writer.discard(1L);
+
+        assertTrue(tempFiles().isEmpty());
+        assertFalse(writer.commit(1L, target, CONTENT));
+    }
+
+    /**
+     * 像模型流式返回参数一样，每次只喂给解析器一个字符
+     */
+    private IncrementalJsonParser stream(Long appId, String arguments) {
+        ToolExecutionRequest request = ToolExecutionRequest.builder().id("call_1").name("writeFile").build();
+        IncrementalJsonParser parser = new IncrementalJsonParser(writer.open(appId, request));
+        for (int i = 0; i < arguments.length(); i++) {
+            parser.feed(arguments.substring(i, i + 1));
+        }
+        return parser;
+    }
+
+    private List<Path> tempFiles() throws IOException {
+        if (!Files.exists(target.getParent())) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(target.getParent())) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".tmp")).toList();
+        }
+    }
+}
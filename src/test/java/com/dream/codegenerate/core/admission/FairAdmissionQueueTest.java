@@ -0,0 +1,121 @@
+package com.dream.codegenerate.core.admission;
+
+import com.dream.codegenerate.exception.BusinessException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * FairAdmissionQueue 测试类
+ */
+class FairAdmissionQueueTest {
+
+    private final List<String> admitted = new ArrayList<>();
+
+    @Test
+    void admitsImmediatelyWithinBudget() {
+        FairAdmissionQueue queue = new FairAdmissionQueue(2, 10, 2);
+
+        FairAdmissionQueue.Ticket first = queue.enqueue(1L, 1, () -> admitted.add("a1"));
+        FairAdmissionQueue.Ticket second = queue.enqueue(2L, 1, () -> admitted.add("b1"));
+        FairAdmissionQueue.Ticket third = queue.enqueue(3L, 1, () -> admitted.add("c1"));
+
+        assertTrue(first.isAdmitted());
+        assertTrue(second.isAdmitted());
+        assertFalse(third.isAdmitted());
+        assertEquals(1, queue.position(third));
+        assertEquals(List.of("a1", "b1"), admitted);
+
+        queue.release(first);
+        assertTrue(third.isAdmitted());
+        assertEquals(List.of("a1", "b1", "c1"), admitted);
+        assertEquals(0, queue.queuedCount());
+    }
+
+    @Test
+    void interleavesUsersInsteadOfFirstComeFirstServed() {
+        FairAdmissionQueue queue = new FairAdmissionQueue(1, 10, 3);
+        FairAdmissionQueue.Ticket running = queue.enqueue(0L, 1, () -> admitted.add("x"));
+        List<FairAdmissionQueue.Ticket> tickets = new ArrayList<>();
+        tickets.add(queue.enqueue(1L, 1, () -> admitted.add("a1")));
+        tickets.add(queue.enqueue(1L, 1, () -> admitted.add("a2")));
+        tickets.add(queue.enqueue(1L, 1, () -> admitted.add("a3")));
+        tickets.add(queue.enqueue(2L, 1, () -> admitted.add("b1")));
+
+        assertEquals(2, queue.position(tickets.get(3)));
+
+        queue.release(running);
+        for (int i = 0; i < 4; i++) {
+            FairAdmissionQueue.Ticket current = tickets.stream().filter(FairAdmissionQueue.Ticket::isAdmitted).findFirst().orElseThrow();
+            tickets.remove(current);
+            queue.release(current);
+        }
+        assertEquals(List.of("x", "a1", "b1", "a2", "a3"), admitted);
+    }
+
+    @Test
+    void chargesDirectlyAdmittedRequests() {
+        FairAdmissionQueue queue = new FairAdmissionQueue(2, 10, 2);
+        FairAdmissionQueue.Ticket first = queue.enqueue(1L, 1, () -> admitted.add("a1"));
+        queue.enqueue(1L, 1, () -> admitted.add("a2"));
+        FairAdmissionQueue.Ticket third = queue.enqueue(1L, 1, () -> admitted.add("a3"));
+        FairAdmissionQueue.Ticket other = queue.enqueue(2L, 1, () -> admitted.add("b1"));
+
+        // 用户 1 已占满全部名额，后来的用户 2 排在其第三个请求之前
+        assertEquals(1, queue.position(other));
+        assertEquals(2, queue.position(third));
+
+        queue.release(first);
+        assertEquals(List.of("a1", "a2", "b1"), admitted);
+        assertFalse(third.isAdmitted());
+    }
+
+    @Test
+    void heavierUsersGetLargerShare() {
+        FairAdmissionQueue queue = new FairAdmissionQueue(1, 10, 3);
+        FairAdmissionQueue.Ticket running = queue.enqueue(0L, 1, () -> admitted.add("x"));
+        List<FairAdmissionQueue.Ticket> tickets = new ArrayList<>();
+        tickets.add(queue.enqueue(1L, 1, () -> admitted.add("u1")));
+        tickets.add(queue.enqueue(1L, 1, () -> admitted.add("u2")));
+        tickets.add(queue.enqueue(2L, 3, () -> admitted.add("v1")));
+        tickets.add(queue.enqueue(2L, 3, () -> admitted.add("v2")));
+        tickets.add(queue.enqueue(2L, 3, () -> admitted.add("v3")));
+
+        queue.release(running);
+        for (int i = 0; i < 5; i++) {
+            FairAdmissionQueue.Ticket current = tickets.stream().filter(FairAdmissionQueue.Ticket::isAdmitted).findFirst().orElseThrow();
+            tickets.remove(current);
+            queue.release(current);
+        }
+        assertEquals(List.of("x", "u1", "v1", "v2", "v3", "u2"), admitted);
+    }
+
+    @Test
+    void releasingQueuedTicketLeavesQueue() {
+        FairAdmissionQueue queue = new FairAdmissionQueue(1, 10, 2);
+        FairAdmissionQueue.Ticket running = queue.enqueue(1L, 1, () -> admitted.add("a1"));
+        FairAdmissionQueue.Ticket waiting = queue.enqueue(2L, 1, () -> admitted.add("b1"));
+
+        queue.release(waiting);
+        queue.release(waiting);
+        assertEquals(0, queue.queuedCount());
+
+        queue.release(running);
+        assertEquals(List.of("a1"), admitted);
+        assertEquals(0, queue.runningCount());
+    }
+
+    @Test
+    void rejectsWhenQueueOrUserLimitIsReached() {
+        FairAdmissionQueue queue = new FairAdmissionQueue(1, 2, 1);
+        queue.enqueue(1L, 1, () -> { });
+        queue.enqueue(2L, 1, () -> { });
+
+        assertThrows(BusinessException.class, () -> queue.enqueue(2L, 1, () -> { }));
+        queue.enqueue(3L, 1, () -> { });
+        assertThrows(BusinessException.class, () -> queue.enqueue(4L, 1, () -> { }));
+    }
+}
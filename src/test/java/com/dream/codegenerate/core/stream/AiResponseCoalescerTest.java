@@ -0,0 +1,59 @@
+package com.dream.codegenerate.core.stream;
+
+import com.dream.codegenerate.ai.model.message.AiResponseMessage;
+import com.dream.codegenerate.ai.model.message.StreamMessage;
+import com.dream.codegenerate.ai.model.message.StreamMessageTypeEnum;
+import org.junit.jupiter.api.Test;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AiResponseCoalescerTest {
+
+    private final List<StreamMessage> received = new CopyOnWriteArrayList<>();
+
+    @Test
+    void mergeFragmentsWithinWindow() throws InterruptedException {
+        AiResponseCoalescer coalescer = new AiResponseCoalescer(received::add, Schedulers.parallel(), Duration.ofMillis(50), 2048);
+        coalescer.onPartialResponse("你");
+        coalescer.onPartialResponse("好");
+        coalescer.onPartialResponse("!");
+        assertTrue(received.isEmpty());
+        Thread.sleep(200);
+        assertEquals(1, received.size());
+        assertEquals("你好!", ((AiResponseMessage) received.get(0)).getData());
+    }
+
+    @Test
+    void flushTextBeforeToolEvent() {
+        AiResponseCoalescer coalescer = new AiResponseCoalescer(received::add, Schedulers.parallel(), Duration.ofSeconds(10), 2048);
+        coalescer.onPartialResponse("写入文件");
+        coalescer.emit(new StreamMessage(StreamMessageTypeEnum.TOOL_REQUEST.getValue()));
+        assertEquals(2, received.size());
+        assertEquals("写入文件", ((AiResponseMessage) received.get(0)).getData());
+        assertEquals(StreamMessageTypeEnum.TOOL_REQUEST.getValue(), received.get(1).getType());
+    }
+
+    @Test
+    void flushWhenByteThresholdReached() {
+        AiResponseCoalescer coalescer = new AiResponseCoalescer(received::add, Schedulers.parallel(), Duration.ofSeconds(10), 6);
+        coalescer.onPartialResponse("中");
+        assertTrue(received.isEmpty());
+        // 两个汉字共 6 字节，达到阈值立即发送
+        coalescer.onPartialResponse("文");
+        assertEquals(1, received.size());
+        assertEquals("中文", ((AiResponseMessage) received.get(0)).getData());
+    }
+
+    @Test
+    void passThroughWhenWindowDisabled() {
+        AiResponseCoalescer coalescer = new AiResponseCoalescer(received::add, Schedulers.parallel(), Duration.ZERO, 2048);
+        coalescer.onPartialResponse("a");
+        coalescer.onPartialResponse("b");
+        assertEquals(2, received.size());
+    }
+}
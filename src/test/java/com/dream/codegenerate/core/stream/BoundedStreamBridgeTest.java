@@ -0,0 +1,111 @@
+package com.dream.codegenerate.core.stream;
+
+import com.dream.codegenerate.ai.model.message.AiResponseMessage;
+import com.dream.codegenerate.ai.model.message.StreamMessage;
+import com.dream.codegenerate.ai.model.message.ToolRequestMessage;
+import com.dream.codegenerate.exception.BusinessException;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedStreamBridgeTest {
+
+    private final AtomicReference<BoundedStreamBridge> bridgeRef = new AtomicReference<>();
+    private final List<StreamMessage> received = new CopyOnWriteArrayList<>();
+    private final AtomicReference<Throwable> errorRef = new AtomicReference<>();
+
+    private BaseSubscriber<StreamMessage> subscribe(int maxMessages, long maxChars, Duration overflowTimeout) {
+        BaseSubscriber<StreamMessage> subscriber = new BaseSubscriber<>() {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+                // 不主动请求，模拟卡住的客户端
+            }
+
+            @Override
+            protected void hookOnNext(StreamMessage value) {
+                received.add(value);
+            }
+
+            @Override
+            protected void hookOnError(Throwable throwable) {
+                errorRef.set(throwable);
+            }
+        };
+        Flux.<StreamMessage>create(sink -> bridgeRef.set(new BoundedStreamBridge(sink, maxMessages, maxChars, overflowTimeout)),
+                FluxSink.OverflowStrategy.ERROR).subscribe(subscriber);
+        return subscriber;
+    }
+
+    @Test
+    void mergeBacklogWhileClientStalled() {
+        BaseSubscriber<StreamMessage> subscriber = subscribe(16, 1024, Duration.ofSeconds(1));
+        BoundedStreamBridge bridge = bridgeRef.get();
+        bridge.next(new AiResponseMessage("a"));
+        bridge.next(new AiResponseMessage("b"));
+        bridge.next(toolRequest("{\"path\":"));
+        bridge.next(toolRequest("\"index.html\"}"));
+        assertEquals(2, bridge.size());
+        assertTrue(received.isEmpty());
+
+        subscriber.request(10);
+        assertEquals(2, received.size());
+        assertEquals("ab", ((AiResponseMessage) received.get(0)).getData());
+        assertEquals("{\"path\":\"index.html\"}", ((ToolRequestMessage) received.get(1)).getArguments());
+        assertEquals(0, bridge.size());
+        assertEquals(0, bridge.queuedChars());
+    }
+
+    @Test
+    void mergeToolDeltaWithoutNullText() {
+        BaseSubscriber<StreamMessage> subscriber = subscribe(16, 1024, Duration.ofSeconds(1));
+        BoundedStreamBridge bridge = bridgeRef.get();
+        ToolRequestMessage first = toolRequest("{\"content\":\"<div>");
+        first.setStreamingField("content");
+        first.setStreamingDelta("<div>");
+        ToolRequestMessage second = toolRequest("\"");
+        second.setStreamingField("content");
+        bridge.next(first);
+        bridge.next(second);
+
+        subscriber.request(10);
+        assertEquals(1, received.size());
+        assertEquals("<div>", ((ToolRequestMessage) received.getFirst()).getStreamingDelta());
+    }
+
+    @Test
+    void failStreamWhenOverflowTimesOut() {
+        subscribe(1, 1024, Duration.ofMillis(50));
+        BoundedStreamBridge bridge = bridgeRef.get();
+        bridge.next(new AiResponseMessage("a"));
+        // 不同类型无法合并，队列已满，阻塞直至超时
+        bridge.next(toolRequest("{}"));
+        assertInstanceOf(BusinessException.class, errorRef.get());
+        assertEquals(0, bridge.size());
+    }
+
+    @Test
+    void completeAfterBacklogDrained() {
+        BaseSubscriber<StreamMessage> subscriber = subscribe(16, 1024, Duration.ofSeconds(1));
+        BoundedStreamBridge bridge = bridgeRef.get();
+        bridge.next(new AiResponseMessage("a"));
+        bridge.complete();
+        assertFalse(subscriber.isDisposed());
+        subscriber.request(1);
+        assertEquals(1, received.size());
+        assertTrue(subscriber.isDisposed());
+    }
+
+    private ToolRequestMessage toolRequest(String arguments) {
+        return new ToolRequestMessage(ToolExecutionRequest.builder().id("call_1").name("writeFile").arguments(arguments).build());
+    }
+}
@@ -0,0 +1,91 @@
+package com.dream.codegenerate.core.stream;
+
+import com.dream.codegenerate.ai.model.message.AiResponseMessage;
+import com.dream.codegenerate.ai.model.message.ReplayGapMessage;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GenerationEventBufferTest {
+
+    @Test
+    void replayAfterLastEventIdThenFollowLiveEvents() {
+        GenerationEventBuffer buffer = new GenerationEventBuffer("g1", 16, null);
+        buffer.append(new AiResponseMessage("a"));
+        buffer.append(new AiResponseMessage("b"));
+        List<GenerationEvent> received = new CopyOnWriteArrayList<>();
+        buffer.subscribe(1).subscribe(received::add);
+        assertEquals(1, received.size());
+        assertEquals("g1-2", received.get(0).id());
+
+        buffer.append(new AiResponseMessage("c"));
+        buffer.complete();
+        assertEquals(List.of(2L, 3L), received.stream().map(GenerationEvent::sequence).toList());
+    }
+
+    @Test
+    void endWithReplayGapWhenEventsEvictedWithoutSpill() {
+        GenerationEventBuffer buffer = new GenerationEventBuffer("g1", 2, null);
+        for (String data : List.of("a", "b", "c", "d")) {
+            buffer.append(new AiResponseMessage(data));
+        }
+        List<GenerationEvent> events = buffer.subscribe(0).collectList().block();
+        assertNotNull(events);
+        assertEquals(1, events.size());
+        ReplayGapMessage gap = assertInstanceOf(ReplayGapMessage.class, events.getFirst().message());
+        assertEquals(1, gap.getFromSequence());
+        assertEquals(2, gap.getToSequence());
+        assertEquals("g1-0", events.getFirst().id());
+    }
+
+    @Test
+    void endWithReplayGapWhenSlowCursorIsLapped() {
+        GenerationEventBuffer buffer = new GenerationEventBuffer("g1", 2, null);
+        List<GenerationEvent> received = new CopyOnWriteArrayList<>();
+        AtomicBoolean completed = new AtomicBoolean();
+        BaseSubscriber<GenerationEvent> slowClient = new BaseSubscriber<>() {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+                request(1);
+            }
+
+            @Override
+            protected void hookOnNext(GenerationEvent event) {
+                received.add(event);
+            }
+
+            @Override
+            protected void hookOnComplete() {
+                completed.set(true);
+            }
+        };
+        buffer.subscribe(0).subscribe(slowClient);
+        for (String data : List.of("a", "b", "c", "d")) {
+            buffer.append(new AiResponseMessage(data));
+        }
+        assertEquals(List.of(1L), received.stream().map(GenerationEvent::sequence).toList());
+
+        // 客户端恢复读取时，序号 2 已被淘汰
+        slowClient.request(10);
+
+        assertEquals(2, received.size());
+        ReplayGapMessage gap = assertInstanceOf(ReplayGapMessage.class, received.getLast().message());
+        assertEquals(2, gap.getFromSequence());
+        assertEquals(2, gap.getToSequence());
+        assertEquals(1, received.getLast().sequence());
+        assertTrue(completed.get());
+    }
+
+    @Test
+    void parseEventId() {
+        assertEquals("1980123456789", GenerationEvent.parseGenerationId("1980123456789-42"));
+        assertEquals(42, GenerationEvent.parseSequence("1980123456789-42"));
+        assertEquals(-1, GenerationEvent.parseSequence("bad"));
+    }
+}
@@ -0,0 +1,70 @@
+package com.dream.codegenerate.core.stream;
+
+import com.dream.codegenerate.ai.model.message.AiResponseMessage;
+import com.dream.codegenerate.ai.model.message.StreamMessage;
+import com.dream.codegenerate.config.CodeGenStreamConfig;
+import com.dream.codegenerate.exception.BusinessException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GenerationJobManagerTest {
+
+    private final GenerationJobManager jobManager = new GenerationJobManager();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(jobManager, "codeGenStreamConfig", new CodeGenStreamConfig());
+    }
+
+    @Test
+    void rejectSecondJobWhileRunning() {
+        GenerationJob job = jobManager.reserve(1L, 1L);
+        Sinks.Many<StreamMessage> source = Sinks.many().unicast().onBackpressureBuffer();
+        jobManager.start(job, source.asFlux());
+        assertThrows(BusinessException.class, () -> jobManager.reserve(1L, 1L));
+
+        source.tryEmitComplete();
+        assertNotSame(job, jobManager.reserve(1L, 1L));
+    }
+
+    @Test
+    void watchersShareOneGenerationAndSurviveDisconnect() {
+        GenerationJob job = jobManager.reserve(2L, 1L);
+        Sinks.Many<StreamMessage> source = Sinks.many().unicast().onBackpressureBuffer();
+        // 发起请求的客户端立刻断开，生成仍继续
+        jobManager.start(job, source.asFlux()).take(0).subscribe();
+        source.tryEmitNext(new AiResponseMessage("a"));
+        source.tryEmitNext(new AiResponseMessage("b"));
+        source.tryEmitComplete();
+
+        List<GenerationEvent> watched = jobManager.watch(2L, null).collectList().block();
+        assertNotNull(watched);
+        assertEquals(2, watched.size());
+        List<GenerationEvent> resumed = jobManager.watch(2L, watched.get(0).id()).collectList().block();
+        assertNotNull(resumed);
+        assertEquals(List.of(2L), resumed.stream().map(GenerationEvent::sequence).toList());
+        assertTrue(jobManager.watch(2L, "other-1").collectList().block().isEmpty());
+    }
+
+    @Test
+    void cancelUpstreamWhenAllSubscribersLeave() throws InterruptedException {
+        CodeGenStreamConfig config = new CodeGenStreamConfig();
+        config.setCancelGracePeriod(Duration.ofMillis(10));
+        ReflectionTestUtils.setField(jobManager, "codeGenStreamConfig", config);
+        GenerationJob job = jobManager.reserve(3L, 1L);
+        AtomicBoolean upstreamCancelled = new AtomicBoolean();
+        Sinks.Many<StreamMessage> source = Sinks.many().unicast().onBackpressureBuffer();
+        jobManager.start(job, source.asFlux().doOnCancel(() -> upstreamCancelled.set(true))).take(0).subscribe();
+        Thread.sleep(200);
+        assertTrue(upstreamCancelled.get());
+        assertFalse(job.isRunning());
+    }
+}
@@ -0,0 +1,44 @@
+package com.dream.codegenerate.model.entity;
+
+import com.dream.codegenerate.config.JsonConfig;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.UserMessage;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ChatMessagesEntity 测试类
+ */
+class ChatMessagesEntityTest {
+
+    private final ObjectMapper objectMapper = new JsonConfig().langchain4jObjectMapper();
+
+    @Test
+    void storesToolCallIdsOfAiMessage() {
+        AiMessage aiMessage = AiMessage.from(List.of(
+                ToolExecutionRequest.builder().id("call_1").name("writeFile").arguments("{}").build(),
+                ToolExecutionRequest.builder().id("call_2").name("readFile").arguments("{}").build()));
+
+        ChatMessagesEntity entity = ChatMessagesEntity.from("1", aiMessage, objectMapper);
+
+        assertEquals(List.of("call_1", "call_2"), entity.getToolCallIds());
+        assertEquals(List.of("call_1", "call_2"), entity.toolCallIdList(objectMapper));
+        assertTrue(ChatMessagesEntity.from("1", UserMessage.from("hi"), objectMapper)
+                .toolCallIdList(objectMapper).isEmpty());
+    }
+
+    @Test
+    void fallsBackToToolExecutionRequestsForLegacyRows() {
+        AiMessage aiMessage = AiMessage.from(List.of(
+                ToolExecutionRequest.builder().id("call_3").name("writeFile").arguments("{}").build()));
+        ChatMessagesEntity entity = ChatMessagesEntity.from("1", aiMessage, objectMapper);
+        entity.setToolCallIds(null);
+
+        assertEquals(List.of("call_3"), entity.toolCallIdList(objectMapper));
+    }
+}
@@ -0,0 +1,36 @@
+package com.dream.codegenerate.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * EmbeddingVectorCodec 测试类
+ */
+class EmbeddingVectorCodecTest {
+
+    private static final float[] VECTOR = {0.0123f, -0.5f, 0.98765f, -0.0001f, 0.25f};
+
+    @Test
+    void float32RoundTripIsExact() {
+        byte[] bytes = EmbeddingVectorCodec.encode(VECTOR, false);
+
+        assertEquals(1 + VECTOR.length * 4, bytes.length);
+        assertArrayEquals(VECTOR, EmbeddingVectorCodec.decode(bytes));
+    }
+
+    @Test
+    void float16HalvesSizeWithSmallError() {
+        byte[] bytes = EmbeddingVectorCodec.encode(VECTOR, true);
+        float[] decoded = EmbeddingVectorCodec.decode(bytes);
+
+        assertEquals(1 + VECTOR.length * 2, bytes.length);
+        assertArrayEquals(VECTOR, decoded, 1e-3f);
+    }
+
+    @Test
+    void unknownFormatDecodesToNull() {
+        assertNull(EmbeddingVectorCodec.decode(new byte[]{9, 0, 0}));
+        assertNull(EmbeddingVectorCodec.decode(new byte[0]));
+    }
+}
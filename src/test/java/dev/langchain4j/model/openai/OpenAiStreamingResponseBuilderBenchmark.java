@@ -0,0 +1,101 @@
+package dev.langchain4j.model.openai;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.openai.internal.chat.ChatCompletionResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the single-writer {@link OpenAiStreamingResponseBuilder} with the previous StringBuffer / AtomicReference
+ * based builder ({@link LegacyOpenAiStreamingResponseBuilder}) on streams stored in {@code src/test/resources/streams}.
+ * The stream files contain the raw {@code data:} lines of a chat completion stream, so new captures can be dropped
+ * into that directory and added to {@link #stream}.
+ * <p>
+ * Run with the GC profiler to see allocations per stream:
+ * <pre>
+ * mvn test-compile
+ * java -cp target/test-classes:target/classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout) \
+ *     org.openjdk.jmh.Main OpenAiStreamingResponseBuilderBenchmark -prof gc
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OpenAiStreamingResponseBuilderBenchmark {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    @Param({"openai-text.sse", "openai-write-file.sse"})
+    public String stream;
+
+    private List<ChatCompletionResponse> partialResponses;
+
+    @Setup
+    public void loadStream() throws IOException {
+        partialResponses = readStream("/streams/" + stream);
+    }
+
+    @Benchmark
+    public ChatResponse legacyBuilder() {
+        LegacyOpenAiStreamingResponseBuilder builder = new LegacyOpenAiStreamingResponseBuilder();
+        for (ChatCompletionResponse partialResponse : partialResponses) {
+            builder.append(partialResponse);
+        }
+        return builder.build();
+    }
+
+    @Benchmark
+    public ChatResponse singleWriterBuilder() {
+        OpenAiStreamingResponseBuilder builder = new OpenAiStreamingResponseBuilder();
+        for (ChatCompletionResponse partialResponse : partialResponses) {
+            builder.append(partialResponse);
+        }
+        return builder.build();
+    }
+
+    static List<ChatCompletionResponse> readStream(String resource) throws IOException {
+        List<ChatCompletionResponse> responses = new ArrayList<>();
+        try (InputStream in = OpenAiStreamingResponseBuilderBenchmark.class.getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IOException("stream not found: " + resource);
+            }
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.startsWith("data:")) {
+                    continue;
+                }
+                String data = line.substring("data:".length()).trim();
+                if ("[DONE]".equals(data)) {
+                    break;
+                }
+                responses.add(OBJECT_MAPPER.readValue(data, ChatCompletionResponse.class));
+            }
+        }
+        return responses;
+    }
+}
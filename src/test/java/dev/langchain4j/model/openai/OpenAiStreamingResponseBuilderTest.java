@@ -0,0 +1,34 @@
+package dev.langchain4j.model.openai;
+
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.openai.internal.chat.ChatCompletionResponse;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class OpenAiStreamingResponseBuilderTest {
+
+    @ParameterizedTest
+    @ValueSource(strings = {"openai-text.sse", "openai-write-file.sse"})
+    void buildsSameResponseAsLegacyBuilder(String stream) throws Exception {
+        List<ChatCompletionResponse> partialResponses =
+                OpenAiStreamingResponseBuilderBenchmark.readStream("/streams/" + stream);
+        OpenAiStreamingResponseBuilder builder = new OpenAiStreamingResponseBuilder();
+        LegacyOpenAiStreamingResponseBuilder legacyBuilder = new LegacyOpenAiStreamingResponseBuilder();
+        for (ChatCompletionResponse partialResponse : partialResponses) {
+            builder.append(partialResponse);
+            legacyBuilder.append(partialResponse);
+        }
+
+        ChatResponse response = builder.build();
+        ChatResponse expected = legacyBuilder.build();
+
+        assertNotNull(response);
+        assertEquals(expected.aiMessage(), response.aiMessage());
+        assertEquals(expected.metadata(), response.metadata());
+    }
+}